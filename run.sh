@@ -1,3 +1,4 @@
 #!/bin/bash
 
-LANG=en_US.UTF-8 LC_ALL=en_US.UTF-8 MAVEN_OPTS="--enable-preview" mvn compile exec:java
+LANG=en_US.UTF-8 LC_ALL=en_US.UTF-8 MAVEN_OPTS="--enable-preview --add-modules jdk.incubator.vector" mvn -q install -DskipTests && \
+LANG=en_US.UTF-8 LC_ALL=en_US.UTF-8 MAVEN_OPTS="--enable-preview --add-modules jdk.incubator.vector" mvn -pl sheets-ui exec:java
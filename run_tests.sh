@@ -1,3 +1,3 @@
 #!/bin/bash
 
-LANG=en_US.UTF-8 LC_ALL=en_US.UTF-8 MAVEN_OPTS="--enable-preview" mvn compile test
+LANG=en_US.UTF-8 LC_ALL=en_US.UTF-8 MAVEN_OPTS="--enable-preview --add-modules jdk.incubator.vector" mvn compile test
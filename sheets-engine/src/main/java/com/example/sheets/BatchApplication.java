@@ -0,0 +1,85 @@
+package com.example.sheets;
+
+import com.example.sheets.batch.BatchRecalculator;
+import com.example.sheets.batch.FileReport;
+import com.example.sheets.batch.OutputFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Headless entry point recalculating every workbook of a directory:
+ * {@code BatchApplication <input-dir> <output-dir> [--format csv|json] [--threads N]}
+ */
+public class BatchApplication {
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static final double NANOS_IN_SECOND = 1e9;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            usage();
+            return;
+        }
+        var inputDirectory = Path.of(args[0]);
+        var outputDirectory = Path.of(args[1]);
+        var format = OutputFormat.CSV;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 2; i < args.length; i++) {
+                if (i + 1 == args.length) {
+                    usage();
+                    return;
+                }
+                switch (args[i]) {
+                    case "--format" -> format = OutputFormat.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    case "--threads" -> threads = Math.max(1, Integer.parseInt(args[++i]));
+                    case default -> {
+                        usage();
+                        return;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // An unknown format, or a thread count which isn't a number
+            usage();
+            return;
+        }
+
+        List<Path> workbooks;
+        try (Stream<Path> files = Files.list(inputDirectory)) {
+            workbooks = files.filter(Files::isRegularFile).sorted().toList();
+        }
+        Files.createDirectories(outputDirectory);
+
+        long start = System.nanoTime();
+        var reports = new BatchRecalculator(outputDirectory, format, threads).run(workbooks);
+        long elapsed = System.nanoTime() - start;
+
+        for (var report : reports) {
+            if (report.isSuccessful()) {
+                System.out.printf("%s: %d cells, load %.1f ms, eval %.1f ms, write %.1f ms%n",
+                    report.file().getFileName(), report.cellCount(),
+                    report.loadNanos() / NANOS_IN_MILLI, report.evalNanos() / NANOS_IN_MILLI,
+                    report.writeNanos() / NANOS_IN_MILLI);
+            } else {
+                System.out.printf("%s: FAILED %s%n", report.file().getFileName(), report.failure().get());
+            }
+        }
+
+        long succeeded = reports.stream().filter(FileReport::isSuccessful).count();
+        long cells = reports.stream().mapToLong(FileReport::cellCount).sum();
+        double seconds = elapsed / NANOS_IN_SECOND;
+        System.out.printf("%d/%d workbooks, %d cells in %.2f s on %d threads: %.1f workbooks/s, %.0f cells/s%n",
+            succeeded, reports.size(), cells, seconds, threads, reports.size() / seconds, cells / seconds);
+        if (succeeded != reports.size())
+            System.exit(1);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BatchApplication <input-dir> <output-dir> [--format csv|json] [--threads N]");
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.sheets;
+
+import com.example.sheets.server.EvaluationServer;
+
+import java.io.IOException;
+
+/**
+ * Headless entry point serving the engine over HTTP on localhost:
+ * {@code ServerApplication [--port P] [--threads N]}
+ */
+public class ServerApplication {
+    private static final int DEFAULT_PORT = 8585;
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (i + 1 == args.length) {
+                    usage();
+                    return;
+                }
+                switch (args[i]) {
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--threads" -> threads = Math.max(1, Integer.parseInt(args[++i]));
+                    case default -> {
+                        usage();
+                        return;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // A port or thread count which isn't a number
+            usage();
+            return;
+        }
+
+        var server = new EvaluationServer(port, threads);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.printf("Listening on http://localhost:%d/workbooks/%n", server.getPort());
+    }
+
+    private static void usage() {
+        System.err.println("Usage: ServerApplication [--port P] [--threads N]");
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.sheets.batch;
+
+import com.example.sheets.table.CellManager;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Loads saved workbooks, evaluates every filled cell and writes the values out.
+ * Workbooks are independent, so each one is processed by a single task of a fixed size pool.
+ */
+public final class BatchRecalculator {
+
+    private final Path outputDirectory;
+    private final OutputFormat format;
+    private final int threadCount;
+
+    public BatchRecalculator(Path outputDirectory, OutputFormat format, int threadCount) {
+        this.outputDirectory = outputDirectory;
+        this.format = format;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Writes the values of each workbook to a file of the same name with the extension of the format. Inputs
+     * which only differ by their extension keep it in the name, so none of them overwrites another one.
+     */
+    public List<FileReport> run(List<Path> workbooks) throws InterruptedException {
+        var stemCounts = new HashMap<String, Integer>();
+        for (var workbook : workbooks)
+            stemCounts.merge(stem(workbook), 1, Integer::sum);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            var futures = new ArrayList<Future<FileReport>>();
+            for (var workbook : workbooks) {
+                var name = stemCounts.get(stem(workbook)) > 1 ? workbook.getFileName().toString() : stem(workbook);
+                futures.add(executor.submit(() -> process(workbook, name + "." + format.getExtension())));
+            }
+
+            var reports = new ArrayList<FileReport>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    reports.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    reports.add(FileReport.failed(workbooks.get(i), String.valueOf(e.getCause())));
+                }
+            }
+            return reports;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private FileReport process(Path workbook, String outputName) {
+        long start = System.nanoTime();
+        var cellManager = new CellManager(0, 0);
+        try (var in = Files.newInputStream(workbook)) {
+            cellManager.load(in);
+        } catch (JsonProcessingException e) {
+            return FileReport.failed(workbook, "Unable to parse: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            return FileReport.failed(workbook, "Unable to read: " + e.getMessage());
+        }
+        long loaded = System.nanoTime();
+
+        var addresses = cellManager.getFilledAddresses();
+        cellManager.evaluate(addresses);
+        long evaluated = System.nanoTime();
+
+        var output = outputDirectory.resolve(outputName);
+        try (var writer = Files.newBufferedWriter(output, UTF_8)) {
+            format.write(cellManager, addresses, writer);
+        } catch (IOException e) {
+            return FileReport.failed(workbook, "Unable to write %s: %s".formatted(output, e.getMessage()));
+        }
+        long written = System.nanoTime();
+
+        return new FileReport(workbook, addresses.size(), loaded - start, evaluated - loaded, written - evaluated,
+            Optional.empty());
+    }
+
+    private static String stem(Path workbook) {
+        var name = workbook.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
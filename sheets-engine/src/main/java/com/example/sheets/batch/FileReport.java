@@ -0,0 +1,16 @@
+package com.example.sheets.batch;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+public record FileReport(Path file, int cellCount, long loadNanos, long evalNanos, long writeNanos,
+                         Optional<String> failure) {
+
+    public static FileReport failed(Path file, String message) {
+        return new FileReport(file, 0, 0, 0, 0, Optional.of(message));
+    }
+
+    public boolean isSuccessful() {
+        return failure.isEmpty();
+    }
+}
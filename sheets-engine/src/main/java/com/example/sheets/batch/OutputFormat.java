@@ -0,0 +1,56 @@
+package com.example.sheets.batch;
+
+import com.example.sheets.save.CsvWriter;
+import com.example.sheets.table.CellManager;
+import com.example.sheets.table.cell.CellAddress;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+public enum OutputFormat {
+    CSV("csv") {
+        @Override
+        public void write(CellManager cellManager, List<CellAddress> addresses, Writer out) throws IOException {
+            int rows = addresses.stream().mapToInt(CellAddress::row).max().orElse(-1) + 1;
+            int columns = addresses.stream().mapToInt(CellAddress::column).max().orElse(-1) + 1;
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    if (j > 0)
+                        out.write(',');
+                    out.write(CsvWriter.escape(cellManager.getVisibleValue(new CellAddress(i, j))));
+                }
+                out.write('\n');
+            }
+        }
+    },
+    JSON("json") {
+        @Override
+        public void write(CellManager cellManager, List<CellAddress> addresses, Writer out) throws IOException {
+            var values = addresses.stream()
+                .map(a -> new ValueInfo(a.row(), a.column(), cellManager.getVisibleValue(a)))
+                .toList();
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(out,
+                new ValuesInfo(cellManager.getRowCount(), cellManager.getColumnCount(), values));
+        }
+    };
+
+    public record ValuesInfo(int rowCount, int columnCount, List<ValueInfo> cells) {
+    }
+
+    public record ValueInfo(int row, int column, String value) {
+    }
+
+    private final String extension;
+
+    OutputFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public abstract void write(CellManager cellManager, List<CellAddress> addresses, Writer out) throws IOException;
+}
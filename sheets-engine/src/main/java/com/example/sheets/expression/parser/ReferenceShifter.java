@@ -0,0 +1,60 @@
+package com.example.sheets.expression.parser;
+
+import com.example.sheets.expression.parser.lexer.CharArrayLexer;
+import com.example.sheets.expression.parser.lexer.LexerException;
+import com.example.sheets.expression.parser.lexer.TokenBuffer;
+
+/**
+ * Rewrites the cell references of a formula copied to another cell, splicing the token spans
+ * of the references and keeping the rest of the text as it was typed.
+ */
+public final class ReferenceShifter {
+    private static final ThreadLocal<CharArrayLexer> LEXER = ThreadLocal.withInitial(CharArrayLexer::new);
+    /**
+     * Row zero is never a valid reference, it stands for the references moved out of the table.
+     */
+    private static final String INVALID_REFERENCE = "A0";
+
+    /**
+     * Moves every reference by the offsets, including the {@code Sheet!A1} ones.
+     * Values which aren't formulas, or don't lex, are kept as they are.
+     */
+    public static String shift(String formula, int rowDelta, int columnDelta) {
+        if (rowDelta == 0 && columnDelta == 0 || formula.isEmpty() || formula.charAt(0) != '=')
+            return formula;
+        TokenBuffer tokens;
+        try {
+            tokens = LEXER.get().tokenize(formula);
+        } catch (LexerException e) {
+            return formula;
+        }
+
+        StringBuilder sb = null;
+        var source = tokens.getSource();
+        int copied = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.getType(i) != TokenBuffer.CELL_REF)
+                continue;
+            if (sb == null)
+                sb = new StringBuilder(formula.length() + 8);
+            sb.append(source, copied, tokens.getStart(i) - copied);
+            var sheet = tokens.getSheet(i);
+            if (sheet != null)
+                sb.append(sheet).append('!');
+            int row = tokens.getRow(i) + rowDelta;
+            int column = tokens.getColumn(i) + columnDelta;
+            if (row < 0 || column < 0)
+                sb.append(INVALID_REFERENCE);
+            else
+                sb.append(LetterIndexUtil.toLetterIndex(column + 1)).append(row + 1);
+            copied = tokens.getEnd(i);
+        }
+        if (sb == null)
+            return formula;
+        sb.append(source, copied, formula.length() - copied);
+        return sb.toString();
+    }
+
+    private ReferenceShifter() {
+    }
+}
@@ -23,7 +23,7 @@ public sealed interface AstNode permits
     NodeValue getValue(Function<Reference.Address, NodeValue> memory);
 
     default NodeValue getValue() {
-        return getValue((x) -> new NodeValue.Error("Incorrect reference %s".formatted(x.toString())));
+        return getValue(ErrorCode.INCORRECT_REFERENCE::error);
     }
 
     Set<Reference.Address> getReferences();
@@ -78,9 +78,22 @@ public sealed interface AstNode permits
             return memory.apply(address);
         }
 
-        public record Address(int rowIndex, int columnIndex) {
+        /**
+         * @param sheet name of the sheet for {@code Sheet!A1} references, null for the sheet of the formula
+         */
+        public record Address(int rowIndex, int columnIndex, String sheet) {
+            public Address(int rowIndex, int columnIndex) {
+                this(rowIndex, columnIndex, null);
+            }
+
             public Address(Lexer.CellRef cellRef) {
-                this(cellRef.getRowIdx(), cellRef.getColumnIdx());
+                this(cellRef.getRowIdx(), cellRef.getColumnIdx(), cellRef.getSheet());
+            }
+
+            @Override
+            public String toString() {
+                var sheetPart = sheet == null ? "" : ", sheet=" + sheet;
+                return "Address[rowIndex=" + rowIndex + ", columnIndex=" + columnIndex + sheetPart + "]";
             }
         }
 
@@ -115,10 +128,14 @@ public sealed interface AstNode permits
         }
     }
 
-    record Error(String message) implements AstNode {
+    record Error(NodeValue.Error value) implements AstNode {
+        public Error(String message) {
+            this(new NodeValue.Error(message));
+        }
+
         @Override
         public NodeValue getValue(Function<Reference.Address, NodeValue> memory) {
-            return new NodeValue.Error(message);
+            return value;
         }
 
         @Override
@@ -0,0 +1,76 @@
+package com.example.sheets.expression.parser.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites a parsed formula before it's stored in a cell. Subtrees without references are evaluated once
+ * and replaced with literals, since all the {@link Bodies} are pure, and structurally equal subtrees
+ * are replaced with a single shared instance, which {@link CompiledFormula} then evaluates only once.
+ */
+public final class AstOptimizer {
+
+    public static CompiledFormula compile(AstNode ast) {
+        return new CompiledFormula(optimize(ast));
+    }
+
+    public static AstNode optimize(AstNode ast) {
+        return new AstOptimizer().rewrite(ast);
+    }
+
+    private final Map<AstNode, AstNode> interned = new HashMap<>();
+
+    private AstNode rewrite(AstNode node) {
+        var rewritten = switch (node) {
+            case AstNode.UnaryOp op -> {
+                var operand = rewrite(op.operand());
+                yield isConstant(operand)
+                    ? toLiteral(op.operator().apply(operand.getValue()))
+                    : new AstNode.UnaryOp(operand, op.operator());
+            }
+            case AstNode.BinaryOp op -> {
+                var left = rewrite(op.leftOperand());
+                var right = rewrite(op.rightOperand());
+                yield isConstant(left) && isConstant(right)
+                    ? toLiteral(op.operator().apply(left.getValue(), right.getValue()))
+                    : new AstNode.BinaryOp(left, right, op.operator());
+            }
+            case AstNode.FunctionCall call -> {
+                var arguments = new ArrayList<AstNode>(call.arguments().size());
+                boolean constant = true;
+                for (var argument : call.arguments()) {
+                    var rewrittenArgument = rewrite(argument);
+                    constant &= isConstant(rewrittenArgument);
+                    arguments.add(rewrittenArgument);
+                }
+                yield constant
+                    ? toLiteral(call.functionBody().apply(arguments.stream().map(AstNode::getValue).toList()))
+                    : new AstNode.FunctionCall(call.functionName(), List.copyOf(arguments), call.functionBody());
+            }
+            case default -> node;
+        };
+        return interned.computeIfAbsent(rewritten, x -> x);
+    }
+
+    static boolean isConstant(AstNode node) {
+        return switch (node) {
+            case AstNode.NumberLiteral x -> true;
+            case AstNode.StrLiteral x -> true;
+            case AstNode.Error x -> true;
+            case default -> false;
+        };
+    }
+
+    private static AstNode toLiteral(NodeValue value) {
+        return switch (value) {
+            case NodeValue.Number x -> new AstNode.NumberLiteral(x.value());
+            case NodeValue.Str x -> new AstNode.StrLiteral(x.value());
+            case NodeValue.Error x -> new AstNode.Error(x);
+        };
+    }
+
+    private AstOptimizer() {
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.sheets.expression.parser.ast;
 
 import com.example.sheets.expression.parser.lexer.Lexer;
+import com.example.sheets.jfr.ParseEvent;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -11,6 +12,17 @@ import static com.example.sheets.expression.parser.ast.Bodies.*;
 
 public final class AstParser {
     public static AstNode parse(List<Lexer.Token> tokens) throws ParseException {
+        var event = new ParseEvent();
+        event.begin();
+        var ast = parseTokens(tokens);
+        if (event.shouldCommit()) {
+            event.tokenCount = tokens.size();
+            event.commit();
+        }
+        return ast;
+    }
+
+    private static AstNode parseTokens(List<Lexer.Token> tokens) throws ParseException {
         Stack<Lexer.Token> delayed = new Stack<>();
         List<Lexer.Token> rpn = new ArrayList<>();
         int n = tokens.size();
@@ -52,7 +52,7 @@ public final class Bodies {
     public static NodeValue numberUnaryOperator(NodeValue x, UnaryOperator<Double> op) {
         var value = x.getDoubleValue();
         if (value.isEmpty())
-            return unexpectedValueError("number", x);
+            return unexpectedValueError(ErrorCode.EXPECTED_NUMBER, x);
         return new NodeValue.Number(op.apply(value.get()));
     }
 
@@ -60,9 +60,9 @@ public final class Bodies {
         var leftValue = left.getDoubleValue();
         var rightValue = right.getDoubleValue();
         if (leftValue.isEmpty())
-            return unexpectedValueError("number", left);
+            return unexpectedValueError(ErrorCode.EXPECTED_NUMBER, left);
         if (rightValue.isEmpty())
-            return unexpectedValueError("number", right);
+            return unexpectedValueError(ErrorCode.EXPECTED_NUMBER, right);
 
         return new NodeValue.Number(op.apply(leftValue.get(), rightValue.get()));
     }
@@ -72,11 +72,11 @@ public final class Bodies {
         var startValue = start.getDoubleValue();
         var endValue = end.getDoubleValue();
         if (sValue.isEmpty())
-            return unexpectedValueError("a string", s);
+            return unexpectedValueError(ErrorCode.EXPECTED_STRING, s);
         if (startValue.isEmpty() || startValue.get().intValue() != startValue.get())
-            return unexpectedValueError("whole number", start);
+            return unexpectedValueError(ErrorCode.EXPECTED_WHOLE_NUMBER, start);
         if (endValue.isEmpty() || endValue.get().intValue() != endValue.get())
-            return unexpectedValueError("whole number", end);
+            return unexpectedValueError(ErrorCode.EXPECTED_WHOLE_NUMBER, end);
 
         try {
             return new NodeValue.Str(sValue.get().substring(startValue.get().intValue(), endValue.get().intValue()));
@@ -85,12 +85,14 @@ public final class Bodies {
         }
     }
 
-    private static NodeValue unexpectedValueError(String expectedType, NodeValue x) {
-        var actualValueRepr = switch (x) {
-            case NodeValue.Error e -> "Error";
-            case default -> x.toString();
+    /**
+     * Errors got instead of the expected value are propagated as the shared instance of {@code code}.
+     */
+    private static NodeValue unexpectedValueError(ErrorCode code, NodeValue x) {
+        return switch (x) {
+            case NodeValue.Error e -> code.error();
+            case default -> code.error(x);
         };
-        return new NodeValue.Error("Expected %s, but got %s".formatted(expectedType, actualValueRepr));
     }
 
     private Bodies() {
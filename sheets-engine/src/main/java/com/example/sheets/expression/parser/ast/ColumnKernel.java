@@ -0,0 +1,280 @@
+package com.example.sheets.expression.parser.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Arithmetic formula over numbers, to compute a run of rows with the same formula shifted by one row each,
+ * like {@code =A1*B1+C1} down to {@code =A100*B100+C100}, at once over {@code double[]} columns of the inputs:
+ * one loop over all the rows per operation. With {@code --add-modules jdk.incubator.vector} the arithmetic loops
+ * run on {@link ColumnVectors}, otherwise on plain loops left to the JIT.
+ * <p>
+ * Only numbers, references to cells of the same sheet, {@code + - * /}, unary minus, {@code sin}, {@code max} and
+ * {@code pow} are supported. Given numeric inputs, the results are the same as those of {@link CompiledFormula}.
+ */
+public final class ColumnKernel {
+    private static final int CONSTANT = 0;
+    private static final int REFERENCE = 1;
+    private static final int NEGATE = 2;
+    private static final int ADD = 3;
+    private static final int SUBTRACT = 4;
+    private static final int MULTIPLY = 5;
+    private static final int DIVIDE = 6;
+    private static final int SIN = 7;
+    private static final int MAX = 8;
+    private static final int POW = 9;
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    /**
+     * Columns of the operands, kept for the next kernel evaluated on the thread.
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Operations in post-order.
+     */
+    private final int[] code;
+    /**
+     * Index of the constant or of the reference of each operation, unused by the others.
+     */
+    private final int[] arguments;
+    private final double[] constants;
+    /**
+     * Distinct references.
+     */
+    private final int[] rows;
+    private final int[] columns;
+    private final int maxDepth;
+
+    private ColumnKernel(int[] code, int[] arguments, double[] constants, int[] rows, int[] columns) {
+        this.code = code;
+        this.arguments = arguments;
+        this.constants = constants;
+        this.rows = rows;
+        this.columns = columns;
+        int depth = 0;
+        int maxDepth = 0;
+        for (int op : code) {
+            depth += switch (op) {
+                case CONSTANT, REFERENCE -> 1;
+                case NEGATE, SIN -> 0;
+                default -> -1;
+            };
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @return the kernel of {@code formula}, or null if it has anything unsupported
+     */
+    public static ColumnKernel of(CompiledFormula formula) {
+        var builder = new Builder();
+        if (!builder.add(formula.getAst()))
+            return null;
+        return new ColumnKernel(
+            builder.code.stream().mapToInt(Integer::intValue).toArray(),
+            builder.arguments.stream().mapToInt(Integer::intValue).toArray(),
+            builder.constants.stream().mapToDouble(Double::doubleValue).toArray(),
+            builder.rows.stream().mapToInt(Integer::intValue).toArray(),
+            builder.columns.stream().mapToInt(Integer::intValue).toArray()
+        );
+    }
+
+    private static final class Builder {
+        private final List<Integer> code = new ArrayList<>();
+        private final List<Integer> arguments = new ArrayList<>();
+        private final List<Double> constants = new ArrayList<>();
+        private final List<AstNode.Reference.Address> references = new ArrayList<>();
+        private final List<Integer> rows = new ArrayList<>();
+        private final List<Integer> columns = new ArrayList<>();
+
+        private boolean add(AstNode node) {
+            return switch (node) {
+                case AstNode.NumberLiteral literal -> {
+                    constants.add(literal.literal());
+                    yield emit(CONSTANT, constants.size() - 1);
+                }
+                case AstNode.Reference reference -> {
+                    var address = reference.address();
+                    if (address.sheet() != null)
+                        yield false;
+                    int index = references.indexOf(address);
+                    if (index < 0) {
+                        references.add(address);
+                        rows.add(address.rowIndex());
+                        columns.add(address.columnIndex());
+                        index = references.size() - 1;
+                    }
+                    yield emit(REFERENCE, index);
+                }
+                case AstNode.UnaryOp op -> op.operator() == Bodies.UMINUS_BODY && add(op.operand()) && emit(NEGATE, 0);
+                case AstNode.BinaryOp op -> {
+                    int opCode = op.operator() == Bodies.PLUS_BODY ? ADD
+                        : op.operator() == Bodies.MINUS_BODY ? SUBTRACT
+                        : op.operator() == Bodies.ASTERISK_BODY ? MULTIPLY
+                        : op.operator() == Bodies.SLASH_BODY ? DIVIDE
+                        : -1;
+                    yield opCode >= 0 && add(op.leftOperand()) && add(op.rightOperand()) && emit(opCode, 0);
+                }
+                case AstNode.FunctionCall call -> {
+                    int opCode = call.functionBody() == Bodies.SIN_BODY ? SIN
+                        : call.functionBody() == Bodies.MAX_BODY ? MAX
+                        : call.functionBody() == Bodies.POW_BODY ? POW
+                        : -1;
+                    yield opCode >= 0 && call.arguments().stream().allMatch(this::add) && emit(opCode, 0);
+                }
+                default -> false;
+            };
+        }
+
+        private boolean emit(int op, int argument) {
+            code.add(op);
+            arguments.add(argument);
+            return true;
+        }
+    }
+
+    public int getReferenceCount() {
+        return rows.length;
+    }
+
+    public int getRow(int reference) {
+        return rows[reference];
+    }
+
+    public int getColumn(int reference) {
+        return columns[reference];
+    }
+
+    /**
+     * Whether {@code other} is this formula with its references moved down by {@code rowDelta} rows.
+     */
+    public boolean isShiftedBy(ColumnKernel other, int rowDelta) {
+        if (other == null || !Arrays.equals(code, other.code) || !Arrays.equals(arguments, other.arguments)
+            || !Arrays.equals(constants, other.constants) || !Arrays.equals(columns, other.columns))
+            return false;
+        for (int i = 0; i < rows.length; i++) {
+            if (other.rows[i] != rows[i] + rowDelta)
+                return false;
+        }
+        return true;
+    }
+
+    public boolean readsColumn(int column) {
+        for (int c : columns) {
+            if (c == column)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Computes the kernel for {@code length} rows.
+     *
+     * @param inputs the values of each reference, for the rows in order
+     * @param out    receives the results, for the rows in order
+     */
+    public void evaluate(double[][] inputs, int length, double[] out) {
+        var scratch = SCRATCH.get().reserve(maxDepth);
+        var stack = scratch.stack;
+        int top = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            int op = code[pc];
+            if (op == REFERENCE) {
+                stack[top++] = inputs[arguments[pc]];
+                continue;
+            }
+            if (op == CONSTANT) {
+                var result = scratch.column(top, length);
+                Arrays.fill(result, 0, length, constants[arguments[pc]]);
+                stack[top++] = result;
+                continue;
+            }
+            if (op == NEGATE || op == SIN) {
+                var a = stack[top - 1];
+                var result = scratch.column(top - 1, length);
+                if (op == NEGATE && VECTORIZED) {
+                    ColumnVectors.negate(a, length, result);
+                } else if (op == NEGATE) {
+                    for (int i = 0; i < length; i++)
+                        result[i] = -a[i];
+                } else {
+                    for (int i = 0; i < length; i++)
+                        result[i] = Math.sin(a[i]);
+                }
+                stack[top - 1] = result;
+                continue;
+            }
+            var a = stack[top - 2];
+            var b = stack[top - 1];
+            // Owned by the slot of the left operand, so it may be the left operand itself
+            var result = scratch.column(top - 2, length);
+            if (VECTORIZED && op != POW) {
+                switch (op) {
+                    case ADD -> ColumnVectors.add(a, b, length, result);
+                    case SUBTRACT -> ColumnVectors.subtract(a, b, length, result);
+                    case MULTIPLY -> ColumnVectors.multiply(a, b, length, result);
+                    case DIVIDE -> ColumnVectors.divide(a, b, length, result);
+                    case MAX -> ColumnVectors.max(a, b, length, result);
+                    default -> throw new IllegalStateException("Unexpected operation " + op);
+                }
+                stack[top - 2] = result;
+                top--;
+                continue;
+            }
+            switch (op) {
+                case ADD -> {
+                    for (int i = 0; i < length; i++)
+                        result[i] = a[i] + b[i];
+                }
+                case SUBTRACT -> {
+                    for (int i = 0; i < length; i++)
+                        result[i] = a[i] - b[i];
+                }
+                case MULTIPLY -> {
+                    for (int i = 0; i < length; i++)
+                        result[i] = a[i] * b[i];
+                }
+                case DIVIDE -> {
+                    for (int i = 0; i < length; i++)
+                        result[i] = a[i] / b[i];
+                }
+                case MAX -> {
+                    for (int i = 0; i < length; i++)
+                        result[i] = Math.max(a[i], b[i]);
+                }
+                case POW -> {
+                    for (int i = 0; i < length; i++)
+                        result[i] = Math.pow(a[i], b[i]);
+                }
+                default -> throw new IllegalStateException("Unexpected operation " + op);
+            }
+            stack[top - 2] = result;
+            top--;
+        }
+        System.arraycopy(stack[0], 0, out, 0, length);
+    }
+
+    private static final class Scratch {
+        private double[][] stack = new double[0][];
+        private double[][] columns = new double[0][];
+
+        private Scratch reserve(int depth) {
+            if (stack.length < depth) {
+                stack = new double[depth][];
+                columns = Arrays.copyOf(columns, depth);
+            }
+            return this;
+        }
+
+        /**
+         * @return the column owned by the slot of the stack, with room for at least {@code length} rows
+         */
+        private double[] column(int slot, int length) {
+            if (columns[slot] == null || columns[slot].length < length)
+                columns[slot] = new double[length];
+            return columns[slot];
+        }
+    }
+}
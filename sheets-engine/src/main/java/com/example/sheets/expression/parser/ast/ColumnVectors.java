@@ -0,0 +1,85 @@
+package com.example.sheets.expression.parser.ast;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Loops of {@link ColumnKernel} over {@link DoubleVector}s of the widest species of the CPU, with a masked tail.
+ * Only the operations whose lanes are computed exactly like the scalar ones are here; {@code sin} and {@code pow}
+ * stay scalar so results don't depend on the CPU. Only loaded when the {@code jdk.incubator.vector} module is,
+ * see {@link ColumnKernel}.
+ */
+final class ColumnVectors {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    static void negate(double[] a, int length, double[] result) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i).neg().intoArray(result, i);
+        if (i < length) {
+            var mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, a, i, mask).neg().intoArray(result, i, mask);
+        }
+    }
+
+    static void add(double[] a, double[] b, int length, double[] result) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i).add(DoubleVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+        if (i < length) {
+            var mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, a, i, mask).add(DoubleVector.fromArray(SPECIES, b, i, mask))
+                .intoArray(result, i, mask);
+        }
+    }
+
+    static void subtract(double[] a, double[] b, int length, double[] result) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i).sub(DoubleVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+        if (i < length) {
+            var mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, a, i, mask).sub(DoubleVector.fromArray(SPECIES, b, i, mask))
+                .intoArray(result, i, mask);
+        }
+    }
+
+    static void multiply(double[] a, double[] b, int length, double[] result) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i).mul(DoubleVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+        if (i < length) {
+            var mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, a, i, mask).mul(DoubleVector.fromArray(SPECIES, b, i, mask))
+                .intoArray(result, i, mask);
+        }
+    }
+
+    static void divide(double[] a, double[] b, int length, double[] result) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i).div(DoubleVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+        if (i < length) {
+            var mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, a, i, mask).div(DoubleVector.fromArray(SPECIES, b, i, mask))
+                .intoArray(result, i, mask);
+        }
+    }
+
+    /**
+     * Like {@link Math#max}, with {@code NaN} winning and {@code -0.0} below {@code 0.0}.
+     */
+    static void max(double[] a, double[] b, int length, double[] result) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i).max(DoubleVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+        if (i < length) {
+            var mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, a, i, mask).max(DoubleVector.fromArray(SPECIES, b, i, mask))
+                .intoArray(result, i, mask);
+        }
+    }
+
+    private ColumnVectors() {
+    }
+}
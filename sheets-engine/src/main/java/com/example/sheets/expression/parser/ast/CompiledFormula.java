@@ -0,0 +1,100 @@
+package com.example.sheets.expression.parser.ast;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * An optimized formula flattened into post-order with every distinct subtree appearing once,
+ * so a subexpression used several times is computed once per evaluation. Values of literals
+ * are computed at construction, and only the reference dependent slots are filled on evaluation.
+ */
+public final class CompiledFormula {
+
+    private final AstNode ast;
+    private final AstNode[] program;
+    /**
+     * Slots of the operands of each program step, in argument order.
+     */
+    private final int[][] operands;
+    /**
+     * Values of the constant steps, {@code null} for the steps depending on references.
+     */
+    private final NodeValue[] constants;
+    private final List<AstNode.Reference.Address> references;
+
+    CompiledFormula(AstNode ast) {
+        this.ast = ast;
+        var slots = new IdentityHashMap<AstNode, Integer>();
+        var program = new ArrayList<AstNode>();
+        var operands = new ArrayList<int[]>();
+        flatten(ast, slots, program, operands);
+
+        this.program = program.toArray(AstNode[]::new);
+        this.operands = operands.toArray(int[][]::new);
+        constants = new NodeValue[this.program.length];
+        var references = new LinkedHashSet<AstNode.Reference.Address>();
+        for (int i = 0; i < this.program.length; i++) {
+            var node = this.program[i];
+            if (AstOptimizer.isConstant(node))
+                constants[i] = node.getValue();
+            else if (node instanceof AstNode.Reference reference)
+                references.add(reference.address());
+        }
+        this.references = List.copyOf(references);
+    }
+
+    private static int flatten(AstNode node, Map<AstNode, Integer> slots, List<AstNode> program, List<int[]> operands) {
+        var slot = slots.get(node);
+        if (slot != null)
+            return slot;
+
+        int[] children = switch (node) {
+            case AstNode.UnaryOp op -> new int[]{flatten(op.operand(), slots, program, operands)};
+            case AstNode.BinaryOp op -> new int[]{
+                flatten(op.leftOperand(), slots, program, operands),
+                flatten(op.rightOperand(), slots, program, operands)
+            };
+            case AstNode.FunctionCall call -> call.arguments().stream()
+                .mapToInt(argument -> flatten(argument, slots, program, operands))
+                .toArray();
+            case default -> new int[0];
+        };
+        program.add(node);
+        operands.add(children);
+        slots.put(node, program.size() - 1);
+        return program.size() - 1;
+    }
+
+    public NodeValue getValue(Function<AstNode.Reference.Address, NodeValue> memory) {
+        var values = constants.clone();
+        for (int i = 0; i < program.length; i++) {
+            if (values[i] != null)
+                continue;
+            var slots = operands[i];
+            values[i] = switch (program[i]) {
+                case AstNode.Reference reference -> memory.apply(reference.address());
+                case AstNode.UnaryOp op -> op.operator().apply(values[slots[0]]);
+                case AstNode.BinaryOp op -> op.operator().apply(values[slots[0]], values[slots[1]]);
+                case AstNode.FunctionCall call -> {
+                    var arguments = new NodeValue[slots.length];
+                    for (int k = 0; k < slots.length; k++)
+                        arguments[k] = values[slots[k]];
+                    yield call.functionBody().apply(Arrays.asList(arguments));
+                }
+                case default -> program[i].getValue(memory);
+            };
+        }
+        return values[program.length - 1];
+    }
+
+    /**
+     * Distinct referenced addresses in the order of their first appearance.
+     */
+    public List<AstNode.Reference.Address> getReferences() {
+        return references;
+    }
+
+    public AstNode getAst() {
+        return ast;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.sheets.expression.parser.ast;
+
+/**
+ * Kinds of {@link NodeValue.Error}. The message of an error is rendered from its code and detail
+ * only when it's asked for, errors are created and propagated without formatting anything.
+ */
+public enum ErrorCode {
+    /**
+     * Free form message, the detail is the message itself.
+     */
+    MESSAGE("#ERROR!", "%s"),
+    EXPECTED_NUMBER("#VALUE!", "Expected number, but got %s"),
+    EXPECTED_STRING("#VALUE!", "Expected a string, but got %s"),
+    EXPECTED_WHOLE_NUMBER("#VALUE!", "Expected whole number, but got %s"),
+    INVALID_ADDRESS("#REF!", "Invalid address %s"),
+    INCORRECT_REFERENCE("#REF!", "Incorrect reference %s"),
+    REFERENCE_CYCLE("#CYCLE!", "Part of reference cycle");
+
+    private final String label;
+    private final String template;
+    /**
+     * Shared instance with no detail. For the {@code EXPECTED_*} codes it means an error was got instead.
+     */
+    private final NodeValue.Error error;
+
+    ErrorCode(String label, String template) {
+        this.label = label;
+        this.template = template;
+        error = new NodeValue.Error(this, null);
+    }
+
+    /**
+     * @return the shared error with no detail
+     */
+    public NodeValue.Error error() {
+        return error;
+    }
+
+    public NodeValue.Error error(Object detail) {
+        return detail == null ? error : new NodeValue.Error(this, detail);
+    }
+
+    /**
+     * Short text for showing in place of the value.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    String render(Object detail) {
+        if (this == REFERENCE_CYCLE)
+            return template;
+        return template.formatted(detail == null ? "Error" : detail);
+    }
+}
@@ -27,6 +27,21 @@ public sealed interface NodeValue permits NodeValue.Error, NodeValue.Number, Nod
         }
     }
 
-    record Error(String message) implements NodeValue {
+    /**
+     * @param detail what the message of {@code code} is about, rendered only by {@link #message()}
+     */
+    record Error(ErrorCode code, Object detail) implements NodeValue {
+        public Error(String message) {
+            this(ErrorCode.MESSAGE, message);
+        }
+
+        public String message() {
+            return code.render(detail);
+        }
+
+        @Override
+        public String toString() {
+            return "Error[message=" + message() + "]";
+        }
     }
 }
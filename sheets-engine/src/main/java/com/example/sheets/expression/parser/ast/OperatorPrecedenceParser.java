@@ -0,0 +1,208 @@
+package com.example.sheets.expression.parser.ast;
+
+import com.example.sheets.expression.parser.lexer.TokenBuffer;
+import com.example.sheets.jfr.ParseEvent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BinaryOperator;
+
+import static com.example.sheets.expression.parser.ast.Bodies.*;
+
+/**
+ * One pass replacement of {@link AstParser} over a {@link TokenBuffer}. It runs the same operator precedence
+ * algorithm, but reduces operators into {@link AstNode}s as soon as they are popped instead of emitting
+ * an intermediate RPN list, so the accepted language, the trees and the error messages are the same,
+ * braceless calls like {@code sin pi} included. Both stacks are primitive or plain arrays reused between calls.
+ */
+public final class OperatorPrecedenceParser {
+
+    private static final byte UNARY_MINUS = 100;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Token types, or {@link #UNARY_MINUS}, of the delayed operators.
+     */
+    private byte[] operators = new byte[INITIAL_CAPACITY];
+    /**
+     * Token indices of the delayed operators, used to resolve function names.
+     */
+    private int[] operatorTokens = new int[INITIAL_CAPACITY];
+    private int operatorCount;
+    private AstNode[] nodes = new AstNode[INITIAL_CAPACITY];
+    private int nodeCount;
+    private TokenBuffer tokens;
+    /**
+     * The first reduction error. Like in {@link AstParser}, it's reported only if there's no bracket error.
+     */
+    private String reductionError;
+
+    public AstNode parse(TokenBuffer tokens) throws ParseException {
+        var event = new ParseEvent();
+        event.begin();
+        this.tokens = tokens;
+        operatorCount = 0;
+        nodeCount = 0;
+        reductionError = null;
+        try {
+            var ast = parseTokens();
+            if (event.shouldCommit()) {
+                event.tokenCount = tokens.size();
+                event.commit();
+            }
+            return ast;
+        } finally {
+            Arrays.fill(nodes, 0, nodeCount, null);
+            this.tokens = null;
+        }
+    }
+
+    private AstNode parseTokens() throws ParseException {
+        int n = tokens.size();
+        for (int i = 0; i < n; i++) {
+            byte type = tokens.getType(i);
+            switch (type) {
+                case TokenBuffer.NUMBER -> pushNode(new AstNode.NumberLiteral(tokens.getNumber(i)));
+                case TokenBuffer.STRING -> pushNode(new AstNode.StrLiteral(tokens.getString(i)));
+                case TokenBuffer.CELL_REF -> pushNode(
+                    new AstNode.Reference(new AstNode.Reference.Address(tokens.getRow(i), tokens.getColumn(i), tokens.getSheet(i)))
+                );
+                case TokenBuffer.IDENT, TokenBuffer.LEFT_BRACKET -> pushOperator(type, i);
+                case TokenBuffer.RIGHT_BRACKET -> {
+                    while (operatorCount > 0 && peekOperator() != TokenBuffer.LEFT_BRACKET)
+                        reduce();
+                    if (operatorCount == 0)
+                        throw new ParseException("Unmatched right bracket");
+                    operatorCount--;
+                    if (operatorCount > 0 && peekOperator() == TokenBuffer.IDENT)
+                        reduce();
+                }
+                case TokenBuffer.COMMA -> {
+                    while (operatorCount > 0 && peekOperator() != TokenBuffer.LEFT_BRACKET)
+                        reduce();
+                }
+                case TokenBuffer.PLUS, TokenBuffer.MINUS, TokenBuffer.ASTERISK, TokenBuffer.SLASH -> {
+                    byte operator = type == TokenBuffer.MINUS && (i == 0 || !isOperand(tokens.getType(i - 1)))
+                        ? UNARY_MINUS
+                        : type;
+                    int precedence = getPrecedence(operator);
+                    while (operatorCount > 0
+                        && peekOperator() != TokenBuffer.LEFT_BRACKET
+                        && getPrecedence(peekOperator()) >= precedence) {
+                        reduce();
+                    }
+                    pushOperator(operator, i);
+                }
+                default -> throw new RuntimeException("Unexpected token type " + type);
+            }
+        }
+
+        while (operatorCount > 0) {
+            if (peekOperator() == TokenBuffer.LEFT_BRACKET)
+                throw new ParseException("Unmatched left bracket");
+            reduce();
+        }
+
+        if (reductionError != null)
+            throw new ParseException(reductionError);
+        if (nodeCount == 0)
+            return new AstNode.StrLiteral("");
+        else if (nodeCount > 1)
+            throw new ParseException("Multiple expressions found");
+        else
+            return nodes[0];
+    }
+
+    private void reduce() {
+        operatorCount--;
+        if (reductionError != null)
+            return;
+
+        byte operator = operators[operatorCount];
+        switch (operator) {
+            case TokenBuffer.PLUS -> reduceBinary(PLUS_BODY);
+            case TokenBuffer.MINUS -> reduceBinary(MINUS_BODY);
+            case TokenBuffer.ASTERISK -> reduceBinary(ASTERISK_BODY);
+            case TokenBuffer.SLASH -> reduceBinary(SLASH_BODY);
+            case UNARY_MINUS -> {
+                if (requireNodes(1))
+                    pushNode(new AstNode.UnaryOp(popNode(), UMINUS_BODY));
+            }
+            case TokenBuffer.IDENT -> reduceFunction(operatorTokens[operatorCount]);
+            default -> throw new RuntimeException("Unexpected operator type " + operator);
+        }
+    }
+
+    private void reduceBinary(BinaryOperator<NodeValue> body) {
+        if (!requireNodes(2))
+            return;
+        var right = popNode();
+        var left = popNode();
+        pushNode(new AstNode.BinaryOp(left, right, body));
+    }
+
+    private void reduceFunction(int token) {
+        var name = tokens.getText(token);
+        var functionDecl = BUILT_INS.get(name);
+        if (functionDecl == null) {
+            reductionError = "Unknown symbol %s".formatted(name);
+            return;
+        }
+        if (!requireNodes(functionDecl.arity()))
+            return;
+        var args = new AstNode[functionDecl.arity()];
+        for (int k = args.length - 1; k >= 0; k--)
+            args[k] = popNode();
+        pushNode(new AstNode.FunctionCall(name, List.of(args), functionDecl.body()));
+    }
+
+    private boolean requireNodes(int count) {
+        if (nodeCount >= count)
+            return true;
+        reductionError = "Unexpected end of rpn";
+        return false;
+    }
+
+    private byte peekOperator() {
+        return operators[operatorCount - 1];
+    }
+
+    private void pushOperator(byte operator, int token) {
+        if (operatorCount == operators.length) {
+            operators = Arrays.copyOf(operators, operatorCount * 2);
+            operatorTokens = Arrays.copyOf(operatorTokens, operatorCount * 2);
+        }
+        operators[operatorCount] = operator;
+        operatorTokens[operatorCount] = token;
+        operatorCount++;
+    }
+
+    private void pushNode(AstNode node) {
+        if (nodeCount == nodes.length)
+            nodes = Arrays.copyOf(nodes, nodeCount * 2);
+        nodes[nodeCount++] = node;
+    }
+
+    private AstNode popNode() {
+        var node = nodes[--nodeCount];
+        nodes[nodeCount] = null;
+        return node;
+    }
+
+    private static int getPrecedence(byte operator) {
+        return switch (operator) {
+            case TokenBuffer.PLUS, TokenBuffer.MINUS -> 4;
+            case TokenBuffer.ASTERISK, TokenBuffer.SLASH -> 6;
+            case UNARY_MINUS -> 8;
+            case TokenBuffer.IDENT -> 10;
+            default -> 0;
+        };
+    }
+
+    private static boolean isOperand(byte type) {
+        return switch (type) {
+            case TokenBuffer.CELL_REF, TokenBuffer.NUMBER, TokenBuffer.STRING, TokenBuffer.RIGHT_BRACKET -> true;
+            default -> false;
+        };
+    }
+}
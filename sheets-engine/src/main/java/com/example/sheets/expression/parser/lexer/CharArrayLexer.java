@@ -0,0 +1,163 @@
+package com.example.sheets.expression.parser.lexer;
+
+import com.example.sheets.jfr.LexEvent;
+
+/**
+ * Single pass lexer over a {@code char[]} producing the same tokens and errors as {@link Lexer},
+ * but into a reusable {@link TokenBuffer} instead of token objects.
+ * Error positions are reported relative to the formula body, i.e. after the leading {@code =}.
+ */
+public final class CharArrayLexer {
+
+    private static final int ROW_INDEX_LENGTH_LIMIT = 8;
+    private static final int COLUMN_INDEX_LENGTH_LIMIT = 6;
+    private static final int LETTERS_COUNT = 26;
+
+    private final TokenBuffer tokens = new TokenBuffer();
+    private char[] s;
+    private int length;
+    private int start;
+    private int current;
+
+    public TokenBuffer tokenize(String formula) throws LexerException {
+        return tokenize(formula.toCharArray(), formula.length());
+    }
+
+    /**
+     * The returned buffer is owned by this lexer and is overwritten by the next call.
+     */
+    public TokenBuffer tokenize(char[] chars, int length) throws LexerException {
+        var event = new LexEvent();
+        event.begin();
+        s = chars;
+        this.length = length;
+        tokens.reset(chars);
+        scan();
+        if (event.shouldCommit()) {
+            event.formulaLength = length;
+            event.tokenCount = tokens.size();
+            event.commit();
+        }
+        return tokens;
+    }
+
+    private void scan() throws LexerException {
+        if (length == 0 || s[0] != '=') {
+            if (NumberScanner.isNumber(s, 0, length))
+                tokens.add(TokenBuffer.NUMBER, 0, length, TokenBuffer.packNumber(NumberScanner.parse(s, 0, length)));
+            else
+                tokens.add(TokenBuffer.STRING, 0, length, 0);
+            return;
+        }
+
+        current = 1;
+        while (current < length) {
+            start = current;
+            char c = s[current++];
+            switch (c) {
+                case '+' -> addFixed(TokenBuffer.PLUS);
+                case '-' -> addFixed(TokenBuffer.MINUS);
+                case '/' -> addFixed(TokenBuffer.SLASH);
+                case '*' -> addFixed(TokenBuffer.ASTERISK);
+                case '(' -> addFixed(TokenBuffer.LEFT_BRACKET);
+                case ')' -> addFixed(TokenBuffer.RIGHT_BRACKET);
+                case ',' -> addFixed(TokenBuffer.COMMA);
+                case ' ', '\t', '\n' -> {
+                }
+                case '"' -> scanString();
+                default -> {
+                    if (NumberScanner.isDigit(c)) {
+                        scanNumber();
+                    } else if (Character.isLetter(c) && Lexer.isSheetNameChar(c) && scanSheetCellRef()) {
+                        // Sheet!A1, already added
+                    } else if ('A' <= c && c <= 'Z') {
+                        scanCellRef();
+                    } else if (Character.isLetter(c)) {
+                        while (current < length && Character.isLetter(s[current]))
+                            current++;
+                        tokens.add(TokenBuffer.IDENT, start, current, 0);
+                    } else {
+                        throw new InvalidSymbol("Invalid symbol %c at position %d".formatted(c, start - 1));
+                    }
+                }
+            }
+        }
+    }
+
+    private void addFixed(byte type) {
+        tokens.add(type, start, current, 0);
+    }
+
+    private void scanString() throws LexerException {
+        boolean escaped = false;
+        while (current < length && (s[current] != '"' || current > start + 1 && s[current - 1] == '\\')) {
+            if (s[current] == '"')
+                escaped = true;
+            current++;
+        }
+        if (current >= length)
+            throw new NonTerminatedString("Non-terminated string found starting from position %d".formatted(start - 1));
+
+        current++;
+        tokens.add(TokenBuffer.STRING, start + 1, current - 1, escaped ? 1 : 0);
+    }
+
+    private void scanNumber() {
+        while (current < length && NumberScanner.isDigit(s[current]))
+            current++;
+        if (current < length && s[current] == '.') {
+            current++;
+            while (current < length && NumberScanner.isDigit(s[current]))
+                current++;
+        }
+        tokens.add(TokenBuffer.NUMBER, start, current, TokenBuffer.packNumber(NumberScanner.parse(s, start, current)));
+    }
+
+    /**
+     * Scans a {@code Sheet!A1} reference if the name starting at {@code start} is followed by {@code !}.
+     *
+     * @return false if it's not a sheet name, leaving the position unchanged
+     */
+    private boolean scanSheetCellRef() throws LexerException {
+        int sheetEnd = current;
+        while (sheetEnd < length && Lexer.isSheetNameChar(s[sheetEnd]))
+            sheetEnd++;
+        if (sheetEnd >= length || s[sheetEnd] != '!')
+            return false;
+
+        current = sheetEnd + 1;
+        if (current >= length || s[current] < 'A' || s[current] > 'Z') {
+            throw new InvalidCellReference("Expected cell reference after %s! at position %d"
+                .formatted(new String(s, start, sheetEnd - start), current - 1));
+        }
+        current++;
+        scanCellRef();
+        return true;
+    }
+
+    /**
+     * The token spans the sheet name too, if there's one in front of the reference.
+     */
+    private void scanCellRef() throws LexerException {
+        int tokenStart = start;
+        start = current - 1;
+        current--;
+        int columnIdx = 0;
+        for (int sectionLength = 0;
+             sectionLength < COLUMN_INDEX_LENGTH_LIMIT && current < length && 'A' <= s[current] && s[current] <= 'Z';
+             sectionLength++) {
+            columnIdx = columnIdx * LETTERS_COUNT + (s[current++] - 'A' + 1);
+        }
+
+        int rowIdx = 0;
+        for (int sectionLength = 0;
+             sectionLength < ROW_INDEX_LENGTH_LIMIT && current < length && NumberScanner.isDigit(s[current]);
+             sectionLength++) {
+            rowIdx = rowIdx * 10 + (s[current++] - '0');
+        }
+
+        if (current < length && Character.isLetterOrDigit(s[current]))
+            throw new InvalidCellReference("Unexpected symbol %s at position %d".formatted(s[current], current - 1));
+        tokens.add(TokenBuffer.CELL_REF, tokenStart, current, TokenBuffer.packCellRef(rowIdx - 1, columnIdx - 1));
+    }
+}
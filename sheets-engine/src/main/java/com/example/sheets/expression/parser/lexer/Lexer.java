@@ -1,10 +1,12 @@
 package com.example.sheets.expression.parser.lexer;
 
 import com.example.sheets.expression.parser.LetterIndexUtil;
+import com.example.sheets.jfr.LexEvent;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import static com.example.sheets.expression.parser.lexer.Lexer.TokenType.*;
 
@@ -20,16 +22,28 @@ public final class Lexer {
     }
 
     public List<Token> toTokens() throws LexerException {
+        var event = new LexEvent();
+        event.begin();
+        int formulaLength = s.length();
+        var result = tokenize();
+        if (event.shouldCommit()) {
+            event.formulaLength = formulaLength;
+            event.tokenCount = result.size();
+            event.commit();
+        }
+        return result;
+    }
+
+    private List<Token> tokenize() throws LexerException {
         start = 0;
         current = 0;
         tokens = new ArrayList<>();
 
         if (!s.startsWith("=")) {
-            try {
-                return Collections.singletonList(new NumberLiteral(Double.parseDouble(s)));
-            } catch (java.lang.NumberFormatException ignored) {
-                return Collections.singletonList(new StrLiteral(s));
-            }
+            var chars = s.toCharArray();
+            if (NumberScanner.isNumber(chars, 0, chars.length))
+                return Collections.singletonList(new NumberLiteral(NumberScanner.parse(chars, 0, chars.length)));
+            return Collections.singletonList(new StrLiteral(s));
         }
 
         s = s.substring(1);
@@ -60,7 +74,15 @@ public final class Lexer {
                 var numberLiteralValue = parseNumber();
                 tokens.add(new NumberLiteral(numberLiteralValue));
             } else if (Character.isLetter(c)) {
-                if ('A' <= c && c <= 'Z') {
+                int sheetEnd = isSheetNameChar(c) ? findSheetEnd(current) : -1;
+                if (sheetEnd >= 0) {
+                    var sheet = s.substring(start, sheetEnd);
+                    current = sheetEnd + 1;
+                    if (isEndOfString() || getNext() < 'A' || getNext() > 'Z')
+                        throw new InvalidCellReference("Expected cell reference after %s! at position %d".formatted(sheet, current));
+                    next();
+                    tokens.add(parseCellRef(sheet));
+                } else if ('A' <= c && c <= 'Z') {
                     tokens.add(parseCellRef());
                 } else {
                     var lexeme = parseIdent();
@@ -109,7 +131,25 @@ public final class Lexer {
     private static final int ROW_INDEX_LENGTH_LIMIT = 8;
     private static final int COLUMN_INDEX_LENGTH_LIMIT = 6;
 
+    /**
+     * @return position of the {@code !} ending a sheet name which starts before {@code from}, or -1 if there's none
+     */
+    private int findSheetEnd(int from) {
+        int i = from;
+        while (i < s.length() && isSheetNameChar(s.charAt(i)))
+            i++;
+        return i < s.length() && s.charAt(i) == '!' ? i : -1;
+    }
+
+    static boolean isSheetNameChar(char c) {
+        return 'a' <= c && c <= 'z' || 'A' <= c && c <= 'Z' || '0' <= c && c <= '9' || c == '_';
+    }
+
     private Token parseCellRef() throws LexerException {
+        return parseCellRef(null);
+    }
+
+    private Token parseCellRef(String sheet) throws LexerException {
         int rowIdx = 0;
         current--;
 
@@ -130,7 +170,7 @@ public final class Lexer {
 
         if (!isEndOfString() && Character.isLetterOrDigit(getNext()))
             throw new InvalidCellReference("Unexpected symbol %s at position %d".formatted(getNext(), current));
-        return new CellRef(rowIdx - 1, LetterIndexUtil.toNumberIndex(sb.toString()) - 1);
+        return new CellRef(sheet, rowIdx - 1, LetterIndexUtil.toNumberIndex(sb.toString()) - 1);
     }
 
     private String parseIdent() {
@@ -260,28 +300,43 @@ public final class Lexer {
     }
 
     public final static class CellRef extends Token {
+        private final String sheet;
         private int rowIdx, columnIdx;
 
         public CellRef(int rowIdx, int columnIdx) {
+            this(null, rowIdx, columnIdx);
+        }
+
+        /**
+         * @param sheet name before the {@code !} of a {@code Sheet!A1} reference, or null
+         */
+        public CellRef(String sheet, int rowIdx, int columnIdx) {
             super(CellRef);
+            this.sheet = sheet;
             this.rowIdx = rowIdx;
             this.columnIdx = columnIdx;
         }
 
         @Override
         public boolean equals(Object obj) {
-            return obj instanceof CellRef that && that.type.equals(type) && that.rowIdx == rowIdx && that.columnIdx == columnIdx;
+            return obj instanceof CellRef that && that.type.equals(type) && that.rowIdx == rowIdx && that.columnIdx == columnIdx
+                && Objects.equals(that.sheet, sheet);
         }
 
         @Override
         public String toString() {
             return "CellRef{" +
-                "rowIdx=" + rowIdx +
+                "sheet=" + sheet +
+                ", rowIdx=" + rowIdx +
                 ", columnIdx=" + columnIdx +
                 ", type=" + type +
                 '}';
         }
 
+        public String getSheet() {
+            return sheet;
+        }
+
         public int getRowIdx() {
             return rowIdx;
         }
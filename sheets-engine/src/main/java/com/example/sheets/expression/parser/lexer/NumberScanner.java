@@ -0,0 +1,149 @@
+package com.example.sheets.expression.parser.lexer;
+
+/**
+ * Recognizes numbers without throwing, so that text cells don't pay for a {@link java.lang.NumberFormatException}.
+ */
+public final class NumberScanner {
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] EXACT_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * @return whether {@link Double#parseDouble} accepts {@code s[start, end)}
+     */
+    public static boolean isNumber(char[] s, int start, int end) {
+        while (start < end && s[start] <= ' ')
+            start++;
+        while (end > start && s[end - 1] <= ' ')
+            end--;
+        int i = start;
+        if (i < end && (s[i] == '+' || s[i] == '-'))
+            i++;
+        if (i == end)
+            return false;
+        if (regionEquals(s, i, end, "NaN") || regionEquals(s, i, end, "Infinity"))
+            return true;
+        if (end - i > 2 && s[i] == '0' && (s[i + 1] == 'x' || s[i + 1] == 'X'))
+            return isHexNumber(s, i + 2, end);
+
+        int digits = 0;
+        while (i < end && isDigit(s[i])) {
+            i++;
+            digits++;
+        }
+        if (i < end && s[i] == '.') {
+            i++;
+            while (i < end && isDigit(s[i])) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0)
+            return false;
+        if (i < end && (s[i] == 'e' || s[i] == 'E')) {
+            i = skipExponent(s, i + 1, end);
+            if (i < 0)
+                return false;
+        }
+        return isSuffix(s, i, end);
+    }
+
+    public static boolean isNumber(String s) {
+        return isNumber(s.toCharArray(), 0, s.length());
+    }
+
+    /**
+     * Parses {@code s[start, end)} that {@link #isNumber} accepted. Plain decimals short enough to be represented
+     * exactly are converted directly, everything else goes through {@link Double#parseDouble}.
+     */
+    public static double parse(char[] s, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s[i] == '+' || s[i] == '-')) {
+            negative = s[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = s[i];
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (isDigit(c) && mantissa < MAX_EXACT_MANTISSA / 10) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction)
+                    fractionDigits++;
+            } else {
+                return Double.parseDouble(new String(s, start, end - start));
+            }
+        }
+        if (fractionDigits >= EXACT_POWERS_OF_TEN.length)
+            return Double.parseDouble(new String(s, start, end - start));
+
+        // Both operands are exact, so the single division is correctly rounded
+        double value = mantissa / EXACT_POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static boolean isHexNumber(char[] s, int i, int end) {
+        int digits = 0;
+        while (i < end && isHexDigit(s[i])) {
+            i++;
+            digits++;
+        }
+        if (i < end && s[i] == '.') {
+            i++;
+            while (i < end && isHexDigit(s[i])) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0 || i == end || (s[i] != 'p' && s[i] != 'P'))
+            return false;
+        i = skipExponent(s, i + 1, end);
+        return i >= 0 && isSuffix(s, i, end);
+    }
+
+    private static int skipExponent(char[] s, int i, int end) {
+        if (i < end && (s[i] == '+' || s[i] == '-'))
+            i++;
+        int digits = 0;
+        while (i < end && isDigit(s[i])) {
+            i++;
+            digits++;
+        }
+        return digits == 0 ? -1 : i;
+    }
+
+    private static boolean isSuffix(char[] s, int i, int end) {
+        if (i == end)
+            return true;
+        char c = s[i];
+        return i + 1 == end && (c == 'f' || c == 'F' || c == 'd' || c == 'D');
+    }
+
+    private static boolean regionEquals(char[] s, int start, int end, String expected) {
+        if (end - start != expected.length())
+            return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (s[start + i] != expected.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    static boolean isDigit(char c) {
+        return '0' <= c && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return isDigit(c) || 'a' <= c && c <= 'f' || 'A' <= c && c <= 'F';
+    }
+
+    private NumberScanner() {
+    }
+}
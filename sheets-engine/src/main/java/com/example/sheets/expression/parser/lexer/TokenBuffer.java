@@ -0,0 +1,161 @@
+package com.example.sheets.expression.parser.lexer;
+
+import com.example.sheets.expression.parser.LetterIndexUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable token stream kept in primitive parallel arrays, filled by {@link CharArrayLexer}.
+ * Token {@code i} spans {@code source[getStart(i), getEnd(i))}; numbers and cell references
+ * keep their decoded value in the payload slot, strings are only materialized on request.
+ */
+public final class TokenBuffer {
+    public static final byte PLUS = 0;
+    public static final byte MINUS = 1;
+    public static final byte SLASH = 2;
+    public static final byte ASTERISK = 3;
+    public static final byte LEFT_BRACKET = 4;
+    public static final byte RIGHT_BRACKET = 5;
+    public static final byte COMMA = 6;
+    public static final byte IDENT = 7;
+    public static final byte CELL_REF = 8;
+    public static final byte NUMBER = 9;
+    /**
+     * For string tokens the span excludes the quotes, and the payload tells whether it contains escaped quotes.
+     */
+    public static final byte STRING = 10;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private char[] source;
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private long[] payloads = new long[INITIAL_CAPACITY];
+    private int size;
+
+    void reset(char[] source) {
+        this.source = source;
+        size = 0;
+    }
+
+    void add(byte type, int start, int end, long payload) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+        }
+        types[size] = type;
+        starts[size] = start;
+        ends[size] = end;
+        payloads[size] = payload;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte getType(int i) {
+        return types[i];
+    }
+
+    public int getStart(int i) {
+        return starts[i];
+    }
+
+    public int getEnd(int i) {
+        return ends[i];
+    }
+
+    public char[] getSource() {
+        return source;
+    }
+
+    public double getNumber(int i) {
+        return Double.longBitsToDouble(payloads[i]);
+    }
+
+    public int getRow(int i) {
+        return (int) (payloads[i] >> Integer.SIZE);
+    }
+
+    public int getColumn(int i) {
+        return (int) payloads[i];
+    }
+
+    /**
+     * @return the sheet name of a {@code Sheet!A1} reference token, or null if it's not qualified
+     */
+    public String getSheet(int i) {
+        for (int k = starts[i]; k < ends[i]; k++) {
+            if (source[k] == '!')
+                return new String(source, starts[i], k - starts[i]);
+        }
+        return null;
+    }
+
+    public String getString(int i) {
+        var value = new String(source, starts[i], ends[i] - starts[i]);
+        return payloads[i] != 0 ? value.replace("\\\"", "\"") : value;
+    }
+
+    public String getText(int i) {
+        return new String(source, starts[i], ends[i] - starts[i]);
+    }
+
+    public boolean textEquals(int i, String expected) {
+        int length = ends[i] - starts[i];
+        if (length != expected.length())
+            return false;
+        for (int k = 0; k < length; k++) {
+            if (source[starts[i] + k] != expected.charAt(k))
+                return false;
+        }
+        return true;
+    }
+
+    static long packNumber(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    static long packCellRef(int rowIdx, int columnIdx) {
+        return ((long) rowIdx << Integer.SIZE) | (columnIdx & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Materializes the object tokens produced by {@link Lexer} for the same input.
+     */
+    public List<Lexer.Token> toTokens() {
+        var tokens = new ArrayList<Lexer.Token>(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(switch (types[i]) {
+                case PLUS -> new Lexer.Fixed(Lexer.TokenType.Plus);
+                case MINUS -> new Lexer.Fixed(Lexer.TokenType.Minus);
+                case SLASH -> new Lexer.Fixed(Lexer.TokenType.Slash);
+                case ASTERISK -> new Lexer.Fixed(Lexer.TokenType.Asterisk);
+                case LEFT_BRACKET -> new Lexer.Fixed(Lexer.TokenType.LeftBracket);
+                case RIGHT_BRACKET -> new Lexer.Fixed(Lexer.TokenType.RightBracket);
+                case COMMA -> new Lexer.Fixed(Lexer.TokenType.Comma);
+                case IDENT -> new Lexer.Ident(getText(i));
+                case CELL_REF -> new Lexer.CellRef(getSheet(i), getRow(i), getColumn(i));
+                case NUMBER -> new Lexer.NumberLiteral(getNumber(i));
+                case STRING -> new Lexer.StrLiteral(getString(i));
+                default -> throw new IllegalStateException("Unexpected token type " + types[i]);
+            });
+        }
+        return tokens;
+    }
+
+    /**
+     * Renders the cell reference token {@code i} back in the {@code A1} or {@code Sheet!A1} notation.
+     */
+    public String getCellRefText(int i) {
+        var sheet = getSheet(i);
+        return (sheet == null ? "" : sheet + "!") + LetterIndexUtil.toLetterIndex(getColumn(i) + 1) + (getRow(i) + 1);
+    }
+}
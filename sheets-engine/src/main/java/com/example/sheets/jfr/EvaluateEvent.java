@@ -0,0 +1,22 @@
+package com.example.sheets.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.example.sheets.Evaluate")
+@Label("Evaluate cell")
+@Description("CellManager.getValue call that had to compute values")
+@Category({"My Sheets", "Engine"})
+@StackTrace(false)
+public final class EvaluateEvent extends Event {
+    @Label("Row")
+    @Description("Zero-based row of the requested cell")
+    public int row;
+
+    @Label("Column")
+    @Description("Zero-based column of the requested cell")
+    public int column;
+
+    @Label("Evaluated Count")
+    @Description("Number of cells computed to answer the request")
+    public int evaluatedCount;
+}
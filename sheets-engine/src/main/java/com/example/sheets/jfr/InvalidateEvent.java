@@ -0,0 +1,18 @@
+package com.example.sheets.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.example.sheets.Invalidate")
+@Label("Invalidate dependants")
+@Description("CellManager.collectDirty bounded walk over the dependants of the edited cells")
+@Category({"My Sheets", "Engine"})
+@StackTrace(false)
+public final class InvalidateEvent extends Event {
+    @Label("Root Count")
+    @Description("Number of cells the walk started from")
+    public int rootCount;
+
+    @Label("Invalidated Count")
+    @Description("Number of cells reported dirty")
+    public int invalidatedCount;
+}
@@ -0,0 +1,18 @@
+package com.example.sheets.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.example.sheets.Lex")
+@Label("Lex formula")
+@Description("Lexer.toTokens run over a single formula")
+@Category({"My Sheets", "Engine"})
+@StackTrace(false)
+public final class LexEvent extends Event {
+    @Label("Formula Length")
+    @Description("Number of characters in the formula")
+    public int formulaLength;
+
+    @Label("Token Count")
+    @Description("Number of tokens produced")
+    public int tokenCount;
+}
@@ -0,0 +1,19 @@
+package com.example.sheets.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.example.sheets.Load")
+@Label("Load workbook")
+@Description("CellManager.load of a saved workbook")
+@Category({"My Sheets", "Engine"})
+@StackTrace(false)
+public final class LoadEvent extends Event {
+    @Label("Size")
+    @Description("Size of the saved workbook in UTF-8 bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Cell Count")
+    @Description("Number of cells loaded")
+    public int cellCount;
+}
@@ -0,0 +1,14 @@
+package com.example.sheets.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.example.sheets.Parse")
+@Label("Parse formula")
+@Description("AstParser.parse run over the tokens of a single formula")
+@Category({"My Sheets", "Engine"})
+@StackTrace(false)
+public final class ParseEvent extends Event {
+    @Label("Token Count")
+    @Description("Number of tokens parsed")
+    public int tokenCount;
+}
@@ -0,0 +1,19 @@
+package com.example.sheets.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.example.sheets.Save")
+@Label("Save workbook")
+@Description("CellManager.save of the current workbook")
+@Category({"My Sheets", "Engine"})
+@StackTrace(false)
+public final class SaveEvent extends Event {
+    @Label("Size")
+    @Description("Size of the saved workbook in UTF-8 bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Cell Count")
+    @Description("Number of cells saved")
+    public int cellCount;
+}
@@ -0,0 +1,43 @@
+package com.example.sheets.metrics;
+
+/**
+ * Receives the cost of engine operations. Instrumented code checks {@link #isEnabled()}
+ * before reading the clock, so the disabled implementation costs one volatile read per operation.
+ */
+public interface EngineMetrics {
+
+    EngineMetrics DISABLED = new EngineMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * A {@code getValue} call that had to compute values.
+     */
+    default void onEvaluation(int cellsEvaluated, int depth, long nanos) {
+    }
+
+    default void onUpdate(int cellsUpdated, long nanos) {
+    }
+
+    default void onInvalidation(int cellsInvalidated, long nanos) {
+    }
+
+    default void onParse(long lexNanos, long parseNanos) {
+    }
+
+    /**
+     * A formula looked up in the parse cache, parsed only if it's not a {@code hit}.
+     */
+    default void onParseCacheLookup(boolean hit) {
+    }
+
+    default void onCycle() {
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.sheets.metrics;
+
+public interface EngineMetricsMXBean {
+    long getEvaluationCount();
+
+    double getCellsEvaluatedMean();
+
+    long getCellsEvaluatedP99();
+
+    long getCellsEvaluatedMax();
+
+    long getDfsDepthP99();
+
+    long getDfsDepthMax();
+
+    long getEvaluationLatencyP50Micros();
+
+    long getEvaluationLatencyP99Micros();
+
+    long getUpdateCount();
+
+    long getCellsUpdated();
+
+    long getUpdateLatencyP50Micros();
+
+    long getUpdateLatencyP99Micros();
+
+    long getInvalidationCount();
+
+    double getInvalidatedCellsMean();
+
+    long getInvalidatedCellsP99();
+
+    long getInvalidatedCellsMax();
+
+    long getInvalidationLatencyP99Micros();
+
+    long getParseCount();
+
+    double getLexTimeMeanMicros();
+
+    double getParseTimeMeanMicros();
+
+    long getParseTimeP99Micros();
+
+    long getParseCacheHits();
+
+    long getParseCacheMisses();
+
+    double getParseCacheHitRate();
+
+    long getCycleHits();
+
+    void reset();
+}
@@ -0,0 +1,227 @@
+package com.example.sheets.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link EngineMetrics}, published as the {@code com.example.sheets:type=EngineMetrics} MBean.
+ */
+public final class JmxEngineMetrics implements EngineMetrics, EngineMetricsMXBean {
+    public static final String OBJECT_NAME = "com.example.sheets:type=EngineMetrics";
+
+    private final Histogram cellsEvaluated = new Histogram();
+    private final Histogram dfsDepth = new Histogram();
+    private final Histogram evaluationLatency = new Histogram();
+    private final Histogram updateLatency = new Histogram();
+    private final Histogram invalidatedCells = new Histogram();
+    private final Histogram invalidationLatency = new Histogram();
+    private final Histogram lexTime = new Histogram();
+    private final Histogram parseTime = new Histogram();
+    private final LongAdder cellsUpdated = new LongAdder();
+    private final LongAdder cycleHits = new LongAdder();
+    private final LongAdder parseCacheHits = new LongAdder();
+    private final LongAdder parseCacheMisses = new LongAdder();
+
+    /**
+     * Registers a new instance on the platform MBean server and makes it the current {@link Metrics} sink.
+     */
+    public static synchronized JmxEngineMetrics install() {
+        var metrics = new JmxEngineMetrics();
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(metrics, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register " + OBJECT_NAME, e);
+        }
+        Metrics.set(metrics);
+        return metrics;
+    }
+
+    @Override
+    public void onEvaluation(int cellsEvaluated, int depth, long nanos) {
+        this.cellsEvaluated.record(cellsEvaluated);
+        dfsDepth.record(depth);
+        evaluationLatency.record(nanos);
+    }
+
+    @Override
+    public void onUpdate(int cellsUpdated, long nanos) {
+        this.cellsUpdated.add(cellsUpdated);
+        updateLatency.record(nanos);
+    }
+
+    @Override
+    public void onInvalidation(int cellsInvalidated, long nanos) {
+        invalidatedCells.record(cellsInvalidated);
+        invalidationLatency.record(nanos);
+    }
+
+    @Override
+    public void onParse(long lexNanos, long parseNanos) {
+        lexTime.record(lexNanos);
+        parseTime.record(parseNanos);
+    }
+
+    @Override
+    public void onParseCacheLookup(boolean hit) {
+        (hit ? parseCacheHits : parseCacheMisses).increment();
+    }
+
+    @Override
+    public void onCycle() {
+        cycleHits.increment();
+    }
+
+    @Override
+    public long getEvaluationCount() {
+        return evaluationLatency.getCount();
+    }
+
+    @Override
+    public double getCellsEvaluatedMean() {
+        return cellsEvaluated.getMean();
+    }
+
+    @Override
+    public long getCellsEvaluatedP99() {
+        return cellsEvaluated.getPercentile(99);
+    }
+
+    @Override
+    public long getCellsEvaluatedMax() {
+        return cellsEvaluated.getMax();
+    }
+
+    @Override
+    public long getDfsDepthP99() {
+        return dfsDepth.getPercentile(99);
+    }
+
+    @Override
+    public long getDfsDepthMax() {
+        return dfsDepth.getMax();
+    }
+
+    @Override
+    public long getEvaluationLatencyP50Micros() {
+        return toMicros(evaluationLatency.getPercentile(50));
+    }
+
+    @Override
+    public long getEvaluationLatencyP99Micros() {
+        return toMicros(evaluationLatency.getPercentile(99));
+    }
+
+    @Override
+    public long getUpdateCount() {
+        return updateLatency.getCount();
+    }
+
+    @Override
+    public long getCellsUpdated() {
+        return cellsUpdated.sum();
+    }
+
+    @Override
+    public long getUpdateLatencyP50Micros() {
+        return toMicros(updateLatency.getPercentile(50));
+    }
+
+    @Override
+    public long getUpdateLatencyP99Micros() {
+        return toMicros(updateLatency.getPercentile(99));
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidatedCells.getCount();
+    }
+
+    @Override
+    public double getInvalidatedCellsMean() {
+        return invalidatedCells.getMean();
+    }
+
+    @Override
+    public long getInvalidatedCellsP99() {
+        return invalidatedCells.getPercentile(99);
+    }
+
+    @Override
+    public long getInvalidatedCellsMax() {
+        return invalidatedCells.getMax();
+    }
+
+    @Override
+    public long getInvalidationLatencyP99Micros() {
+        return toMicros(invalidationLatency.getPercentile(99));
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseTime.getCount();
+    }
+
+    @Override
+    public double getLexTimeMeanMicros() {
+        return lexTime.getMean() / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getParseTimeMeanMicros() {
+        return parseTime.getMean() / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getParseTimeP99Micros() {
+        return toMicros(parseTime.getPercentile(99));
+    }
+
+    @Override
+    public long getParseCacheHits() {
+        return parseCacheHits.sum();
+    }
+
+    @Override
+    public long getParseCacheMisses() {
+        return parseCacheMisses.sum();
+    }
+
+    @Override
+    public double getParseCacheHitRate() {
+        long hits = parseCacheHits.sum();
+        long lookups = hits + parseCacheMisses.sum();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public long getCycleHits() {
+        return cycleHits.sum();
+    }
+
+    @Override
+    public void reset() {
+        cellsEvaluated.reset();
+        dfsDepth.reset();
+        evaluationLatency.reset();
+        updateLatency.reset();
+        invalidatedCells.reset();
+        invalidationLatency.reset();
+        lexTime.reset();
+        parseTime.reset();
+        cellsUpdated.reset();
+        cycleHits.reset();
+        parseCacheHits.reset();
+        parseCacheMisses.reset();
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.sheets.metrics;
+
+/**
+ * Process-wide {@link EngineMetrics} sink. Disabled unless installed with {@link #set} or
+ * by starting the JVM with {@code -Dsheets.metrics=jmx}.
+ */
+public final class Metrics {
+
+    private static volatile EngineMetrics current = EngineMetrics.DISABLED;
+
+    static {
+        if ("jmx".equals(System.getProperty("sheets.metrics")))
+            JmxEngineMetrics.install();
+    }
+
+    public static EngineMetrics get() {
+        return current;
+    }
+
+    public static void set(EngineMetrics metrics) {
+        current = metrics;
+    }
+
+    private Metrics() {
+    }
+}
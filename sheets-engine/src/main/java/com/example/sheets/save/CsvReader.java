@@ -0,0 +1,156 @@
+package com.example.sheets.save;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma separated UTF-8 records from a channel through fixed size buffers, so that only the rows
+ * asked for are held in memory whatever the size of the input. Fields in quotes may contain commas,
+ * line breaks and doubled quotes. Lines end with {@code \n}, {@code \r\n} or {@code \r}.
+ * The channel is left open.
+ */
+public final class CsvReader {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private boolean endOfInput;
+    private boolean drained;
+    private boolean started;
+    private long byteCount;
+
+    public CsvReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize of both the bytes and the chars, at least the 4 bytes of the longest UTF-8 sequence
+     */
+    public CsvReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        bytes = ByteBuffer.allocate(Math.max(bufferSize, 4)).flip();
+        chars = CharBuffer.allocate(bufferSize).flip();
+    }
+
+    /**
+     * @return the fields of the next record, or null at the end of the input
+     */
+    public String[] readRow() throws IOException {
+        if (!started) {
+            started = true;
+            if (peek() == '\uFEFF')
+                read();
+        }
+        int c = read();
+        if (c < 0)
+            return null;
+
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (c == '"' && !quoted && field.isEmpty()) {
+                quoted = true;
+                readQuoted();
+            } else if (c == ',') {
+                endField();
+                quoted = false;
+            } else if (c < 0 || c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n')
+                    read();
+                endField();
+                return fields.toArray(String[]::new);
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * @return up to {@code maxRows} records, fewer only at the end of the input
+     */
+    public List<String[]> readRows(int maxRows) throws IOException {
+        var rows = new ArrayList<String[]>(Math.min(maxRows, 1024));
+        String[] row;
+        while (rows.size() < maxRows && (row = readRow()) != null)
+            rows.add(row);
+        return rows;
+    }
+
+    /**
+     * Bytes read from the channel so far.
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    private void readQuoted() throws IOException {
+        int c;
+        while ((c = read()) >= 0) {
+            if (c != '"') {
+                field.append((char) c);
+            } else if (peek() == '"') {
+                field.append('"');
+                read();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void endField() {
+        fields.add(field.toString());
+        field.setLength(0);
+    }
+
+    private int read() throws IOException {
+        if (!chars.hasRemaining() && !fill())
+            return -1;
+        return chars.get();
+    }
+
+    private int peek() throws IOException {
+        if (!chars.hasRemaining() && !fill())
+            return -1;
+        return chars.get(chars.position());
+    }
+
+    /**
+     * Decodes the next chunk of the input into {@code chars}.
+     *
+     * @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        chars.clear();
+        while (chars.position() == 0 && !drained) {
+            if (!endOfInput) {
+                bytes.compact();
+                int read = channel.read(bytes);
+                endOfInput = read < 0;
+                byteCount += Math.max(read, 0);
+                bytes.flip();
+            }
+            var result = decoder.decode(bytes, chars, endOfInput);
+            if (endOfInput && result.isUnderflow()) {
+                decoder.flush(chars);
+                drained = true;
+            }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+}
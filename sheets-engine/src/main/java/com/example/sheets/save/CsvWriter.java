@@ -0,0 +1,47 @@
+package com.example.sheets.save;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes comma separated records, the counterpart of {@link CsvReader}. Fields with commas, line breaks
+ * or quotes are put in quotes, doubling the quotes inside. Lines end with {@code \n}.
+ */
+public final class CsvWriter {
+
+    private final Writer out;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Encodes UTF-8 through a buffer of {@code bufferSize} chars. The channel is left open by {@link #flush()}.
+     */
+    public CsvWriter(WritableByteChannel channel, int bufferSize) {
+        this(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), bufferSize));
+    }
+
+    public void writeRow(String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0)
+                out.write(',');
+            out.write(escape(fields[i]));
+        }
+        out.write('\n');
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
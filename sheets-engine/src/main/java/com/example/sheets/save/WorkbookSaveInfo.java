@@ -0,0 +1,24 @@
+package com.example.sheets.save;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record WorkbookSaveInfo(List<SheetInfo> sheets) {
+
+    public String getType() {
+        return "WORKBOOK";
+    }
+
+    @JsonCreator
+    public WorkbookSaveInfo(
+        @JsonProperty("sheets") List<SheetInfo> sheets,
+        @JsonProperty("type") String type
+    ) {
+        this(sheets);
+    }
+
+    public record SheetInfo(String name, SparseSaveInfo cells) {
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.sheets.server;
+
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.save.SparseSaveInfo;
+import com.example.sheets.table.CellManager;
+import com.example.sheets.table.cell.CellAddress;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Embedded HTTP front end of the engine, bound to the loopback interface only.
+ * <ul>
+ *     <li>{@code PUT /workbooks/{name}} loads a workbook from its saved JSON</li>
+ *     <li>{@code GET /workbooks/{name}} returns the saved JSON</li>
+ *     <li>{@code POST /workbooks/{name}/cells} sets a batch of formulas: {@code {"cells": [{"row", "column", "formula"}]}}</li>
+ *     <li>{@code GET /workbooks/{name}/cells?row=&column=} reads a value</li>
+ *     <li>{@code GET /workbooks/{name}/range?fromRow=&fromColumn=&toRow=&toColumn=} reads a rectangle of values</li>
+ * </ul>
+ */
+public final class EvaluationServer {
+
+    private static final String PREFIX = "/workbooks/";
+    private static final int MAX_RANGE_SIZE = 1_000_000;
+
+    public record CellsRequest(List<SparseSaveInfo.CellInfo> cells) {
+    }
+
+    /**
+     * @param updated cells whose formula was changed
+     */
+    public record UpdateResponse(int updated, int dirty, boolean complete) {
+    }
+
+    /**
+     * @param error full message if the value is an error, otherwise {@code null}
+     */
+    public record ValueResponse(int row, int column, String formula, String value, String error) {
+    }
+
+    public record RangeResponse(int fromRow, int fromColumn, List<List<String>> values) {
+    }
+
+    private final ConcurrentMap<String, CellManager> workbooks = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public EvaluationServer(int port, int threadCount) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newFixedThreadPool(threadCount);
+        server.setExecutor(executor);
+        server.createContext(PREFIX, this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Any other {@link IOException} leaves the exchange open: the server then drops the connection, so a client
+     * never mistakes a response cut short for a complete one.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            route(exchange);
+        } catch (NoSuchElementException e) {
+            respond(exchange, 404, e.getMessage());
+        } catch (JsonProcessingException e) {
+            respond(exchange, 400, e.getOriginalMessage());
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            respond(exchange, 500, String.valueOf(e));
+        }
+        exchange.close();
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        var path = exchange.getRequestURI().getPath().substring(PREFIX.length()).split("/");
+        var method = exchange.getRequestMethod();
+        var name = path[0];
+        if (name.isEmpty() || path.length > 2) {
+            respond(exchange, 404, "Unknown resource");
+            return;
+        }
+
+        if (path.length == 1) {
+            switch (method) {
+                case "PUT" -> load(exchange, name);
+                case "GET" -> save(exchange, getWorkbook(name));
+                case default -> respond(exchange, 405, "Unsupported method " + method);
+            }
+            return;
+        }
+        switch (method + " " + path[1]) {
+            case "POST cells" -> update(exchange, getWorkbook(name));
+            case "GET cells" -> readCell(exchange, getWorkbook(name));
+            case "GET range" -> readRange(exchange, getWorkbook(name));
+            case default -> respond(exchange, 404, "Unknown resource");
+        }
+    }
+
+    private CellManager getWorkbook(String name) {
+        var cellManager = workbooks.get(name);
+        if (cellManager == null)
+            throw new NoSuchElementException("Unknown workbook " + name);
+        return cellManager;
+    }
+
+    private void load(HttpExchange exchange, String name) throws IOException {
+        var cellManager = new CellManager(0, 0);
+        cellManager.load(exchange.getRequestBody());
+        workbooks.put(name, cellManager);
+        respond(exchange, 200, mapper.writeValueAsString(
+            new UpdateResponse(cellManager.getFilledAddresses().size(), 0, true)));
+    }
+
+    /**
+     * Streams the saved workbook with a chunked response, as its length isn't known up front. Once the headers are
+     * sent it's too late for an error status, so a failure aborts the exchange instead.
+     */
+    private static void save(HttpExchange exchange, CellManager cellManager) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try {
+            cellManager.save(exchange.getResponseBody());
+        } catch (RuntimeException e) {
+            throw new IOException("Saving failed after the response started", e);
+        }
+    }
+
+    private void update(HttpExchange exchange, CellManager cellManager) throws IOException {
+        CellsRequest request = mapper.readValue(exchange.getRequestBody(), CellsRequest.class);
+        if (request == null || request.cells() == null)
+            throw new IllegalArgumentException("Missing cells");
+        var formulas = new LinkedHashMap<CellAddress, String>();
+        for (var cell : request.cells()) {
+            if (cell == null || cell.formula() == null)
+                throw new IllegalArgumentException("Each cell needs a row, a column and a formula");
+            var address = new CellAddress(cell.row(), cell.column());
+            if (cellManager.isAddressInvalid(address))
+                throw new IllegalArgumentException("Invalid address %s".formatted(address));
+            formulas.put(address, cell.formula());
+        }
+        int updated = (int) formulas.entrySet().stream()
+            .filter(entry -> !cellManager.getFormula(entry.getKey()).equals(entry.getValue()))
+            .count();
+        var result = cellManager.setValues(formulas);
+        respond(exchange, 200, mapper.writeValueAsString(
+            new UpdateResponse(updated, result.dirty().size(), result.complete())));
+    }
+
+    private void readCell(HttpExchange exchange, CellManager cellManager) throws IOException {
+        var query = parseQuery(exchange);
+        var address = new CellAddress(intParameter(query, "row"), intParameter(query, "column"));
+        if (cellManager.isAddressInvalid(address))
+            throw new IllegalArgumentException("Invalid address %s".formatted(address));
+        respond(exchange, 200, mapper.writeValueAsString(new ValueResponse(address.row(), address.column(),
+            cellManager.getFormula(address), cellManager.getVisibleValue(address),
+            cellManager.getValue(address) instanceof NodeValue.Error e ? e.message() : null)));
+    }
+
+    private void readRange(HttpExchange exchange, CellManager cellManager) throws IOException {
+        var query = parseQuery(exchange);
+        int fromRow = intParameter(query, "fromRow");
+        int fromColumn = intParameter(query, "fromColumn");
+        int toRow = intParameter(query, "toRow");
+        int toColumn = intParameter(query, "toColumn");
+        if (cellManager.isAddressInvalid(new CellAddress(fromRow, fromColumn))
+            || cellManager.isAddressInvalid(new CellAddress(toRow, toColumn))
+            || fromRow > toRow || fromColumn > toColumn)
+            throw new IllegalArgumentException("Invalid range");
+        if ((long) (toRow - fromRow + 1) * (toColumn - fromColumn + 1) > MAX_RANGE_SIZE)
+            throw new IllegalArgumentException("Range is larger than %d cells".formatted(MAX_RANGE_SIZE));
+
+        cellManager.evaluateRange(fromRow, fromColumn, toRow, toColumn);
+        var values = new ArrayList<List<String>>();
+        for (int i = fromRow; i <= toRow; i++) {
+            var row = new ArrayList<String>();
+            for (int j = fromColumn; j <= toColumn; j++) {
+                row.add(cellManager.getVisibleValue(new CellAddress(i, j)));
+            }
+            values.add(row);
+        }
+        respond(exchange, 200, mapper.writeValueAsString(new RangeResponse(fromRow, fromColumn, values)));
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        var query = exchange.getRequestURI().getRawQuery();
+        var parameters = new HashMap<String, String>();
+        if (query == null)
+            return parameters;
+        for (var pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0)
+                continue;
+            parameters.put(URLDecoder.decode(pair.substring(0, eq), UTF_8), URLDecoder.decode(pair.substring(eq + 1), UTF_8));
+        }
+        return parameters;
+    }
+
+    private static int intParameter(Map<String, String> query, String name) {
+        var value = query.get(name);
+        if (value == null)
+            throw new IllegalArgumentException("Missing parameter " + name);
+        return Integer.parseInt(value);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        var bytes = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", status == 200 ? "application/json" : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.sheets.server;
+
+import com.example.sheets.save.SparseSaveInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives a running {@link EvaluationServer} with a mix of batched writes and reads and reports latency percentiles:
+ * {@code LoadTestClient [--port P] [--requests N] [--concurrency C] [--rows R] [--batch B] [--write-ratio W]}
+ */
+public final class LoadTestClient {
+    private static final String WORKBOOK = "load-test";
+    private static final int COLUMN_COUNT = 3;
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static final double NANOS_IN_SECOND = 1e9;
+
+    public static void main(String[] args) throws Exception {
+        int port = 8585;
+        int requests = 10_000;
+        int concurrency = 16;
+        int rows = 1000;
+        int batch = 100;
+        double writeRatio = 0.1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (i + 1 == args.length) {
+                    usage();
+                    return;
+                }
+                switch (args[i]) {
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--requests" -> requests = Integer.parseInt(args[++i]);
+                    case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                    case "--rows" -> rows = Integer.parseInt(args[++i]);
+                    case "--batch" -> batch = Integer.parseInt(args[++i]);
+                    case "--write-ratio" -> writeRatio = Double.parseDouble(args[++i]);
+                    case default -> {
+                        usage();
+                        return;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // A value which isn't a number
+            usage();
+            return;
+        }
+
+        var base = "http://localhost:%d/workbooks/%s".formatted(port, WORKBOOK);
+        var client = HttpClient.newHttpClient();
+        var mapper = new ObjectMapper();
+
+        // A column of inputs, a column of their doubles and a running sum over them
+        var cells = new ArrayList<SparseSaveInfo.CellInfo>();
+        for (int i = 0; i < rows; i++) {
+            cells.add(new SparseSaveInfo.CellInfo(i, 0, String.valueOf(i)));
+            cells.add(new SparseSaveInfo.CellInfo(i, 1, "=A%d*2".formatted(i + 1)));
+            cells.add(new SparseSaveInfo.CellInfo(i, 2, i == 0 ? "=B1" : "=C%d+B%d".formatted(i, i + 1)));
+        }
+        var workbook = mapper.writeValueAsString(new SparseSaveInfo(rows, COLUMN_COUNT, cells));
+        send(client, HttpRequest.newBuilder(URI.create(base)).PUT(HttpRequest.BodyPublishers.ofString(workbook)).build());
+
+        final int totalRows = rows;
+        final int batchSize = batch;
+        final double writes = writeRatio;
+        var latencies = new long[requests];
+        var failures = new AtomicInteger();
+        var next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        var futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < concurrency; t++) {
+            futures.add(executor.submit(() -> {
+                var random = ThreadLocalRandom.current();
+                int i;
+                while ((i = next.getAndIncrement()) < latencies.length) {
+                    HttpRequest request;
+                    if (random.nextDouble() < writes) {
+                        var edits = new ArrayList<SparseSaveInfo.CellInfo>();
+                        for (int k = 0; k < batchSize; k++) {
+                            edits.add(new SparseSaveInfo.CellInfo(random.nextInt(totalRows), 0,
+                                String.valueOf(random.nextInt(1000))));
+                        }
+                        request = HttpRequest.newBuilder(URI.create(base + "/cells"))
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                mapper.writeValueAsString(new EvaluationServer.CellsRequest(edits))))
+                            .build();
+                    } else {
+                        request = HttpRequest.newBuilder(URI.create("%s/cells?row=%d&column=2"
+                            .formatted(base, random.nextInt(totalRows)))).GET().build();
+                    }
+                    long requestStart = System.nanoTime();
+                    if (!send(client, request))
+                        failures.incrementAndGet();
+                    latencies[i] = System.nanoTime() - requestStart;
+                }
+                return null;
+            }));
+        }
+        for (var future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("%d requests (%d failed), concurrency %d, %.0f requests/s%n",
+            requests, failures.get(), concurrency, requests / (elapsed / NANOS_IN_SECOND));
+        for (var percentile : List.of(50.0, 90.0, 99.0, 99.9, 100.0)) {
+            System.out.printf("p%-5s %8.2f ms%n", percentile, percentile(latencies, percentile) / NANOS_IN_MILLI);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: LoadTestClient [--port P] [--requests N] [--concurrency C] "
+            + "[--rows R] [--batch B] [--write-ratio W]");
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static boolean send(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+        var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            System.err.printf("%s %s: %d %s%n", request.method(), request.uri(), response.statusCode(), response.body());
+            return false;
+        }
+        return true;
+    }
+
+    private LoadTestClient() {
+    }
+}
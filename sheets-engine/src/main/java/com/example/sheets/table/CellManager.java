@@ -0,0 +1,1063 @@
+package com.example.sheets.table;
+
+import com.example.sheets.save.CsvReader;
+import com.example.sheets.save.CsvWriter;
+import com.example.sheets.save.SparseSaveInfo;
+import com.example.sheets.table.cell.Cell;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.CellStore;
+import com.example.sheets.table.cell.FormulaSnapshot;
+import com.example.sheets.table.cell.StoreBackend;
+import com.example.sheets.table.cell.ValueStore;
+import com.example.sheets.expression.parser.ast.AstNode;
+import com.example.sheets.expression.parser.ast.ColumnKernel;
+import com.example.sheets.expression.parser.ast.ErrorCode;
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.jfr.EvaluateEvent;
+import com.example.sheets.jfr.InvalidateEvent;
+import com.example.sheets.jfr.LoadEvent;
+import com.example.sheets.jfr.SaveEvent;
+import com.example.sheets.metrics.Metrics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Safe for many concurrent readers. Values are memoized per cell and validated lazily against a global
+ * revision: an edit only puts new cells to the store and bumps the revision, and a read at a newer
+ * revision checks the inputs of a memoized value before reusing it, recomputing only what has changed.
+ * Readers never block. Writers parse outside of the lock and serialize only on putting the cells.
+ * The sheets of a {@link Workbook} share a single revision and write lock.
+ */
+public final class CellManager {
+    /**
+     * @param dirty    cells whose visible value might have changed
+     * @param complete whether {@code dirty} covers all of them, or was cut at {@link #DIRTY_LIMIT}
+     */
+    public record UpdateResult(Set<CellAddress> dirty, boolean complete) {
+        private static final UpdateResult EMPTY = new UpdateResult(Collections.emptySet(), true);
+    }
+
+    /**
+     * Upper bound of the dependants walked after an edit to report dirty cells.
+     */
+    public static final int DIRTY_LIMIT = 4096;
+    private static final int PARALLEL_PARSE_THRESHOLD = 1024;
+    /**
+     * Shortest run of rows computed by a {@link ColumnKernel} rather than cell by cell.
+     */
+    private static final int KERNEL_MIN_ROWS = 8;
+    /**
+     * Longest run of rows computed by a {@link ColumnKernel} at once, longer ones are split, so the columns
+     * of a run fit in {@link RunColumns} reused by the thread.
+     */
+    private static final int KERNEL_MAX_ROWS = ValueStore.PAGE_SIZE;
+    private static final ThreadLocal<RunColumns> RUN_COLUMNS = ThreadLocal.withInitial(RunColumns::new);
+    private static final int CSV_CHUNK_ROWS = 1024;
+    private static final int LOAD_CHUNK_CELLS = 4096;
+    /**
+     * Chunks read ahead of the ones being put, which bounds the memory taken by an import or a load.
+     */
+    private static final int CHUNKS_AHEAD = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final ThreadLocal<DecimalFormat> numberFormat = ThreadLocal.withInitial(() -> new DecimalFormat("0.########"));
+    private final Lock writeLock;
+    private final AtomicLong revision;
+    private final StoreBackend backend;
+    /**
+     * Resolves {@code Sheet!A1} references, null for a sheet outside of any workbook.
+     */
+    private final Workbook workbook;
+    private final String sheetName;
+    private volatile CellStore cells;
+
+    public CellManager(int rowCount, int columnCount) {
+        this(rowCount, columnCount, StoreBackend.fromSystemProperties());
+    }
+
+    public CellManager(int rowCount, int columnCount, StoreBackend backend) {
+        this(rowCount, columnCount, backend, null, null, new AtomicLong(1), new ReentrantLock());
+    }
+
+    /**
+     * A sheet of {@code workbook}, sharing its revision and write lock with the other sheets.
+     */
+    CellManager(int rowCount, int columnCount, StoreBackend backend, Workbook workbook, String sheetName) {
+        this(rowCount, columnCount, backend, workbook, sheetName, workbook.getRevision(), workbook.getWriteLock());
+    }
+
+    private CellManager(int rowCount, int columnCount, StoreBackend backend, Workbook workbook, String sheetName,
+                        AtomicLong revision, Lock writeLock) {
+        this.backend = backend;
+        this.workbook = workbook;
+        this.sheetName = sheetName;
+        this.revision = revision;
+        this.writeLock = writeLock;
+        cells = new CellStore(rowCount, columnCount, backend);
+    }
+
+    public NodeValue getValue(CellAddress address) {
+        var cells = this.cells;
+        long revision = this.revision.get();
+        var values = cells.getValues();
+        var memoized = values.getVerified(address.row(), address.column(), revision);
+        if (memoized != null)
+            return memoized;
+
+        var metrics = Metrics.get();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        var event = new EvaluateEvent();
+        event.begin();
+        int evaluated = 0;
+        int depth = 0;
+        var toVerify = new ArrayDeque<CellAddress>();
+        var visitationStatus = new HashMap<CellAddress, Integer>();
+        final int NOT_VISITED = 0;
+        final int ENTERED = 1;
+        final int LEFT = 2;
+        NodeValue result = null;
+
+        toVerify.push(address);
+        while (!toVerify.isEmpty()) {
+            var top = toVerify.peek();
+            var status = visitationStatus.getOrDefault(top, NOT_VISITED);
+            var topValue = status == LEFT ? null : values.getVerified(top.row(), top.column(), revision);
+            if (status == LEFT || topValue != null) {
+                toVerify.pop();
+                if (top.equals(address) && result == null)
+                    result = topValue;
+                continue;
+            }
+            var topCell = cells.getCell(top);
+            if (status == ENTERED) {
+                visitationStatus.put(top, LEFT);
+                toVerify.pop();
+
+                var memoizedEntry = values.get(top.row(), top.column());
+                var verified = verify(cells, top, topCell, memoizedEntry, revision);
+                if (memoizedEntry == null || verified.value() != memoizedEntry.value())
+                    evaluated++;
+                if (top.equals(address))
+                    result = verified.value();
+                continue;
+            }
+            visitationStatus.put(top, ENTERED);
+
+            for (int i = 0, n = topCell.getReferenceCount(); i < n; i++) {
+                long reference = topCell.getReference(i);
+                if (cells.isInvalid(CellAddress.rowOf(reference), CellAddress.columnOf(reference))) {
+                    continue;
+                }
+                var toGo = CellAddress.unpack(reference);
+                if (visitationStatus.getOrDefault(toGo, NOT_VISITED) == ENTERED) {
+                    var error = ErrorCode.REFERENCE_CYCLE.error();
+                    values.publish(address.row(), address.column(), error, revision, revision);
+                    if (metrics.isEnabled()) {
+                        metrics.onCycle();
+                        metrics.onEvaluation(evaluated, depth, System.nanoTime() - start);
+                    }
+                    commit(event, address, evaluated);
+                    return error;
+                }
+                toVerify.push(toGo);
+            }
+            depth = Math.max(depth, toVerify.size());
+        }
+
+        if (result == null)
+            throw new RuntimeException("Unexpected emptiness of cell value");
+        if (metrics.isEnabled())
+            metrics.onEvaluation(evaluated, depth, System.nanoTime() - start);
+        commit(event, address, evaluated);
+        return result;
+    }
+
+    /**
+     * Brings the cell up to date at {@code revision}, once its references are. The memoized value is kept
+     * if none of the inputs changed after it was verified, and otherwise recomputed. A recomputed value
+     * equal to the memoized one keeps its {@code changedAt}, so the dependants don't need recomputing either.
+     *
+     * @return the published state
+     */
+    private ValueStore.Entry verify(CellStore cells, CellAddress address, Cell cell, ValueStore.Entry state, long revision) {
+        var values = cells.getValues();
+        long inputsChangedAt = cell.getChangedAt();
+        for (int i = 0, n = cell.getReferenceCount(); i < n; i++) {
+            long reference = cell.getReference(i);
+            int row = CellAddress.rowOf(reference);
+            int column = CellAddress.columnOf(reference);
+            if (cells.isInvalid(row, column))
+                continue;
+            long changedAt = values.getChangedAt(row, column);
+            // Might be uncomputed if a concurrent writer has replaced the cell since it was visited
+            inputsChangedAt = Math.max(inputsChangedAt, changedAt < 0 ? revision : changedAt);
+        }
+        if (workbook != null) {
+            for (var reference : cell.getExternalReferences())
+                inputsChangedAt = Math.max(inputsChangedAt, workbook.getChangedAt(reference, revision));
+        }
+
+        ValueStore.Entry verified;
+        if (state != null && inputsChangedAt <= state.verifiedAt()) {
+            verified = new ValueStore.Entry(state.value(), revision, state.changedAt());
+        } else {
+            var value = cell.getNodeValue((addr) -> {
+                if (addr.sheet() != null)
+                    return workbook != null ? workbook.getValue(addr) : ErrorCode.INCORRECT_REFERENCE.error(addr);
+                if (cells.isInvalid(addr.rowIndex(), addr.columnIndex()))
+                    return ErrorCode.INVALID_ADDRESS.error(addr);
+                var referenceValue = values.getVerified(addr.rowIndex(), addr.columnIndex(), Long.MIN_VALUE);
+                return referenceValue != null ? referenceValue : getValue(new CellAddress(addr));
+            });
+            long changedAt = state != null && state.value().equals(value) ? state.changedAt() : inputsChangedAt;
+            verified = new ValueStore.Entry(value, revision, changedAt);
+        }
+        values.publish(address.row(), address.column(), verified.value(), verified.verifiedAt(), verified.changedAt());
+        return verified;
+    }
+
+    /**
+     * Brings the values of the range up to date, both corners included, like {@link #getValue} of each cell.
+     * Runs of at least {@link #KERNEL_MIN_ROWS} rows of a column with the same arithmetic formula shifted by
+     * one row each are computed at once by their {@link ColumnKernel}, up to {@link #KERNEL_MAX_ROWS} at a time,
+     * the rest cell by cell. Empty cells are left to be read.
+     */
+    public void evaluateRange(int fromRow, int fromColumn, int toRow, int toColumn) {
+        var cells = this.cells;
+        long revision = this.revision.get();
+        toRow = Math.min(toRow, cells.getRowCount() - 1);
+        toColumn = Math.min(toColumn, cells.getColumnCount() - 1);
+        var runColumns = RUN_COLUMNS.get();
+        var cellsChangedAt = runColumns.changedAt;
+        for (int column = fromColumn; column <= toColumn; column++) {
+            int row = fromRow;
+            while (row <= toRow) {
+                var cell = cells.getCell(new CellAddress(row, column));
+                var kernel = cell.getColumnKernel();
+                int end = row + 1;
+                if (kernel != null && !kernel.readsColumn(column)) {
+                    cellsChangedAt[0] = cell.getChangedAt();
+                    for (; end <= toRow && end - row < KERNEL_MAX_ROWS; end++) {
+                        var next = cells.getCell(new CellAddress(end, column));
+                        if (!kernel.isShiftedBy(next.getColumnKernel(), end - row))
+                            break;
+                        cellsChangedAt[end - row] = next.getChangedAt();
+                    }
+                }
+                if (end - row >= KERNEL_MIN_ROWS) {
+                    evaluateRun(cells, kernel, column, row, end - row, runColumns, revision);
+                } else {
+                    for (int i = row; i < end; i++) {
+                        var address = new CellAddress(i, column);
+                        if (!cells.getCell(address).getFormula().isEmpty())
+                            getValue(address);
+                    }
+                }
+                row = end;
+            }
+        }
+    }
+
+    /**
+     * Brings the values of the cells up to date, like {@link #evaluateRange} over each run of consecutive rows
+     * of a column among them, so the empty part of a sparse table is never walked.
+     */
+    public void evaluate(Collection<CellAddress> addresses) {
+        // Ordered by column, then row, so the next row of a column is the next number
+        var packed = new long[addresses.size()];
+        int count = 0;
+        for (var address : addresses)
+            packed[count++] = (long) address.column() << 32 | address.row();
+        Arrays.sort(packed);
+        int from = 0;
+        while (from < count) {
+            int to = from + 1;
+            while (to < count && packed[to] == packed[to - 1] + 1)
+                to++;
+            int column = (int) (packed[from] >>> 32);
+            evaluateRange((int) packed[from], column, (int) packed[to - 1], column);
+            from = to;
+        }
+    }
+
+    /**
+     * Computes the rows of the column from {@code fromRow} on with the kernel of the first one, and publishes
+     * the values like {@link #verify} would. The rows with an input other than a number are left to {@link #getValue}.
+     *
+     * @param columns holding in {@code changedAt} the revision each cell of the run was put at, raised here
+     *                to the latest change of its inputs
+     */
+    private void evaluateRun(CellStore cells, ColumnKernel kernel, int column, int fromRow, int length,
+                             RunColumns columns, long revision) {
+        var metrics = Metrics.get();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        var values = cells.getValues();
+        var changedAt = columns.changedAt;
+        var inputs = columns.inputs(kernel.getReferenceCount());
+        var inputChangedAt = columns.inputChangedAt;
+        var missing = columns.missing;
+        var skip = columns.skip;
+        Arrays.fill(skip, 0, length, false);
+        for (int k = 0; k < kernel.getReferenceCount(); k++) {
+            int inputColumn = kernel.getColumn(k);
+            int firstRow = kernel.getRow(k);
+            values.getNumbers(inputColumn, firstRow, length, revision, inputs[k], inputChangedAt, missing);
+            for (int i = 0; i < length; i++) {
+                if (missing[i] && !skip[i]) {
+                    // Not computed yet, or not a number
+                    int inputRow = firstRow + i;
+                    if (cells.isInvalid(inputRow, inputColumn)
+                        || !(getValue(new CellAddress(inputRow, inputColumn)) instanceof NodeValue.Number number)) {
+                        skip[i] = true;
+                        continue;
+                    }
+                    inputs[k][i] = number.value();
+                    long computedAt = values.getChangedAt(inputRow, inputColumn);
+                    inputChangedAt[i] = computedAt < 0 ? revision : computedAt;
+                }
+                changedAt[i] = Math.max(changedAt[i], inputChangedAt[i]);
+            }
+        }
+
+        var results = columns.results;
+        kernel.evaluate(inputs, length, results);
+        int evaluated = values.publishNumbers(column, fromRow, length, results, changedAt, skip, revision);
+        for (int i = 0; i < length; i++) {
+            if (skip[i])
+                getValue(new CellAddress(fromRow + i, column));
+        }
+        if (metrics.isEnabled())
+            metrics.onEvaluation(evaluated, 1, System.nanoTime() - start);
+    }
+
+    /**
+     * Columns of a run of {@link #evaluateRange}, kept for the next one on the thread. {@link #getValue} never
+     * gets back to {@link #evaluateRange}, so a thread only ever needs one set.
+     */
+    private static final class RunColumns {
+        private final long[] changedAt = new long[KERNEL_MAX_ROWS];
+        private final long[] inputChangedAt = new long[KERNEL_MAX_ROWS];
+        private final boolean[] missing = new boolean[KERNEL_MAX_ROWS];
+        private final boolean[] skip = new boolean[KERNEL_MAX_ROWS];
+        private final double[] results = new double[KERNEL_MAX_ROWS];
+        private double[][] inputs = new double[0][];
+
+        private double[][] inputs(int count) {
+            if (inputs.length < count) {
+                int from = inputs.length;
+                inputs = Arrays.copyOf(inputs, count);
+                for (int k = from; k < count; k++)
+                    inputs[k] = new double[KERNEL_MAX_ROWS];
+            }
+            return inputs;
+        }
+    }
+
+    private static void commit(EvaluateEvent event, CellAddress address, int evaluated) {
+        if (event.shouldCommit()) {
+            event.row = address.row();
+            event.column = address.column();
+            event.evaluatedCount = evaluated;
+            event.commit();
+        }
+    }
+
+    public UpdateResult setValue(CellAddress address, String formula) {
+        return setValues(Map.of(address, formula));
+    }
+
+    /**
+     * Edits collected to be put by a single {@link #setValues} call on {@link #commit()}, so the dependants
+     * are rewired and walked once for all of them. A later edit of the same cell replaces an earlier one.
+     * Not thread safe.
+     */
+    public final class Batch {
+        private final Map<CellAddress, String> formulas = new LinkedHashMap<>();
+        private boolean committed;
+
+        private Batch() {
+        }
+
+        public Batch setValue(CellAddress address, String formula) {
+            if (committed)
+                throw new IllegalStateException("Batch is already committed");
+            formulas.put(address, formula);
+            return this;
+        }
+
+        public int size() {
+            return formulas.size();
+        }
+
+        public UpdateResult commit() {
+            if (committed)
+                throw new IllegalStateException("Batch is already committed");
+            committed = true;
+            return setValues(formulas);
+        }
+    }
+
+    public Batch beginBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Puts all the edits under a single revision and then collects the dirty cells in a single pass
+     * from all the edited cells, so overlapping dependants are walked only once.
+     * For a sheet of a workbook only the dirty cells of this sheet are reported, see {@link Workbook#setValues}.
+     */
+    public UpdateResult setValues(Map<CellAddress, String> formulas) {
+        var metrics = Metrics.get();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        var cells = this.cells;
+        var newCells = parse(cells, formulas);
+        if (newCells.isEmpty())
+            return UpdateResult.EMPTY;
+
+        var changed = new ArrayList<CellAddress>();
+        writeLock.lock();
+        try {
+            long next = revision.get() + 1;
+            newCells.entrySet().removeIf(entry -> !rewire(cells, entry.getKey(), entry.getValue()));
+            cells.setAll(newCells, next);
+            changed.addAll(newCells.keySet());
+            revision.set(next);
+        } finally {
+            writeLock.unlock();
+        }
+        if (changed.isEmpty())
+            return UpdateResult.EMPTY;
+
+        var result = collectDirty(cells, changed);
+
+        if (metrics.isEnabled())
+            metrics.onUpdate(changed.size(), System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Parses the formulas which differ from the current ones, on all cores for large batches.
+     */
+    private static Map<CellAddress, Cell> parse(CellStore cells, Map<CellAddress, String> formulas) {
+        if (formulas.size() < PARALLEL_PARSE_THRESHOLD) {
+            var newCells = new LinkedHashMap<CellAddress, Cell>();
+            formulas.forEach((address, formula) -> {
+                if (!cells.getCell(address).getFormula().equals(formula))
+                    newCells.put(address, Cell.of(formula));
+            });
+            return newCells;
+        }
+        return formulas.entrySet().parallelStream()
+            .filter(entry -> !cells.getCell(entry.getKey()).getFormula().equals(entry.getValue()))
+            .collect(Collectors.toMap(Map.Entry::getKey, entry -> Cell.of(entry.getValue())));
+    }
+
+    /**
+     * Moves the edges of the cell at {@code address} to the references of {@code newCell}, before putting it.
+     * Callers must hold the write lock.
+     *
+     * @return false if the formula is the same, as a concurrent writer has already put it
+     */
+    private boolean rewire(CellStore cells, CellAddress address, Cell newCell) {
+        var oldCell = cells.getCell(address);
+        if (!wire(cells, address, oldCell, newCell))
+            return false;
+        if (workbook != null) {
+            for (var reference : oldCell.getExternalReferences())
+                workbook.removeDependant(sheetName, address, reference);
+            for (var reference : newCell.getExternalReferences())
+                workbook.addDependant(sheetName, address, reference);
+        }
+        return true;
+    }
+
+    /**
+     * Moves the edges within the sheet, see {@link #rewire}.
+     */
+    private static boolean wire(CellStore cells, CellAddress address, Cell oldCell, Cell newCell) {
+        if (oldCell.getFormula().equals(newCell.getFormula()))
+            return false;
+
+        for (int i = 0; i < oldCell.getReferenceCount(); i++)
+            cells.removeDependant(address, CellAddress.unpack(oldCell.getReference(i)));
+        for (int i = 0; i < newCell.getReferenceCount(); i++)
+            cells.addDependant(address, CellAddress.unpack(newCell.getReference(i)));
+        return true;
+    }
+
+    /**
+     * @return the formulas and size of the table, unaffected by later edits
+     */
+    public FormulaSnapshot snapshot() {
+        return cells.snapshot();
+    }
+
+    /**
+     * Brings the formulas and size back to {@code snapshot}. Only the cells which differ from it are put,
+     * found by comparing the snapshots rather than the whole tables.
+     */
+    public UpdateResult restore(FormulaSnapshot snapshot) {
+        int rowDelta = snapshot.getRowCount() - getRowCount();
+        int columnDelta = snapshot.getColumnCount() - getColumnCount();
+        boolean resized = rowDelta != 0 || columnDelta != 0;
+        if (resized) {
+            extend(Math.max(rowDelta, 0), Math.max(columnDelta, 0));
+            shrink(Math.max(-rowDelta, 0), Math.max(-columnDelta, 0));
+        }
+
+        var formulas = new HashMap<CellAddress, String>();
+        snapshot().forEachChange(snapshot, formulas::put);
+        var result = setValues(formulas);
+        return resized ? new UpdateResult(result.dirty(), false) : result;
+    }
+
+    public String getVisibleValue(CellAddress address) {
+        return switch (getValue(address)) {
+            case NodeValue.Error error -> error.code().getLabel();
+            case NodeValue.Str s -> s.value();
+            case NodeValue.Number x -> numberFormat.get().format(x.value());
+        };
+    }
+
+    public String getFormula(CellAddress address) {
+        return cells.getCell(address).getFormula();
+    }
+
+    public List<CellAddress> getFilledAddresses() {
+        return cells.getFilledAddresses();
+    }
+
+    public boolean isAddressInvalid(AstNode.Reference.Address address) {
+        return isAddressInvalid(new CellAddress(address));
+    }
+
+    public boolean isAddressInvalid(CellAddress address) {
+        return cells.isInvalid(address);
+    }
+
+    public int getRowCount() {
+        return cells.getRowCount();
+    }
+
+    public int getColumnCount() {
+        return cells.getColumnCount();
+    }
+
+    public void load(String json) throws JsonProcessingException {
+        try (var parser = new ObjectMapper().createParser(json.getBytes(StandardCharsets.UTF_8))) {
+            load(parser);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the table by a saved sheet, read a cell at a time. Each chunk of cells is parsed on the common pool
+     * while the next ones are read, and put to a new store, so neither the text nor the whole list of cells is
+     * held in memory. The current table is only replaced once the whole input is read.
+     * The stream is left open.
+     */
+    public void load(InputStream in) throws IOException {
+        var mapper = new ObjectMapper();
+        mapper.getFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try (var parser = mapper.createParser(in)) {
+            load(parser);
+        }
+    }
+
+    private void load(JsonParser parser) throws IOException {
+        var event = new LoadEvent();
+        event.begin();
+        var loader = new Loader();
+        int rowCount = 0;
+        int columnCount = 0;
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new JsonParseException(parser, "Expected a saved sheet");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = parser.getCurrentName();
+                var token = parser.nextToken();
+                switch (field) {
+                    case "rowCount" -> rowCount = parser.getIntValue();
+                    case "columnCount" -> columnCount = parser.getIntValue();
+                    case "cells" -> {
+                        if (token != JsonToken.START_ARRAY)
+                            throw new JsonParseException(parser, "Expected a list of cells");
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            var cellInfo = parser.readValueAs(SparseSaveInfo.CellInfo.class);
+                            if (cellInfo == null || cellInfo.formula() == null)
+                                throw new JsonParseException(parser, "Each cell needs a row, a column and a formula");
+                            loader.add(cellInfo);
+                        }
+                    }
+                    case default -> parser.skipChildren();
+                }
+            }
+            loader.finish(rowCount, columnCount);
+        } finally {
+            loader.cancel();
+        }
+        if (event.shouldCommit()) {
+            event.bytes = parser.getCurrentLocation().getByteOffset();
+            event.cellCount = loader.cellCount;
+            event.commit();
+        }
+    }
+
+    void load(SparseSaveInfo saveInfo) {
+        var loader = new Loader();
+        try {
+            for (var cellInfo : saveInfo.cells())
+                loader.add(cellInfo);
+            loader.finish(saveInfo.rowCount(), saveInfo.columnCount());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            loader.cancel();
+        }
+    }
+
+    /**
+     * Puts the cells of a saved sheet to a new store a chunk at a time, with their edges, and swaps it in.
+     */
+    private final class Loader {
+        private final CellStore newCells = new CellStore(0, 0, backend);
+        private final long stamp = revision.get() + 1;
+        private final ArrayDeque<Future<Map<CellAddress, Cell>>> pending = new ArrayDeque<>();
+        /**
+         * Cells referencing other sheets, whose edges are added to the workbook on the swap.
+         */
+        private final Set<CellAddress> external = new HashSet<>();
+        private List<SparseSaveInfo.CellInfo> chunk = new ArrayList<>();
+        private int cellCount;
+
+        void add(SparseSaveInfo.CellInfo cellInfo) throws IOException {
+            chunk.add(cellInfo);
+            if (chunk.size() == LOAD_CHUNK_CELLS)
+                submit();
+        }
+
+        private void submit() throws IOException {
+            var cellInfos = chunk;
+            chunk = new ArrayList<>();
+            pending.add(ForkJoinPool.commonPool().submit(() -> toCells(cellInfos)));
+            while (pending.size() >= CHUNKS_AHEAD)
+                put(pending.poll());
+        }
+
+        private void put(Future<Map<CellAddress, Cell>> future) throws IOException {
+            var chunkCells = await(future, "loading");
+            chunkCells.entrySet().removeIf(entry -> {
+                var address = entry.getKey();
+                var cell = entry.getValue();
+                if (!wire(newCells, address, newCells.getCell(address), cell))
+                    return true;
+                if (workbook != null && !cell.getExternalReferences().isEmpty())
+                    external.add(address);
+                return false;
+            });
+            newCells.setAll(chunkCells, stamp);
+            cellCount += chunkCells.size();
+        }
+
+        void finish(int rowCount, int columnCount) throws IOException {
+            submit();
+            while (!pending.isEmpty())
+                put(pending.poll());
+            newCells.extend(rowCount, columnCount);
+
+            if (workbook != null)
+                workbook.removeDependants(sheetName);
+            writeLock.lock();
+            try {
+                cells = newCells;
+                for (var address : external) {
+                    for (var reference : newCells.getCell(address).getExternalReferences())
+                        workbook.addDependant(sheetName, address, reference);
+                }
+                revision.set(Math.max(revision.get() + 1, stamp));
+            } finally {
+                writeLock.unlock();
+            }
+            if (workbook != null)
+                workbook.touchDependants(sheetName);
+        }
+
+        void cancel() {
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private static Map<CellAddress, Cell> toCells(List<SparseSaveInfo.CellInfo> cellInfos) {
+        var cells = new HashMap<CellAddress, Cell>();
+        for (var cellInfo : cellInfos)
+            cells.put(new CellAddress(cellInfo.row(), cellInfo.column()), Cell.of(cellInfo.formula()));
+        return cells;
+    }
+
+    private static <T> T await(Future<T> future, String operation) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while " + operation);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @param literals cells of the numbers and texts of a chunk of rows
+     * @param formulas the fields starting with {@code =}
+     */
+    private record CsvChunk(Map<CellAddress, Cell> literals, Map<CellAddress, String> formulas) {
+    }
+
+    /**
+     * Replaces the table by comma separated rows, sized to fit them. The input is read through a fixed size
+     * buffer, and each chunk of rows is turned into cells on the common pool while the next ones are read.
+     * Numbers and texts become literal cells without going through the lexer, and are put straight to the store
+     * as nothing can depend on them yet. Formulas are put afterwards as a single edit. The current table is only
+     * replaced once the whole input is read.
+     *
+     * @throws IOException if reading fails, or the rows don't fit {@link CellStore#MAX_ROW_COUNT}
+     *                     by {@link CellStore#MAX_COLUMN_COUNT}
+     */
+    public void importCsv(ReadableByteChannel channel) throws IOException {
+        var event = new LoadEvent();
+        event.begin();
+        var reader = new CsvReader(channel);
+        var newCells = new CellStore(CellStore.MIN_ROW_COUNT, CellStore.MIN_COLUMN_COUNT, backend);
+        long stamp = revision.get() + 1;
+        var pending = new ArrayDeque<Future<CsvChunk>>();
+        var formulas = new HashMap<CellAddress, String>();
+        int rowCount = 0;
+        int columnCount = 0;
+        int cellCount = 0;
+        try {
+            List<String[]> rows;
+            while (!(rows = reader.readRows(CSV_CHUNK_ROWS)).isEmpty()) {
+                for (var row : rows)
+                    columnCount = Math.max(columnCount, row.length);
+                if (rowCount + rows.size() > CellStore.MAX_ROW_COUNT || columnCount > CellStore.MAX_COLUMN_COUNT) {
+                    throw new IOException("The table is limited to %d rows and %d columns"
+                        .formatted(CellStore.MAX_ROW_COUNT, CellStore.MAX_COLUMN_COUNT));
+                }
+                var chunk = rows;
+                int firstRow = rowCount;
+                pending.add(ForkJoinPool.commonPool().submit(() -> toCells(chunk, firstRow)));
+                rowCount += rows.size();
+                while (pending.size() >= CHUNKS_AHEAD)
+                    cellCount += put(newCells, pending.poll(), stamp, formulas);
+            }
+            while (!pending.isEmpty())
+                cellCount += put(newCells, pending.poll(), stamp, formulas);
+        } finally {
+            pending.forEach(future -> future.cancel(false));
+        }
+        newCells.extend(Math.max(rowCount - CellStore.MIN_ROW_COUNT, 0), Math.max(columnCount - CellStore.MIN_COLUMN_COUNT, 0));
+
+        if (workbook != null)
+            workbook.removeDependants(sheetName);
+        writeLock.lock();
+        try {
+            cells = newCells;
+            revision.set(Math.max(revision.get() + 1, stamp));
+        } finally {
+            writeLock.unlock();
+        }
+        setValues(formulas);
+        if (workbook != null)
+            workbook.touchDependants(sheetName);
+
+        if (event.shouldCommit()) {
+            event.bytes = reader.getByteCount();
+            event.cellCount = cellCount;
+            event.commit();
+        }
+    }
+
+    private static CsvChunk toCells(List<String[]> rows, int firstRow) {
+        var literals = new HashMap<CellAddress, Cell>();
+        var formulas = new HashMap<CellAddress, String>();
+        for (int i = 0; i < rows.size(); i++) {
+            var fields = rows.get(i);
+            for (int j = 0; j < fields.length; j++) {
+                var field = fields[j];
+                if (field.isEmpty())
+                    continue;
+                var address = new CellAddress(firstRow + i, j);
+                if (field.startsWith("="))
+                    formulas.put(address, field);
+                else
+                    literals.put(address, Cell.of(field));
+            }
+        }
+        return new CsvChunk(literals, formulas);
+    }
+
+    /**
+     * Waits for the chunk, puts its literals to {@code cells} and keeps its formulas for later.
+     *
+     * @return the number of cells of the chunk
+     */
+    private static int put(CellStore cells, Future<CsvChunk> future, long revision,
+                           Map<CellAddress, String> formulas) throws IOException {
+        var chunk = await(future, "importing");
+        cells.setAll(chunk.literals(), revision);
+        formulas.putAll(chunk.formulas());
+        return chunk.literals().size() + chunk.formulas().size();
+    }
+
+    /**
+     * Writes the visible values of the whole table as comma separated rows. Each chunk of rows is evaluated
+     * on all cores, see {@link #evaluateRange}, and then written through a fixed size buffer, so only a chunk
+     * of values is held at a time.
+     * The channel is left open.
+     */
+    public void exportCsv(WritableByteChannel channel) throws IOException {
+        var writer = new CsvWriter(channel, CsvReader.DEFAULT_BUFFER_SIZE);
+        int rowCount = getRowCount();
+        int columnCount = getColumnCount();
+        var chunk = new String[CSV_CHUNK_ROWS][];
+        for (int firstRow = 0; firstRow < rowCount; firstRow += CSV_CHUNK_ROWS) {
+            int first = firstRow;
+            int size = Math.min(CSV_CHUNK_ROWS, rowCount - firstRow);
+            IntStream.range(0, columnCount).parallel().forEach(j -> evaluateRange(first, j, first + size - 1, j));
+            IntStream.range(0, size).parallel().forEach(i -> {
+                var fields = new String[columnCount];
+                for (int j = 0; j < columnCount; j++)
+                    fields[j] = getVisibleValue(new CellAddress(first + i, j));
+                chunk[i] = fields;
+            });
+            for (int i = 0; i < size; i++)
+                writer.writeRow(chunk[i]);
+        }
+        writer.flush();
+    }
+
+    SparseSaveInfo toSaveInfo() {
+        return cells.toSaveInfo();
+    }
+
+    public String save() throws JsonProcessingException {
+        var event = new SaveEvent();
+        event.begin();
+        var writer = new StringWriter();
+        int cellCount;
+        try (var generator = new ObjectMapper().createGenerator(writer)) {
+            cellCount = write(generator);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        var json = writer.toString();
+        if (event.shouldCommit()) {
+            event.bytes = json.getBytes(StandardCharsets.UTF_8).length;
+            event.cellCount = cellCount;
+            event.commit();
+        }
+        return json;
+    }
+
+    /**
+     * Writes a snapshot of the sheet a cell at a time, in the format read by {@link #load(InputStream)}.
+     * The stream is left open.
+     */
+    public void save(OutputStream out) throws IOException {
+        var event = new SaveEvent();
+        event.begin();
+        var counting = new CountingOutputStream(out);
+        var mapper = new ObjectMapper();
+        mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        int cellCount;
+        try (var generator = mapper.createGenerator(counting)) {
+            cellCount = write(generator);
+        }
+        if (event.shouldCommit()) {
+            event.bytes = counting.getCount();
+            event.cellCount = cellCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the number of cells written
+     */
+    private int write(JsonGenerator generator) throws IOException {
+        var snapshot = snapshot();
+        generator.useDefaultPrettyPrinter();
+        generator.writeStartObject();
+        generator.writeNumberField("rowCount", snapshot.getRowCount());
+        generator.writeNumberField("columnCount", snapshot.getColumnCount());
+        generator.writeArrayFieldStart("cells");
+        int[] cellCount = {0};
+        try {
+            snapshot.forEach((address, formula) -> {
+                if (formula.isEmpty())
+                    return;
+                try {
+                    generator.writeObject(new SparseSaveInfo.CellInfo(address.row(), address.column(), formula));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                cellCount[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndArray();
+        generator.writeStringField("type", "SPARSE");
+        generator.writeEndObject();
+        return cellCount[0];
+    }
+
+    public void extend(int rowNumber, int columnNumber) {
+        int oldRowCount = getRowCount();
+        int oldColumnCount = getColumnCount();
+        cells.extend(rowNumber, columnNumber);
+        int rowCount = getRowCount();
+        int columnCount = getColumnCount();
+
+        var toTouch = new ArrayList<CellAddress>();
+        for (int i = 0; i < oldRowCount; i++) {
+            for (int j = 0; j < oldColumnCount; j++) {
+                var cellAddress = new CellAddress(i, j);
+                if (referencesAny(cells.getCell(cellAddress), oldRowCount, rowCount, oldColumnCount, columnCount)) {
+                    toTouch.add(cellAddress);
+                }
+            }
+        }
+        touchAll(toTouch);
+        if (workbook != null)
+            workbook.touchDependants(sheetName);
+    }
+
+    public void shrink(int rowNumber, int columnNumber) {
+        int oldRowCount = getRowCount();
+        int oldColumnCount = getColumnCount();
+        cells.shrink(rowNumber, columnNumber);
+        int rowCount = getRowCount();
+        int columnCount = getColumnCount();
+        var toTouch = new ArrayList<CellAddress>();
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < columnCount; j++) {
+                var cellAddress = new CellAddress(i, j);
+                if (referencesAny(cells.getCell(cellAddress), rowCount, oldRowCount, columnCount, oldColumnCount)) {
+                    toTouch.add(cellAddress);
+                }
+            }
+        }
+        touchAll(toTouch);
+        if (workbook != null)
+            workbook.touchDependants(sheetName);
+    }
+
+    /**
+     * Whether the cell references a row in {@code [fromRow, toRow)} or a column in {@code [fromColumn, toColumn)}.
+     */
+    private static boolean referencesAny(Cell cell, int fromRow, int toRow, int fromColumn, int toColumn) {
+        for (int i = 0, n = cell.getReferenceCount(); i < n; i++) {
+            long reference = cell.getReference(i);
+            int row = CellAddress.rowOf(reference);
+            int column = CellAddress.columnOf(reference);
+            if (row >= fromRow && row < toRow || column >= fromColumn && column < toColumn)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Makes the cells recompute, as the validity of the addresses they reference has changed.
+     */
+    private void touchAll(List<CellAddress> addresses) {
+        writeLock.lock();
+        try {
+            long next = revision.get() + 1;
+            touch(addresses, next);
+            revision.set(next);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Callers must hold the write lock, and publish {@code revision} only after this call.
+     */
+    void touch(Collection<CellAddress> addresses, long revision) {
+        var cells = this.cells;
+        for (var address : addresses)
+            cells.touch(address, revision);
+    }
+
+    /**
+     * Changed at of the memoized value, or -1 if it's not computed.
+     */
+    long getChangedAt(CellAddress address) {
+        return cells.getValues().getChangedAt(address.row(), address.column());
+    }
+
+    UpdateResult collectDirty(Collection<CellAddress> roots) {
+        return collectDirty(cells, roots);
+    }
+
+    /**
+     * Walks the dependants of the edited cells, stopping after {@link #DIRTY_LIMIT} cells.
+     * Only reports the cells for notification: the values themselves are validated lazily on read.
+     */
+    private static UpdateResult collectDirty(CellStore cells, Collection<CellAddress> roots) {
+        var metrics = Metrics.get();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        var event = new InvalidateEvent();
+        event.begin();
+        var toVisit = new ArrayDeque<>(roots);
+        var dirty = new HashSet<>(roots);
+        boolean complete = true;
+
+        while (!toVisit.isEmpty() && complete) {
+            var top = toVisit.pop();
+            cells.forEachDependant(top, dependant -> {
+                var dependantAddress = CellAddress.unpack(dependant);
+                if (dirty.size() < DIRTY_LIMIT && dirty.add(dependantAddress))
+                    toVisit.push(dependantAddress);
+            });
+            complete = dirty.size() < DIRTY_LIMIT;
+        }
+
+        if (metrics.isEnabled())
+            metrics.onInvalidation(dirty.size(), System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.rootCount = roots.size();
+            event.invalidatedCount = dirty.size();
+            event.commit();
+        }
+        return new UpdateResult(dirty, complete);
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.sheets.table;
+
+import com.example.sheets.table.cell.CellAddress;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Undo and redo history of the edits made through it to a {@link CellManager}. Every operation is kept
+ * as its reverse diff, the packed addresses and the formulas they had, plus the size of the table if it
+ * was resized. Undoing puts the formulas back as a single batch, so only the cells of the operation are
+ * invalidated. The history is capped by an estimate of its size in bytes, dropping the oldest operations.
+ * Consecutive edits of the same single cell are coalesced into one operation, until {@link #breakCoalescing}.
+ * <p>
+ * Not thread safe, meant to be driven by a single editor.
+ */
+public final class EditJournal {
+    public static final long DEFAULT_CAPACITY_BYTES = 32L << 20;
+
+    /**
+     * Rough footprint of a history entry and of a string header, for the accounting only.
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int STRING_OVERHEAD = 40;
+
+    private final CellManager cells;
+    private final long capacityBytes;
+    private final Deque<Diff> undo = new ArrayDeque<>();
+    private final Deque<Diff> redo = new ArrayDeque<>();
+    private long bytes;
+    /**
+     * Whether the latest undo entry is a single cell edit that the next edit of the same cell can extend.
+     */
+    private boolean coalescing;
+    /**
+     * Operations made through the journal, including undos, redos and clears.
+     */
+    private long changeCount;
+
+    /**
+     * @param addresses packed with {@link CellAddress#pack()}
+     * @param formulas  to put back at {@code addresses}
+     * @param rowCount  to resize back to, or -1 if the size is unchanged
+     */
+    private record Diff(long[] addresses, String[] formulas, int rowCount, int columnCount, long bytes) {
+        private static Diff of(long[] addresses, String[] formulas, int rowCount, int columnCount) {
+            long bytes = ENTRY_OVERHEAD + (long) addresses.length * (Long.BYTES + Integer.BYTES);
+            for (var formula : formulas)
+                bytes += STRING_OVERHEAD + formula.length();
+            return new Diff(addresses, formulas, rowCount, columnCount, bytes);
+        }
+
+        private boolean isResize() {
+            return rowCount >= 0;
+        }
+    }
+
+    public EditJournal(CellManager cells) {
+        this(cells, DEFAULT_CAPACITY_BYTES);
+    }
+
+    public EditJournal(CellManager cells, long capacityBytes) {
+        this.cells = cells;
+        this.capacityBytes = capacityBytes;
+    }
+
+    public CellManager.UpdateResult setValue(CellAddress address, String formula) {
+        if (coalescing && !undo.isEmpty()) {
+            var latest = undo.peek();
+            if (latest.addresses().length == 1 && latest.addresses()[0] == address.pack()) {
+                // Keeps the formula from before the first edit
+                changeCount++;
+                return cells.setValue(address, formula);
+            }
+        }
+        var formulas = Map.of(address, formula);
+        var diff = diffOf(formulas);
+        changeCount++;
+        var result = cells.setValues(formulas);
+        if (diff.addresses().length > 0) {
+            record(diff);
+            coalescing = true;
+        }
+        return result;
+    }
+
+    /**
+     * Makes the next edit a new operation, even of the same cell, as when the editor moves to another cell.
+     */
+    public void breakCoalescing() {
+        coalescing = false;
+    }
+
+    public CellManager.UpdateResult setValues(Map<CellAddress, String> formulas) {
+        var diff = diffOf(formulas);
+        changeCount++;
+        var result = cells.setValues(formulas);
+        if (diff.addresses().length > 0)
+            record(diff);
+        return result;
+    }
+
+    public void extend(int rowNumber, int columnNumber) {
+        var diff = Diff.of(new long[0], new String[0], cells.getRowCount(), cells.getColumnCount());
+        changeCount++;
+        cells.extend(rowNumber, columnNumber);
+        record(diff);
+    }
+
+    /**
+     * Extends the table and puts the formulas as a single operation, so both are undone at once.
+     * Formulas outside of the extended table are left out.
+     *
+     * @return the cells changed, incomplete if the table was resized
+     */
+    public CellManager.UpdateResult extendAndSetValues(int rowNumber, int columnNumber, Map<CellAddress, String> formulas) {
+        int rowCount = cells.getRowCount();
+        int columnCount = cells.getColumnCount();
+        changeCount++;
+        cells.extend(rowNumber, columnNumber);
+        var valid = new HashMap<>(formulas);
+        valid.keySet().removeIf(cells::isAddressInvalid);
+        var cellsDiff = diffOf(valid);
+        var result = cells.setValues(valid);
+        if (rowCount == cells.getRowCount() && columnCount == cells.getColumnCount()) {
+            if (cellsDiff.addresses().length > 0)
+                record(cellsDiff);
+            return result;
+        }
+        record(Diff.of(cellsDiff.addresses(), cellsDiff.formulas(), rowCount, columnCount));
+        return new CellManager.UpdateResult(result.dirty(), false);
+    }
+
+    /**
+     * Keeps the formulas of the cells cut off, to put them back on undo.
+     */
+    public void shrink(int rowNumber, int columnNumber) {
+        int rowCount = Math.max(cells.getRowCount() - rowNumber, 0);
+        int columnCount = Math.max(cells.getColumnCount() - columnNumber, 0);
+        var removed = new HashMap<CellAddress, String>();
+        for (var address : cells.getFilledAddresses()) {
+            if (address.row() >= rowCount || address.column() >= columnCount)
+                removed.put(address, "");
+        }
+        var cellsDiff = diffOf(removed);
+        var diff = Diff.of(cellsDiff.addresses(), cellsDiff.formulas(), cells.getRowCount(), cells.getColumnCount());
+        changeCount++;
+        cells.shrink(rowNumber, columnNumber);
+        record(diff);
+    }
+
+    public boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    /**
+     * @return the cells changed, incomplete if the table was resized; null if there's nothing to undo
+     */
+    public CellManager.UpdateResult undo() {
+        if (undo.isEmpty())
+            return null;
+        var diff = undo.pop();
+        bytes -= diff.bytes();
+        var inverse = inverseOf(diff);
+        changeCount++;
+        var result = apply(diff);
+        redo.push(inverse);
+        bytes += inverse.bytes();
+        coalescing = false;
+        trim();
+        return result;
+    }
+
+    /**
+     * @return the cells changed, incomplete if the table was resized; null if there's nothing to redo
+     */
+    public CellManager.UpdateResult redo() {
+        if (redo.isEmpty())
+            return null;
+        var diff = redo.pop();
+        bytes -= diff.bytes();
+        var inverse = inverseOf(diff);
+        changeCount++;
+        var result = apply(diff);
+        undo.push(inverse);
+        bytes += inverse.bytes();
+        coalescing = false;
+        trim();
+        return result;
+    }
+
+    public void clear() {
+        undo.clear();
+        redo.clear();
+        bytes = 0;
+        coalescing = false;
+        changeCount++;
+    }
+
+    /**
+     * Grows with every operation made through the journal, to tell whether the table may have changed since.
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Estimated bytes held by the history.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    private Diff diffOf(Map<CellAddress, String> formulas) {
+        var addresses = new long[formulas.size()];
+        var oldFormulas = new String[formulas.size()];
+        int size = 0;
+        for (var entry : formulas.entrySet()) {
+            var oldFormula = cells.getFormula(entry.getKey());
+            if (oldFormula.equals(entry.getValue()))
+                continue;
+            addresses[size] = entry.getKey().pack();
+            oldFormulas[size] = oldFormula;
+            size++;
+        }
+        if (size < addresses.length) {
+            addresses = Arrays.copyOf(addresses, size);
+            oldFormulas = Arrays.copyOf(oldFormulas, size);
+        }
+        return Diff.of(addresses, oldFormulas, -1, -1);
+    }
+
+    /**
+     * The diff putting back what {@code diff} is about to overwrite.
+     */
+    private Diff inverseOf(Diff diff) {
+        var formulas = new String[diff.addresses().length];
+        for (int i = 0; i < formulas.length; i++)
+            formulas[i] = cells.getFormula(CellAddress.unpack(diff.addresses()[i]));
+        if (!diff.isResize())
+            return Diff.of(diff.addresses(), formulas, -1, -1);
+        return Diff.of(diff.addresses(), formulas, cells.getRowCount(), cells.getColumnCount());
+    }
+
+    private CellManager.UpdateResult apply(Diff diff) {
+        if (diff.isResize()) {
+            cells.extend(Math.max(diff.rowCount() - cells.getRowCount(), 0), Math.max(diff.columnCount() - cells.getColumnCount(), 0));
+            cells.shrink(Math.max(cells.getRowCount() - diff.rowCount(), 0), Math.max(cells.getColumnCount() - diff.columnCount(), 0));
+        }
+        var formulas = new HashMap<CellAddress, String>(diff.addresses().length * 2);
+        for (int i = 0; i < diff.addresses().length; i++)
+            formulas.put(CellAddress.unpack(diff.addresses()[i]), diff.formulas()[i]);
+        var result = cells.setValues(formulas);
+        return diff.isResize() ? new CellManager.UpdateResult(result.dirty(), false) : result;
+    }
+
+    private void record(Diff diff) {
+        undo.push(diff);
+        bytes += diff.bytes();
+        redo.forEach(dropped -> bytes -= dropped.bytes());
+        redo.clear();
+        coalescing = false;
+        trim();
+    }
+
+    /**
+     * Drops the oldest operations, and the redo history only once nothing's left to undo.
+     */
+    private void trim() {
+        while (bytes > capacityBytes && !undo.isEmpty())
+            bytes -= undo.removeLast().bytes();
+        while (bytes > capacityBytes && !redo.isEmpty())
+            bytes -= redo.removeLast().bytes();
+    }
+}
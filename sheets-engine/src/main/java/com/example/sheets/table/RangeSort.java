@@ -0,0 +1,194 @@
+package com.example.sheets.table;
+
+import com.example.sheets.expression.parser.ReferenceShifter;
+import com.example.sheets.expression.parser.ast.ErrorCode;
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.table.cell.CellAddress;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Sorts the rows of a range by the computed values of one or more columns. Each key column is turned into
+ * an {@code int} rank per row, numbers before texts before errors, with empty cells last in either direction,
+ * and the ranks are ordered with {@link Arrays#parallelSort} on packed {@code long}s, so no value is compared
+ * twice through objects. Ties keep the order the rows had.
+ */
+public final class RangeSort {
+    /**
+     * Ranges of more rows are read and shifted on all cores.
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+    /**
+     * Case-insensitive first, as people expect from a spreadsheet, with the case breaking ties.
+     */
+    private static final Comparator<String> TEXT_ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    /**
+     * @param column index of the column in the table
+     */
+    public record Key(int column, boolean ascending) {
+    }
+
+    /**
+     * Formulas which put the rows {@code [fromRow, toRow]} of the columns {@code [fromColumn, toColumn]} in order,
+     * to be applied as a single edit. Each formula moved to another row has its references moved along,
+     * like a pasted one. Rows which stay in place are left out.
+     *
+     * @throws IllegalArgumentException if a key column is outside of the range, as its values wouldn't move
+     *                                  along with the rows
+     */
+    public static Map<CellAddress, String> sort(CellManager cells, int fromRow, int fromColumn, int toRow, int toColumn,
+                                                List<Key> keys) {
+        for (var key : keys) {
+            if (key.column() < fromColumn || key.column() > toColumn)
+                throw new IllegalArgumentException("Column %d of the key is outside of the sorted columns %d to %d"
+                    .formatted(key.column(), fromColumn, toColumn));
+        }
+        var order = order(cells, fromRow, toRow, keys);
+        int width = toColumn - fromColumn + 1;
+        var moved = new String[order.length][];
+        rows(order.length).forEach(i -> {
+            if (order[i] == i)
+                return;
+            var formulas = new String[width];
+            for (int j = 0; j < width; j++) {
+                var formula = cells.getFormula(new CellAddress(fromRow + order[i], fromColumn + j));
+                formulas[j] = ReferenceShifter.shift(formula, i - order[i], 0);
+            }
+            moved[i] = formulas;
+        });
+
+        var formulas = new HashMap<CellAddress, String>();
+        for (int i = 0; i < moved.length; i++) {
+            if (moved[i] == null)
+                continue;
+            for (int j = 0; j < width; j++)
+                formulas.put(new CellAddress(fromRow + i, fromColumn + j), moved[i][j]);
+        }
+        return formulas;
+    }
+
+    /**
+     * @return for each row of the sorted range from the top, the offset from {@code fromRow} of the row to put there
+     */
+    public static int[] order(CellManager cells, int fromRow, int toRow, List<Key> keys) {
+        int length = toRow - fromRow + 1;
+        var ranks = new int[length];
+        for (var key : keys) {
+            var keyRanks = ranks(cells, fromRow, length, key);
+            // The ranks so far and the ones of the key, ranked together
+            var pairs = new long[length];
+            for (int i = 0; i < length; i++)
+                pairs[i] = (long) ranks[i] << 32 | keyRanks[i];
+            var sorted = pairs.clone();
+            Arrays.parallelSort(sorted);
+            for (int i = 0; i < length; i++)
+                ranks[i] = lowerBound(sorted, pairs[i]);
+        }
+
+        var packed = new long[length];
+        for (int i = 0; i < length; i++)
+            packed[i] = (long) ranks[i] << 32 | i;
+        Arrays.parallelSort(packed);
+        var order = new int[length];
+        for (int i = 0; i < length; i++)
+            order[i] = (int) packed[i];
+        return order;
+    }
+
+    /**
+     * @return for each row, a rank which orders the values of the key column the way the key asks for
+     */
+    private static int[] ranks(CellManager cells, int fromRow, int length, Key key) {
+        int column = key.column();
+        cells.evaluateRange(fromRow, column, fromRow + length - 1, column);
+        var values = new NodeValue[length];
+        rows(length).forEach(i -> values[i] = cells.getValue(new CellAddress(fromRow + i, column)));
+
+        int numberCount = 0;
+        int textCount = 0;
+        for (var value : values) {
+            if (value instanceof NodeValue.Number)
+                numberCount++;
+            else if (value instanceof NodeValue.Str s && !s.value().isEmpty())
+                textCount++;
+        }
+        var numbers = new double[numberCount];
+        var texts = new String[textCount];
+        numberCount = 0;
+        textCount = 0;
+        for (var value : values) {
+            if (value instanceof NodeValue.Number x)
+                numbers[numberCount++] = x.value();
+            else if (value instanceof NodeValue.Str s && !s.value().isEmpty())
+                texts[textCount++] = s.value();
+        }
+        Arrays.parallelSort(numbers);
+        Arrays.parallelSort(texts, TEXT_ORDER);
+
+        int errors = numbers.length + texts.length;
+        int empty = errors + ErrorCode.values().length;
+        var ranks = new int[length];
+        for (int i = 0; i < length; i++) {
+            int rank = switch (values[i]) {
+                case NodeValue.Number x -> lowerBound(numbers, x.value());
+                case NodeValue.Str s -> s.value().isEmpty() ? empty : numbers.length + lowerBound(texts, s.value());
+                case NodeValue.Error e -> errors + e.code().ordinal();
+            };
+            ranks[i] = key.ascending() || rank == empty ? rank : empty - 1 - rank;
+        }
+        return ranks;
+    }
+
+    private static IntStream rows(int length) {
+        var rows = IntStream.range(0, length);
+        return length < PARALLEL_THRESHOLD ? rows : rows.parallel();
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(sorted[middle], value) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private static int lowerBound(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private static int lowerBound(String[] sorted, String value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (TEXT_ORDER.compare(sorted[middle], value) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private RangeSort() {
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.sheets.table;
+
+import com.example.sheets.expression.parser.ReferenceShifter;
+import com.example.sheets.table.cell.CellAddress;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Rectangular ranges of formulas as tab separated text, the way spreadsheets exchange them over the clipboard.
+ * Fields with tabs, line breaks or quotes are put in quotes, doubling the quotes inside.
+ */
+public final class RangeTransfer {
+    /**
+     * Ranges of more cells are shifted on all cores.
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * @return the formulas of the range, both corners included
+     */
+    public static String copy(CellManager cells, int fromRow, int fromColumn, int toRow, int toColumn) {
+        return copy(cells, IntStream.rangeClosed(fromRow, toRow).toArray(), fromColumn, toColumn);
+    }
+
+    /**
+     * @return the formulas of the columns of the given rows, one line per row in the order given
+     */
+    public static String copy(CellManager cells, int[] rows, int fromColumn, int toColumn) {
+        var sb = new StringBuilder();
+        for (int row : rows) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                if (column > fromColumn)
+                    sb.append('\t');
+                appendField(sb, cells.getFormula(new CellAddress(row, column)));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void appendField(StringBuilder sb, String field) {
+        boolean quoted = false;
+        for (int i = 0; i < field.length() && !quoted; i++) {
+            char c = field.charAt(i);
+            quoted = c == '\t' || c == '\n' || c == '\r' || c == '"';
+        }
+        if (!quoted) {
+            sb.append(field);
+            return;
+        }
+        sb.append('"').append(field.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * @return the rows of fields, the line break after the last row is optional
+     */
+    public static List<String[]> parse(String text) {
+        var rows = new ArrayList<String[]>();
+        var row = new ArrayList<String>();
+        var field = new StringBuilder();
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            if (text.charAt(i) == '"' && field.isEmpty()) {
+                i++;
+                while (i < length) {
+                    char c = text.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < length && text.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                continue;
+            }
+            char c = text.charAt(i++);
+            if (c == '\t') {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i < length && text.charAt(i) == '\n')
+                    i++;
+                row.add(field.toString());
+                field.setLength(0);
+                rows.add(row.toArray(String[]::new));
+                row.clear();
+            } else {
+                field.append(c);
+            }
+        }
+        if (!field.isEmpty() || !row.isEmpty()) {
+            row.add(field.toString());
+            rows.add(row.toArray(String[]::new));
+        }
+        return rows;
+    }
+
+    /**
+     * Formulas of {@code rows} put from the anchor on, with the references moved by the deltas.
+     */
+    public static Map<CellAddress, String> paste(List<String[]> rows, int anchorRow, int anchorColumn,
+                                                 int rowDelta, int columnDelta) {
+        int cellCount = rows.stream().mapToInt(fields -> fields.length).sum();
+        var shifted = new String[rows.size()][];
+        var indices = IntStream.range(0, rows.size());
+        (cellCount < PARALLEL_THRESHOLD ? indices : indices.parallel()).forEach(i -> {
+            var fields = rows.get(i);
+            var formulas = new String[fields.length];
+            for (int j = 0; j < fields.length; j++)
+                formulas[j] = ReferenceShifter.shift(fields[j], rowDelta, columnDelta);
+            shifted[i] = formulas;
+        });
+
+        var formulas = new HashMap<CellAddress, String>(cellCount * 4 / 3 + 1);
+        for (int i = 0; i < shifted.length; i++) {
+            for (int j = 0; j < shifted[i].length; j++)
+                formulas.put(new CellAddress(anchorRow + i, anchorColumn + j), shifted[i][j]);
+        }
+        return formulas;
+    }
+
+    private RangeTransfer() {
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.sheets.table;
+
+import com.example.sheets.expression.parser.ast.AstNode;
+import com.example.sheets.expression.parser.ast.ErrorCode;
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.jfr.LoadEvent;
+import com.example.sheets.jfr.SaveEvent;
+import com.example.sheets.save.SparseSaveInfo;
+import com.example.sheets.save.WorkbookSaveInfo;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.StoreBackend;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Named sheets referencing each other with {@code Sheet!A1}. The sheets share a single revision, so a value
+ * memoized by one sheet is validated against the cells of another just like against its own.
+ * Each sheet keeps its own dependency graph, and only the edges between sheets are tracked here,
+ * so an edit walks the other sheets only if it reaches them through such an edge.
+ * Sheets of a loaded workbook are only parsed when they're first asked for, either directly
+ * or by evaluating a reference to them.
+ */
+public final class Workbook {
+    public static final String DEFAULT_SHEET = "Sheet1";
+    private static final Pattern SHEET_NAME = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+    /**
+     * Cross-sheet references being evaluated by the current thread, as the cycle detection
+     * of a {@link CellManager} doesn't see past its own sheet.
+     */
+    private static final ThreadLocal<Set<AstNode.Reference.Address>> EVALUATING = ThreadLocal.withInitial(HashSet::new);
+
+    private final AtomicLong revision = new AtomicLong(1);
+    private final Lock writeLock = new ReentrantLock();
+    private final StoreBackend backend;
+    /**
+     * Replaced as a whole on adding or removing a sheet, in the order of the sheets.
+     */
+    private volatile Map<String, Sheet> sheets = Collections.emptyMap();
+    /**
+     * Sheet name to the cells of that sheet referenced from other sheets, to the cells referencing them.
+     */
+    private final Map<String, Map<CellAddress, Set<SheetCell>>> dependants = new ConcurrentHashMap<>();
+
+    private record SheetCell(String sheet, CellAddress address) {
+    }
+
+    private static final class Sheet {
+        private final String name;
+        /**
+         * Cells of a sheet which isn't loaded yet.
+         */
+        private volatile SparseSaveInfo saveInfo;
+        private volatile CellManager manager;
+
+        private Sheet(String name, SparseSaveInfo saveInfo) {
+            this.name = name;
+            this.saveInfo = saveInfo;
+        }
+    }
+
+    public Workbook() {
+        this(StoreBackend.fromSystemProperties());
+    }
+
+    public Workbook(StoreBackend backend) {
+        this.backend = backend;
+    }
+
+    public static boolean isValidSheetName(String name) {
+        return name != null && SHEET_NAME.matcher(name).matches();
+    }
+
+    public List<String> getSheetNames() {
+        return List.copyOf(sheets.keySet());
+    }
+
+    /**
+     * @return the sheet, loading it if needed, or null if there's no sheet with this name
+     */
+    public CellManager getSheet(String name) {
+        var sheet = sheets.get(name);
+        return sheet == null ? null : load(sheet);
+    }
+
+    public boolean isLoaded(String name) {
+        var sheet = sheets.get(name);
+        return sheet != null && sheet.manager != null;
+    }
+
+    public CellManager addSheet(String name, int rowCount, int columnCount) {
+        if (!isValidSheetName(name))
+            throw new IllegalArgumentException("Invalid sheet name " + name);
+        Sheet sheet;
+        synchronized (this) {
+            if (sheets.containsKey(name))
+                throw new IllegalArgumentException("Sheet %s already exists".formatted(name));
+            sheet = new Sheet(name, new SparseSaveInfo(rowCount, columnCount, List.of()));
+            var newSheets = new LinkedHashMap<>(sheets);
+            newSheets.put(name, sheet);
+            sheets = newSheets;
+        }
+        // References to the sheet were errors until now
+        touchDependants(name);
+        return load(sheet);
+    }
+
+    public void removeSheet(String name) {
+        synchronized (this) {
+            if (!sheets.containsKey(name))
+                return;
+            var newSheets = new LinkedHashMap<>(sheets);
+            newSheets.remove(name);
+            sheets = newSheets;
+        }
+        removeDependants(name);
+        touchDependants(name);
+    }
+
+    public Map<String, CellManager.UpdateResult> setValue(String sheet, CellAddress address, String formula) {
+        return setValues(sheet, Map.of(address, formula));
+    }
+
+    /**
+     * Edits a single sheet, and then follows the edges to the other loaded sheets to collect their dirty cells too.
+     *
+     * @return dirty cells of each sheet reached, the edited one first
+     */
+    public Map<String, CellManager.UpdateResult> setValues(String sheet, Map<CellAddress, String> formulas) {
+        var manager = getSheet(sheet);
+        if (manager == null)
+            throw new IllegalArgumentException("No sheet " + sheet);
+
+        var results = new LinkedHashMap<String, CellManager.UpdateResult>();
+        var toVisit = new ArrayDeque<String>();
+        results.put(sheet, manager.setValues(formulas));
+        toVisit.add(sheet);
+        while (!toVisit.isEmpty()) {
+            var name = toVisit.poll();
+            var result = results.get(name);
+            if (!result.complete()) {
+                markIncomplete(results);
+                break;
+            }
+
+            var roots = new HashMap<String, List<CellAddress>>();
+            var referenced = dependants.getOrDefault(name, Collections.emptyMap());
+            for (var address : result.dirty()) {
+                for (var dependant : referenced.getOrDefault(address, Collections.emptySet())) {
+                    var reached = results.get(dependant.sheet());
+                    if (isLoaded(dependant.sheet()) && (reached == null || !reached.dirty().contains(dependant.address())))
+                        roots.computeIfAbsent(dependant.sheet(), k -> new ArrayList<>()).add(dependant.address());
+                }
+            }
+            roots.forEach((dependantSheet, addresses) -> {
+                var dirty = getSheet(dependantSheet).collectDirty(addresses);
+                results.merge(dependantSheet, dirty, Workbook::union);
+                if (!toVisit.contains(dependantSheet))
+                    toVisit.add(dependantSheet);
+            });
+        }
+        return results;
+    }
+
+    private static CellManager.UpdateResult union(CellManager.UpdateResult a, CellManager.UpdateResult b) {
+        var dirty = new HashSet<>(a.dirty());
+        dirty.addAll(b.dirty());
+        return new CellManager.UpdateResult(dirty, a.complete() && b.complete() && dirty.size() < CellManager.DIRTY_LIMIT);
+    }
+
+    /**
+     * The dirty cells of the other sheets can't be known if the walk was cut in some sheet.
+     */
+    private void markIncomplete(Map<String, CellManager.UpdateResult> results) {
+        for (var name : sheets.keySet()) {
+            if (isLoaded(name)) {
+                var result = results.get(name);
+                results.put(name, new CellManager.UpdateResult(result == null ? Collections.emptySet() : result.dirty(), false));
+            }
+        }
+    }
+
+    public void load(String json) throws JsonProcessingException {
+        var event = new LoadEvent();
+        event.begin();
+        var mapper = new ObjectMapper();
+        var tree = mapper.readTree(json);
+        var newSheets = new LinkedHashMap<String, Sheet>();
+        if ("WORKBOOK".equals(tree.path("type").asText())) {
+            var saveInfo = mapper.treeToValue(tree, WorkbookSaveInfo.class);
+            for (var sheetInfo : saveInfo.sheets()) {
+                if (!isValidSheetName(sheetInfo.name()) || newSheets.containsKey(sheetInfo.name()))
+                    throw new IllegalArgumentException("Invalid sheet name " + sheetInfo.name());
+                newSheets.put(sheetInfo.name(), new Sheet(sheetInfo.name(), sheetInfo.cells()));
+            }
+        } else {
+            var saveInfo = mapper.treeToValue(tree, SparseSaveInfo.class);
+            newSheets.put(DEFAULT_SHEET, new Sheet(DEFAULT_SHEET, saveInfo));
+        }
+
+        // Counted before publishing, as a concurrent getSheet may drop the saveInfo of a sheet once it's visible
+        int cellCount = newSheets.values().stream().mapToInt(sheet -> sheet.saveInfo.cells().size()).sum();
+        writeLock.lock();
+        try {
+            dependants.clear();
+            sheets = newSheets;
+            revision.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
+        if (event.shouldCommit()) {
+            event.bytes = json.getBytes(StandardCharsets.UTF_8).length;
+            event.cellCount = cellCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * Sheets which haven't been loaded are written back as they were read.
+     */
+    public String save() throws JsonProcessingException {
+        var event = new SaveEvent();
+        event.begin();
+        var sheetInfos = new ArrayList<WorkbookSaveInfo.SheetInfo>();
+        int cellCount = 0;
+        for (var sheet : sheets.values()) {
+            var manager = sheet.manager;
+            var saveInfo = manager != null ? manager.toSaveInfo() : sheet.saveInfo;
+            sheetInfos.add(new WorkbookSaveInfo.SheetInfo(sheet.name, saveInfo));
+            cellCount += saveInfo.cells().size();
+        }
+        var json = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(new WorkbookSaveInfo(sheetInfos));
+        if (event.shouldCommit()) {
+            event.bytes = json.getBytes(StandardCharsets.UTF_8).length;
+            event.cellCount = cellCount;
+            event.commit();
+        }
+        return json;
+    }
+
+    private CellManager load(Sheet sheet) {
+        var manager = sheet.manager;
+        if (manager != null)
+            return manager;
+        synchronized (sheet) {
+            if (sheet.manager == null) {
+                var saveInfo = sheet.saveInfo;
+                var loaded = new CellManager(saveInfo.rowCount(), saveInfo.columnCount(), backend, this, sheet.name);
+                loaded.load(saveInfo);
+                sheet.manager = loaded;
+                sheet.saveInfo = null;
+            }
+            return sheet.manager;
+        }
+    }
+
+    AtomicLong getRevision() {
+        return revision;
+    }
+
+    Lock getWriteLock() {
+        return writeLock;
+    }
+
+    /**
+     * Value of a {@code Sheet!A1} reference, loading the sheet if needed.
+     */
+    NodeValue getValue(AstNode.Reference.Address address) {
+        var sheet = getSheet(address.sheet());
+        if (sheet == null)
+            return ErrorCode.INCORRECT_REFERENCE.error(address);
+        if (sheet.isAddressInvalid(address))
+            return ErrorCode.INVALID_ADDRESS.error(address);
+
+        var evaluating = EVALUATING.get();
+        if (!evaluating.add(address))
+            return ErrorCode.REFERENCE_CYCLE.error();
+        try {
+            return sheet.getValue(new CellAddress(address));
+        } finally {
+            evaluating.remove(address);
+        }
+    }
+
+    /**
+     * Brings the referenced cell up to date, for validating a value computed from it.
+     * Missing sheets and invalid addresses are constant errors, the references to them are
+     * touched when that changes.
+     */
+    long getChangedAt(AstNode.Reference.Address address, long revision) {
+        getValue(address);
+        var sheet = getSheet(address.sheet());
+        if (sheet == null || sheet.isAddressInvalid(address))
+            return 0;
+        long changedAt = sheet.getChangedAt(new CellAddress(address));
+        return changedAt < 0 ? revision : changedAt;
+    }
+
+    /**
+     * Callers must hold the write lock.
+     */
+    void addDependant(String sheet, CellAddress dependant, AstNode.Reference.Address dependee) {
+        dependants.computeIfAbsent(dependee.sheet(), k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(new CellAddress(dependee), k -> ConcurrentHashMap.newKeySet())
+            .add(new SheetCell(sheet, dependant));
+    }
+
+    /**
+     * Callers must hold the write lock.
+     */
+    void removeDependant(String sheet, CellAddress dependant, AstNode.Reference.Address dependee) {
+        var referenced = dependants.get(dependee.sheet());
+        if (referenced == null)
+            return;
+        var address = new CellAddress(dependee);
+        var cells = referenced.get(address);
+        if (cells != null && cells.remove(new SheetCell(sheet, dependant)) && cells.isEmpty())
+            referenced.remove(address);
+    }
+
+    /**
+     * Drops the edges from the cells of {@code sheet}, as it's replaced as a whole.
+     */
+    void removeDependants(String sheet) {
+        writeLock.lock();
+        try {
+            for (var referenced : dependants.values()) {
+                referenced.values().removeIf(cells -> {
+                    cells.removeIf(cell -> cell.sheet().equals(sheet));
+                    return cells.isEmpty();
+                });
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Makes the cells of other sheets referencing {@code sheet} recompute, as it has been replaced,
+     * resized, added or removed.
+     */
+    void touchDependants(String sheet) {
+        var referenced = dependants.get(sheet);
+        if (referenced == null || referenced.isEmpty())
+            return;
+
+        var toTouch = new HashMap<String, List<CellAddress>>();
+        referenced.values().forEach(cells -> cells.forEach(cell ->
+            toTouch.computeIfAbsent(cell.sheet(), k -> new ArrayList<>()).add(cell.address())));
+        var sheets = this.sheets;
+        writeLock.lock();
+        try {
+            long next = revision.get() + 1;
+            toTouch.forEach((name, addresses) -> {
+                var dependantSheet = sheets.get(name);
+                if (dependantSheet != null && dependantSheet.manager != null)
+                    dependantSheet.manager.touch(addresses, next);
+            });
+            revision.set(next);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.sheets.table.cell;
+
+import com.example.sheets.expression.parser.ast.AstNode;
+import com.example.sheets.expression.parser.ast.ColumnKernel;
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.expression.parser.lexer.NumberScanner;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Formula of a cell in one of three compact kinds. Numbers and texts not starting with {@code =} are
+ * recognized without the lexer and the parser and keep only their value, a number keeping its text only
+ * when it isn't the one derived from the value. Formulas share their text and compiled form through
+ * the {@link FormulaCache}.
+ */
+public abstract sealed class Cell {
+
+    private static final long[] NO_REFERENCES = new long[0];
+
+    /**
+     * Revision in which this cell was put to the store. Published to readers together with the cell itself.
+     */
+    private long changedAt;
+
+    public static Cell of(String formula) {
+        if (formula.startsWith("="))
+            return new FormulaCell(FormulaCache.get(formula));
+        var chars = formula.toCharArray();
+        if (!NumberScanner.isNumber(chars, 0, chars.length))
+            return new TextCell(formula);
+        double value = NumberScanner.parse(chars, 0, chars.length);
+        return new NumberCell(value, NumberCell.format(value).equals(formula) ? null : formula);
+    }
+
+    public abstract NodeValue getNodeValue(Function<AstNode.Reference.Address, NodeValue> memory);
+
+    public long getChangedAt() {
+        return changedAt;
+    }
+
+    void setChangedAt(long revision) {
+        changedAt = revision;
+    }
+
+    /**
+     * @return a new cell with the same formula, to be put again with a new {@code changedAt}.
+     * Values live in the {@link ValueStore}, not in cells
+     */
+    abstract Cell renew();
+
+    public int getReferenceCount() {
+        return 0;
+    }
+
+    /**
+     * @return the reference packed with {@link CellAddress#pack(int, int)}
+     */
+    public long getReference(int index) {
+        return NO_REFERENCES[index];
+    }
+
+    /**
+     * @return references to cells of other sheets, the ones with {@link AstNode.Reference.Address#sheet()}
+     */
+    public List<AstNode.Reference.Address> getExternalReferences() {
+        return List.of();
+    }
+
+    public abstract String getFormula();
+
+    /**
+     * @return the formula as a column kernel, or null if it's not an arithmetic formula
+     */
+    public ColumnKernel getColumnKernel() {
+        return null;
+    }
+
+    private static final class NumberCell extends Cell {
+        private final double value;
+        /**
+         * The formula as typed, or null if it's the {@link #format} of the value.
+         */
+        private final String text;
+
+        private NumberCell(double value, String text) {
+            this.value = value;
+            this.text = text;
+        }
+
+        /**
+         * Integers up to 2^53 without a fraction, the shortest text of the double otherwise.
+         */
+        private static String format(double value) {
+            if (value == Math.rint(value) && Math.abs(value) < 0x1p53 && !(value == 0 && 1 / value < 0))
+                return Long.toString((long) value);
+            return Double.toString(value);
+        }
+
+        @Override
+        public NodeValue getNodeValue(Function<AstNode.Reference.Address, NodeValue> memory) {
+            return new NodeValue.Number(value);
+        }
+
+        @Override
+        Cell renew() {
+            return new NumberCell(value, text);
+        }
+
+        @Override
+        public String getFormula() {
+            return text != null ? text : format(value);
+        }
+    }
+
+    private static final class TextCell extends Cell {
+        private final String text;
+
+        private TextCell(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public NodeValue getNodeValue(Function<AstNode.Reference.Address, NodeValue> memory) {
+            return new NodeValue.Str(text);
+        }
+
+        @Override
+        Cell renew() {
+            return new TextCell(text);
+        }
+
+        @Override
+        public String getFormula() {
+            return text;
+        }
+    }
+
+    private static final class FormulaCell extends Cell {
+        /**
+         * Shared by the cells of the same formula.
+         */
+        private final FormulaCache.Parsed parsed;
+
+        private FormulaCell(FormulaCache.Parsed parsed) {
+            this.parsed = parsed;
+        }
+
+        @Override
+        public NodeValue getNodeValue(Function<AstNode.Reference.Address, NodeValue> memory) {
+            return parsed.compiled().getValue(memory);
+        }
+
+        @Override
+        Cell renew() {
+            return new FormulaCell(parsed);
+        }
+
+        @Override
+        public int getReferenceCount() {
+            return parsed.references().length;
+        }
+
+        @Override
+        public long getReference(int index) {
+            return parsed.references()[index];
+        }
+
+        @Override
+        public List<AstNode.Reference.Address> getExternalReferences() {
+            return parsed.externalReferences();
+        }
+
+        @Override
+        public String getFormula() {
+            return parsed.formula();
+        }
+
+        @Override
+        public ColumnKernel getColumnKernel() {
+            return parsed.kernel();
+        }
+    }
+}
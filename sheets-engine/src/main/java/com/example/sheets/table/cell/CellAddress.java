@@ -0,0 +1,33 @@
+package com.example.sheets.table.cell;
+
+import com.example.sheets.expression.parser.ast.AstNode;
+
+
+public record CellAddress(int row, int column) {
+    public CellAddress(AstNode.Reference.Address address) {
+        this(address.rowIndex(), address.columnIndex());
+    }
+
+    /**
+     * Packs the address into a single long, row in the high half and column in the low half.
+     */
+    public static long pack(int row, int column) {
+        return (long) row << 32 | column & 0xFFFFFFFFL;
+    }
+
+    public static int rowOf(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int columnOf(long packed) {
+        return (int) packed;
+    }
+
+    public static CellAddress unpack(long packed) {
+        return new CellAddress(rowOf(packed), columnOf(packed));
+    }
+
+    public long pack() {
+        return pack(row, column);
+    }
+}
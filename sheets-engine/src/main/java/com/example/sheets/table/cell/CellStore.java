@@ -0,0 +1,149 @@
+package com.example.sheets.table.cell;
+
+import com.example.sheets.save.SparseSaveInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+public final class CellStore {
+
+    private final FormulaStore data;
+    private final DependencyGraph dependants = new DependencyGraph();
+    private final ValueStore values;
+
+    private volatile int rowCount;
+    private volatile int columnCount;
+
+    private static final Cell DEFAULT_CELL = Cell.of("");
+    public static final int MIN_ROW_COUNT = 2;
+    public static final int MIN_COLUMN_COUNT = 2;
+    public static final int MAX_ROW_COUNT = 10000;
+    public static final int MAX_COLUMN_COUNT = 10000;
+
+    public CellStore(int rowCount, int columnCount) {
+        this(rowCount, columnCount, StoreBackend.HEAP);
+    }
+
+    public CellStore(int rowCount, int columnCount, StoreBackend backend) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        if (backend.offHeap()) {
+            var memory = new OffHeapMemory(backend.directory());
+            data = new OffHeapFormulaStore(memory, backend.cachedCells());
+            values = new ValueStore(memory);
+        } else {
+            data = new PersistentFormulaStore();
+            values = new ValueStore();
+        }
+    }
+
+    public Cell getCell(CellAddress address) {
+        var cell = data.get(address);
+        return cell == null ? DEFAULT_CELL : cell;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Calls {@code action} with every cell referencing {@code address}, packed with {@link CellAddress#pack()}.
+     * The dependants must not be modified from {@code action}.
+     */
+    public void forEachDependant(CellAddress address, LongConsumer action) {
+        dependants.forEachDependant(address.pack(), action);
+    }
+
+    /**
+     * Callers must hold the write lock, and the edge must not be present already.
+     */
+    public void addDependant(CellAddress dependant, CellAddress dependee) {
+        dependants.add(dependant.pack(), dependee.pack());
+    }
+
+    public void removeDependant(CellAddress dependant, CellAddress dependee) {
+        dependants.remove(dependant.pack(), dependee.pack());
+    }
+
+    /**
+     * Replaces the cell with a copy changed at {@code revision}, so the value kept for it in the {@link ValueStore}
+     * is recomputed on its next read even if none of its inputs has changed. Callers must hold the write lock.
+     */
+    public void touch(CellAddress address, long revision) {
+        var cell = data.get(address);
+        if (cell != null)
+            set(address, cell.renew(), revision);
+    }
+
+    public boolean isInvalid(CellAddress address) {
+        return isInvalid(address.row(), address.column());
+    }
+
+    public boolean isInvalid(int row, int column) {
+        return (row < 0 || row >= rowCount || column < 0 || column >= columnCount);
+    }
+
+    /**
+     * Callers must hold the write lock, and publish {@code revision} only after this call.
+     */
+    public Cell set(CellAddress address, Cell cell, long revision) {
+        cell.setChangedAt(revision);
+        values.reserve(address.row(), address.column());
+        data.put(address, cell);
+        return cell;
+    }
+
+    /**
+     * Puts all the cells at once, like {@link #set} for each of them.
+     */
+    public void setAll(Map<CellAddress, Cell> cells, long revision) {
+        cells.forEach((address, cell) -> {
+            cell.setChangedAt(revision);
+            values.reserve(address.row(), address.column());
+        });
+        data.putAll(cells);
+    }
+
+    /**
+     * Memoized values of the cells, empty cells read as verified empty strings.
+     */
+    public ValueStore getValues() {
+        return values;
+    }
+
+    public List<CellAddress> getFilledAddresses() {
+        var addresses = new ArrayList<CellAddress>();
+        data.forEach((address, formula) -> {
+            if (!formula.isEmpty())
+                addresses.add(address);
+        });
+        return addresses;
+    }
+
+    public FormulaSnapshot snapshot() {
+        return new FormulaSnapshot(data.snapshot(), rowCount, columnCount);
+    }
+
+    public SparseSaveInfo toSaveInfo() {
+        return snapshot().toSaveInfo();
+    }
+
+    public void extend(int rowNumber, int columnNumber) {
+        rowCount = Math.min(rowCount + rowNumber, MAX_ROW_COUNT);
+        columnCount = Math.min(columnCount + columnNumber, MAX_COLUMN_COUNT);
+    }
+
+    public void shrink(int rowNumber, int columnNumber) {
+        rowCount = Math.max(rowCount - rowNumber, MIN_ROW_COUNT);
+        columnCount = Math.max(columnCount - columnNumber, MIN_COLUMN_COUNT);
+        data.removeIf(this::isInvalid);
+        values.retain(rowCount, columnCount);
+        dependants.retainDependants(dependant -> !isInvalid(CellAddress.rowOf(dependant), CellAddress.columnOf(dependant)));
+    }
+}
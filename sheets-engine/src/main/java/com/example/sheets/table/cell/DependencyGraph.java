@@ -0,0 +1,266 @@
+package com.example.sheets.table.cell;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Reverse dependency graph: for every referenced cell, the cells whose formulas reference it.
+ * Addresses are packed with {@link CellAddress#pack(int, int)}.
+ * <p>
+ * Most edges live in compressed sparse row form: sorted {@code keys}, and the dependants of {@code keys[i]}
+ * in {@code targets[offsets[i]..offsets[i + 1])}. New edges go to a small open addressing overflow table,
+ * removed edges are overwritten with {@link #TOMBSTONE}, and both are merged back into the packed arrays
+ * once they outgrow a fraction of them. Safe for concurrent use.
+ */
+final class DependencyGraph {
+
+    /**
+     * Never a valid address, as rows are never negative.
+     */
+    private static final long TOMBSTONE = Long.MIN_VALUE;
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+    private static final int MIN_COMPACTION_THRESHOLD = 1024;
+    private static final int INITIAL_OVERFLOW_CAPACITY = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] keys = new long[0];
+    private int[] offsets = {0};
+    private long[] targets = new long[0];
+    /**
+     * Removed edges, in both parts, which are still taking space.
+     */
+    private int tombstones;
+
+    /**
+     * Open addressing table of the overflow keys, with the first edge of each key in {@link #overflowHeads}.
+     */
+    private long[] overflowKeys;
+    private int[] overflowHeads;
+    private int overflowKeyCount;
+    /**
+     * Overflow edges, chained per key through {@link #overflowNext}.
+     */
+    private long[] overflowTargets;
+    private int[] overflowNext;
+    private int overflowEdgeCount;
+
+    DependencyGraph() {
+        clearOverflow();
+    }
+
+    /**
+     * The edge must not be present already.
+     */
+    void add(long dependant, long dependee) {
+        lock.writeLock().lock();
+        try {
+            if (overflowEdgeCount == overflowTargets.length) {
+                overflowTargets = Arrays.copyOf(overflowTargets, overflowEdgeCount * 2);
+                overflowNext = Arrays.copyOf(overflowNext, overflowEdgeCount * 2);
+            }
+            int slot = findOverflowSlot(dependee);
+            if (overflowKeys[slot] == EMPTY_KEY) {
+                overflowKeys[slot] = dependee;
+                overflowHeads[slot] = -1;
+                overflowKeyCount++;
+            }
+            overflowTargets[overflowEdgeCount] = dependant;
+            overflowNext[overflowEdgeCount] = overflowHeads[slot];
+            overflowHeads[slot] = overflowEdgeCount;
+            overflowEdgeCount++;
+
+            if (overflowKeyCount * 2 > overflowKeys.length)
+                rehashOverflow(overflowKeys.length * 2);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long dependant, long dependee) {
+        lock.writeLock().lock();
+        try {
+            int index = Arrays.binarySearch(keys, dependee);
+            if (index >= 0) {
+                for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+                    if (targets[i] == dependant) {
+                        targets[i] = TOMBSTONE;
+                        tombstones++;
+                        compactIfNeeded();
+                        return;
+                    }
+                }
+            }
+            int slot = findOverflowSlot(dependee);
+            if (overflowKeys[slot] == EMPTY_KEY)
+                return;
+            for (int edge = overflowHeads[slot]; edge >= 0; edge = overflowNext[edge]) {
+                if (overflowTargets[edge] == dependant) {
+                    overflowTargets[edge] = TOMBSTONE;
+                    tombstones++;
+                    compactIfNeeded();
+                    return;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Calls {@code action} for every dependant of {@code dependee}, without copying them.
+     * The graph must not be modified from {@code action}.
+     */
+    void forEachDependant(long dependee, LongConsumer action) {
+        lock.readLock().lock();
+        try {
+            int index = Arrays.binarySearch(keys, dependee);
+            if (index >= 0) {
+                for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+                    if (targets[i] != TOMBSTONE)
+                        action.accept(targets[i]);
+                }
+            }
+            int slot = findOverflowSlot(dependee);
+            if (overflowKeys[slot] == EMPTY_KEY)
+                return;
+            for (int edge = overflowHeads[slot]; edge >= 0; edge = overflowNext[edge]) {
+                if (overflowTargets[edge] != TOMBSTONE)
+                    action.accept(overflowTargets[edge]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all the edges whose dependant doesn't match {@code filter}.
+     */
+    void retainDependants(LongPredicate filter) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < targets.length; i++) {
+                if (targets[i] != TOMBSTONE && !filter.test(targets[i])) {
+                    targets[i] = TOMBSTONE;
+                    tombstones++;
+                }
+            }
+            for (int edge = 0; edge < overflowEdgeCount; edge++) {
+                if (overflowTargets[edge] != TOMBSTONE && !filter.test(overflowTargets[edge])) {
+                    overflowTargets[edge] = TOMBSTONE;
+                    tombstones++;
+                }
+            }
+            compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int getEdgeCount() {
+        lock.readLock().lock();
+        try {
+            return targets.length + overflowEdgeCount - tombstones;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (overflowEdgeCount + tombstones > Math.max(MIN_COMPACTION_THRESHOLD, targets.length / 4))
+            compact();
+    }
+
+    /**
+     * Merges the overflow into the packed arrays and drops the tombstones. Both parts are walked
+     * in key order, the packed one is sorted already and the overflow keys are sorted here.
+     */
+    private void compact() {
+        var newOverflowKeys = new long[overflowKeyCount];
+        int count = 0;
+        for (long key : overflowKeys) {
+            if (key != EMPTY_KEY)
+                newOverflowKeys[count++] = key;
+        }
+        Arrays.sort(newOverflowKeys);
+
+        int edgeCount = targets.length + overflowEdgeCount - tombstones;
+        var mergedKeys = new long[keys.length + newOverflowKeys.length];
+        var mergedOffsets = new int[mergedKeys.length + 1];
+        var mergedTargets = new long[edgeCount];
+        int keyCount = 0;
+        int edge = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < newOverflowKeys.length) {
+            long key = j == newOverflowKeys.length || i < keys.length && keys[i] <= newOverflowKeys[j]
+                ? keys[i]
+                : newOverflowKeys[j];
+            int start = edge;
+            if (i < keys.length && keys[i] == key) {
+                for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                    if (targets[k] != TOMBSTONE)
+                        mergedTargets[edge++] = targets[k];
+                }
+                i++;
+            }
+            if (j < newOverflowKeys.length && newOverflowKeys[j] == key) {
+                for (int e = overflowHeads[findOverflowSlot(key)]; e >= 0; e = overflowNext[e]) {
+                    if (overflowTargets[e] != TOMBSTONE)
+                        mergedTargets[edge++] = overflowTargets[e];
+                }
+                j++;
+            }
+            if (edge > start) {
+                mergedKeys[keyCount] = key;
+                mergedOffsets[++keyCount] = edge;
+            }
+        }
+
+        keys = Arrays.copyOf(mergedKeys, keyCount);
+        offsets = Arrays.copyOf(mergedOffsets, keyCount + 1);
+        targets = mergedTargets;
+        tombstones = 0;
+        clearOverflow();
+    }
+
+    private void clearOverflow() {
+        overflowKeys = new long[INITIAL_OVERFLOW_CAPACITY];
+        Arrays.fill(overflowKeys, EMPTY_KEY);
+        overflowHeads = new int[INITIAL_OVERFLOW_CAPACITY];
+        overflowKeyCount = 0;
+        overflowTargets = new long[INITIAL_OVERFLOW_CAPACITY];
+        overflowNext = new int[INITIAL_OVERFLOW_CAPACITY];
+        overflowEdgeCount = 0;
+    }
+
+    private void rehashOverflow(int capacity) {
+        var oldKeys = overflowKeys;
+        var oldHeads = overflowHeads;
+        overflowKeys = new long[capacity];
+        Arrays.fill(overflowKeys, EMPTY_KEY);
+        overflowHeads = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY_KEY)
+                continue;
+            int slot = findOverflowSlot(oldKeys[i]);
+            overflowKeys[slot] = oldKeys[i];
+            overflowHeads[slot] = oldHeads[i];
+        }
+    }
+
+    /**
+     * @return the slot of {@code key}, or the empty slot where it would be inserted
+     */
+    private int findOverflowSlot(long key) {
+        int mask = overflowKeys.length - 1;
+        int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+        while (overflowKeys[slot] != EMPTY_KEY && overflowKeys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.sheets.table.cell;
+
+import com.example.sheets.expression.parser.ast.AstNode;
+import com.example.sheets.expression.parser.ast.AstOptimizer;
+import com.example.sheets.expression.parser.ast.ColumnKernel;
+import com.example.sheets.expression.parser.ast.CompiledFormula;
+import com.example.sheets.expression.parser.ast.OperatorPrecedenceParser;
+import com.example.sheets.expression.parser.ast.ParseException;
+import com.example.sheets.expression.parser.lexer.CharArrayLexer;
+import com.example.sheets.expression.parser.lexer.LexerException;
+import com.example.sheets.metrics.Metrics;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.List;
+
+/**
+ * Process-wide cache of the most recently used formulas by their text, so the cells of a formula pasted
+ * many times or reloaded share one compiled tree instead of lexing and parsing it again. Compiled formulas
+ * hold no per-cell state and are evaluated concurrently. Sized by {@code -Dsheets.parse.cache} formulas,
+ * lookups are reported to {@link Metrics}.
+ */
+final class FormulaCache {
+    static final int DEFAULT_SIZE = 100_000;
+
+    /**
+     * Lexer and parser keep their buffers between formulas, so cells are built from reused arrays.
+     */
+    private static final ThreadLocal<CharArrayLexer> LEXER = ThreadLocal.withInitial(CharArrayLexer::new);
+    private static final ThreadLocal<OperatorPrecedenceParser> PARSER = ThreadLocal.withInitial(OperatorPrecedenceParser::new);
+    private static final Cache<String, Parsed> CACHE = CacheBuilder.newBuilder()
+        .maximumSize(Integer.getInteger("sheets.parse.cache", DEFAULT_SIZE))
+        .build();
+
+    /**
+     * @param references         distinct references packed with {@link CellAddress#pack(int, int)}
+     * @param externalReferences distinct {@code Sheet!A1} references, resolved by the workbook rather than by the sheet
+     * @param kernel             the formula as a column kernel, or null if it's not arithmetic
+     */
+    record Parsed(String formula, CompiledFormula compiled, long[] references,
+                  List<AstNode.Reference.Address> externalReferences, ColumnKernel kernel) {
+
+        private static Parsed of(String formula) {
+            var compiled = AstOptimizer.compile(parse(formula));
+            var references = compiled.getReferences().stream()
+                .filter(address -> address.sheet() == null)
+                .mapToLong(address -> CellAddress.pack(address.rowIndex(), address.columnIndex()))
+                .toArray();
+            var externalReferences = compiled.getReferences().stream()
+                .filter(address -> address.sheet() != null)
+                .toList();
+            return new Parsed(formula, compiled, references, externalReferences, ColumnKernel.of(compiled));
+        }
+    }
+
+    static Parsed get(String formula) {
+        var parsed = CACHE.getIfPresent(formula);
+        var metrics = Metrics.get();
+        if (metrics.isEnabled())
+            metrics.onParseCacheLookup(parsed != null);
+        if (parsed != null)
+            return parsed;
+
+        parsed = Parsed.of(formula);
+        // A concurrent miss of the same formula may have put it first, keep sharing that one
+        var raced = CACHE.asMap().putIfAbsent(formula, parsed);
+        return raced != null ? raced : parsed;
+    }
+
+    private static AstNode parse(String formula) {
+        var metrics = Metrics.get();
+        try {
+            if (!metrics.isEnabled())
+                return PARSER.get().parse(LEXER.get().tokenize(formula));
+            long start = System.nanoTime();
+            var tokens = LEXER.get().tokenize(formula);
+            long lexed = System.nanoTime();
+            var ast = PARSER.get().parse(tokens);
+            metrics.onParse(lexed - start, System.nanoTime() - lexed);
+            return ast;
+        } catch (LexerException | ParseException e) {
+            return new AstNode.Error(e.getMessage());
+        }
+    }
+
+    private FormulaCache() {
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.sheets.table.cell;
+
+import com.example.sheets.save.SparseSaveInfo;
+
+import java.util.ArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Formulas of a {@link CellStore} at some point, unaffected by the later edits. Taking one from a heap store
+ * costs a field read, as the cells are kept in a {@link PersistentCellMap}. One from an off-heap store copies
+ * its off-heap tables of record locations, and reads the formulas from the records when asked for them.
+ */
+public final class FormulaSnapshot {
+
+    private final FormulaStore.Snapshot cells;
+    private final int rowCount;
+    private final int columnCount;
+
+    FormulaSnapshot(FormulaStore.Snapshot cells, int rowCount, int columnCount) {
+        this.cells = cells;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    public String getFormula(CellAddress address) {
+        var formula = cells.getFormula(address.pack());
+        return formula == null ? "" : formula;
+    }
+
+    /**
+     * Calls {@code action} with the formulas of {@code target} which differ from this snapshot,
+     * with an empty formula for the cells missing in {@code target}.
+     */
+    public void forEachChange(FormulaSnapshot target, BiConsumer<CellAddress, String> action) {
+        cells.forEachChange(target.cells, action);
+    }
+
+    /**
+     * Calls {@code action} with every cell of the snapshot, in no particular order.
+     */
+    public void forEach(BiConsumer<CellAddress, String> action) {
+        cells.forEach(action);
+    }
+
+    public SparseSaveInfo toSaveInfo() {
+        var cellInfos = new ArrayList<SparseSaveInfo.CellInfo>(cells.size());
+        cells.forEach((address, formula) ->
+            cellInfos.add(new SparseSaveInfo.CellInfo(address.row(), address.column(), formula)));
+        return new SparseSaveInfo(rowCount, columnCount, cellInfos);
+    }
+}
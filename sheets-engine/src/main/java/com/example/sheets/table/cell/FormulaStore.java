@@ -0,0 +1,61 @@
+package com.example.sheets.table.cell;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Cells of a {@link CellStore} by address. Safe for concurrent readers with a single writer.
+ */
+interface FormulaStore {
+
+    /**
+     * @return the cell, or {@code null} if there's none at {@code address}
+     */
+    Cell get(CellAddress address);
+
+    void put(CellAddress address, Cell cell);
+
+    default void putAll(Map<CellAddress, Cell> cells) {
+        cells.forEach(this::put);
+    }
+
+    void removeIf(Predicate<CellAddress> filter);
+
+    void forEach(BiConsumer<CellAddress, String> action);
+
+    /**
+     * @return the current formulas, unaffected by later updates
+     */
+    Snapshot snapshot();
+
+    /**
+     * Formulas of a store at some point.
+     */
+    interface Snapshot {
+        int size();
+
+        /**
+         * @return the formula of the cell packed with {@link CellAddress#pack()}, or {@code null} if there's none
+         */
+        String getFormula(long key);
+
+        void forEach(BiConsumer<CellAddress, String> action);
+
+        /**
+         * Calls {@code action} with the formulas of {@code target} which differ from this snapshot,
+         * with an empty formula for the cells missing in {@code target}.
+         */
+        default void forEachChange(Snapshot target, BiConsumer<CellAddress, String> action) {
+            forEach((address, before) -> {
+                var after = target.getFormula(address.pack());
+                if (!before.equals(after == null ? "" : after))
+                    action.accept(address, after == null ? "" : after);
+            });
+            target.forEach((address, after) -> {
+                if (getFormula(address.pack()) == null)
+                    action.accept(address, after);
+            });
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.sheets.table.cell;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the formulas off-heap and only the recently used parsed cells on-heap.
+ * <p>
+ * Formula records, {@code [long changedAt][int length][UTF-8 bytes]}, are appended to off-heap chunks
+ * and never moved, so a replaced formula leaves its old record behind. The location of the latest
+ * record of every address is kept in off-heap open addressing tables, split in segments with their
+ * own locks. Parsed cells are cached together with the location they were read from, so a cell
+ * cached by a late reader is never mistaken for the current one.
+ */
+final class OffHeapFormulaStore implements FormulaStore {
+
+    private record Cached(long location, Cell cell) {
+    }
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int CHUNK_SIZE = 64 << 20;
+    private static final int RECORD_HEADER = Long.BYTES + Integer.BYTES;
+
+    private final OffHeapMemory memory;
+    private final Cache<CellAddress, Cached> cache;
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private volatile ByteBuffer[] chunksView = new ByteBuffer[0];
+    private int position;
+
+    OffHeapFormulaStore(OffHeapMemory memory, int cachedCells) {
+        this.memory = memory;
+        cache = CacheBuilder.newBuilder().maximumSize(cachedCells).build();
+        for (int i = 0; i < segments.length; i++)
+            segments[i] = new Segment(memory);
+    }
+
+    @Override
+    public Cell get(CellAddress address) {
+        long key = address.pack();
+        long location = segment(key).find(key);
+        if (location < 0)
+            return null;
+
+        var cached = cache.getIfPresent(address);
+        if (cached != null && cached.location() == location)
+            return cached.cell();
+
+        var chunks = chunksView;
+        var cell = Cell.of(readFormula(chunks, location));
+        cell.setChangedAt(chunks[(int) (location >>> 32)].getLong((int) location));
+        cache.put(address, new Cached(location, cell));
+        return cell;
+    }
+
+    @Override
+    public void put(CellAddress address, Cell cell) {
+        long key = address.pack();
+        long location = append(cell.getChangedAt(), cell.getFormula().getBytes(StandardCharsets.UTF_8));
+        segment(key).put(key, location);
+        cache.put(address, new Cached(location, cell));
+    }
+
+    @Override
+    public void removeIf(Predicate<CellAddress> filter) {
+        for (var segment : segments)
+            segment.removeIf(key -> filter.test(CellAddress.unpack(key)));
+        cache.asMap().keySet().removeIf(filter);
+    }
+
+    @Override
+    public void forEach(BiConsumer<CellAddress, String> action) {
+        forEach(segments, chunksView, action);
+    }
+
+    private static void forEach(Segment[] segments, ByteBuffer[] chunks, BiConsumer<CellAddress, String> action) {
+        for (var segment : segments)
+            segment.forEach((key, location) -> action.accept(CellAddress.unpack(key), readFormula(chunks, location)));
+    }
+
+    private static String readFormula(ByteBuffer[] chunks, long location) {
+        var chunk = chunks[(int) (location >>> 32)];
+        int offset = (int) location;
+        var bytes = new byte[chunk.getInt(offset + Long.BYTES)];
+        chunk.get(offset + RECORD_HEADER, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies the off-heap tables of record locations. Records are never moved or overwritten, so the copies
+     * keep pointing to the formulas of the moment, which are only read when asked for.
+     */
+    @Override
+    public Snapshot snapshot() {
+        var copies = new Segment[segments.length];
+        for (int i = 0; i < segments.length; i++)
+            copies[i] = segments[i].copy();
+        // Read after the tables, so it has the chunks of all the locations they hold
+        return new TableSnapshot(copies, chunksView);
+    }
+
+    private record TableSnapshot(Segment[] segments, ByteBuffer[] chunks) implements Snapshot {
+        @Override
+        public int size() {
+            int size = 0;
+            for (var segment : segments)
+                size += segment.size();
+            return size;
+        }
+
+        @Override
+        public String getFormula(long key) {
+            long location = segments[segmentIndex(key)].find(key);
+            return location < 0 ? null : readFormula(chunks, location);
+        }
+
+        @Override
+        public void forEach(BiConsumer<CellAddress, String> action) {
+            OffHeapFormulaStore.forEach(segments, chunks, action);
+        }
+    }
+
+    /**
+     * @return the location of the record, chunk index in the high half and offset in the low half
+     */
+    private synchronized long append(long changedAt, byte[] formula) {
+        int size = RECORD_HEADER + formula.length;
+        if (chunks.isEmpty() || position + size > chunks.get(chunks.size() - 1).capacity()) {
+            chunks.add(memory.allocate(Math.max(CHUNK_SIZE, size)));
+            chunksView = chunks.toArray(ByteBuffer[]::new);
+            position = 0;
+        }
+        var chunk = chunks.get(chunks.size() - 1);
+        chunk.putLong(position, changedAt);
+        chunk.putInt(position + Long.BYTES, formula.length);
+        chunk.put(position + RECORD_HEADER, formula);
+        long location = (long) (chunks.size() - 1) << 32 | position;
+        position += size;
+        return location;
+    }
+
+    private Segment segment(long key) {
+        return segments[segmentIndex(key)];
+    }
+
+    static int segmentIndex(long key) {
+        return (int) (key * 0x9E3779B97F4A7C15L >>> (64 - SEGMENT_BITS));
+    }
+
+    /**
+     * Open addressing table from packed addresses to record locations in a single off-heap buffer.
+     * Keys are stored plus one, so that zero marks a free slot.
+     */
+    static final class Segment {
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final int SLOT_BYTES = 2 * Long.BYTES;
+        private static final long FREE = 0;
+        private static final long REMOVED = -1;
+
+        interface SlotConsumer {
+            void accept(long key, long location);
+        }
+
+        private final OffHeapMemory memory;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private ByteBuffer table;
+        private int capacity;
+        /**
+         * Slots taken by keys, including the removed ones.
+         */
+        private int used;
+        private int size;
+
+        Segment(OffHeapMemory memory) {
+            this(memory, INITIAL_CAPACITY);
+        }
+
+        private Segment(OffHeapMemory memory, int capacity) {
+            this.memory = memory;
+            allocate(capacity);
+        }
+
+        Segment copy() {
+            lock.readLock().lock();
+            try {
+                var copy = new Segment(memory, capacity);
+                copy.table.put(0, table, 0, capacity * SLOT_BYTES);
+                copy.used = used;
+                copy.size = size;
+                return copy;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        long find(long key) {
+            lock.readLock().lock();
+            try {
+                int slot = findSlot(key + 1);
+                return table.getLong(slot * SLOT_BYTES) == key + 1 ? table.getLong(slot * SLOT_BYTES + Long.BYTES) : -1;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void put(long key, long location) {
+            lock.writeLock().lock();
+            try {
+                int slot = findSlot(key + 1);
+                if (table.getLong(slot * SLOT_BYTES) == FREE) {
+                    if ((used + 1) * 2 > capacity) {
+                        rehash(capacity * 2);
+                        slot = findSlot(key + 1);
+                    }
+                    used++;
+                    size++;
+                }
+                table.putLong(slot * SLOT_BYTES, key + 1);
+                table.putLong(slot * SLOT_BYTES + Long.BYTES, location);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removeIf(LongPredicate filter) {
+            lock.writeLock().lock();
+            try {
+                for (int slot = 0; slot < capacity; slot++) {
+                    long stored = table.getLong(slot * SLOT_BYTES);
+                    if (stored != FREE && stored != REMOVED && filter.test(stored - 1)) {
+                        table.putLong(slot * SLOT_BYTES, REMOVED);
+                        size--;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void forEach(SlotConsumer action) {
+            lock.readLock().lock();
+            try {
+                for (int slot = 0; slot < capacity; slot++) {
+                    long stored = table.getLong(slot * SLOT_BYTES);
+                    if (stored != FREE && stored != REMOVED)
+                        action.accept(stored - 1, table.getLong(slot * SLOT_BYTES + Long.BYTES));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return the slot of {@code stored}, or the free slot where it would be inserted
+         */
+        private int findSlot(long stored) {
+            int mask = capacity - 1;
+            int slot = homeSlot(stored, mask);
+            while (true) {
+                long current = table.getLong(slot * SLOT_BYTES);
+                if (current == FREE || current == stored)
+                    return slot;
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        /**
+         * The low bits of a murmur finalizer of the key. The segment is picked by the high bits of another
+         * multiply of the same key, so the slot must not depend on those, or the keys of a large segment
+         * would crowd into a few runs of the table.
+         */
+        static int homeSlot(long stored, int mask) {
+            long hash = stored;
+            hash ^= hash >>> 33;
+            hash *= 0xFF51AFD7ED558CCDL;
+            hash ^= hash >>> 33;
+            hash *= 0xC4CEB9FE1A85EC53L;
+            hash ^= hash >>> 33;
+            return (int) hash & mask;
+        }
+
+        private void rehash(int newCapacity) {
+            var oldTable = table;
+            int oldCapacity = capacity;
+            allocate(newCapacity);
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                long stored = oldTable.getLong(slot * SLOT_BYTES);
+                if (stored == FREE || stored == REMOVED)
+                    continue;
+                int newSlot = findSlot(stored);
+                table.putLong(newSlot * SLOT_BYTES, stored);
+                table.putLong(newSlot * SLOT_BYTES + Long.BYTES, oldTable.getLong(slot * SLOT_BYTES + Long.BYTES));
+                used++;
+                size++;
+            }
+        }
+
+        private void allocate(int newCapacity) {
+            table = memory.allocate(newCapacity * SLOT_BYTES);
+            capacity = newCapacity;
+            used = 0;
+            size = 0;
+        }
+    }
+}
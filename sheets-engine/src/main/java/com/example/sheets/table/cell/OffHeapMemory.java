@@ -0,0 +1,46 @@
+package com.example.sheets.table.cell;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Allocates off-heap buffers, either direct or mapped from temporary files in {@code directory}.
+ * The memory is released once the buffers are garbage collected.
+ */
+final class OffHeapMemory {
+
+    private final Path directory;
+
+    /**
+     * @param directory where to put the mapped files, or {@code null} for direct buffers
+     */
+    OffHeapMemory(Path directory) {
+        this.directory = directory;
+    }
+
+    ByteBuffer allocate(int bytes) {
+        if (directory == null)
+            return ByteBuffer.allocateDirect(bytes);
+
+        try {
+            var file = Files.createTempFile(directory, "sheets-", ".bin");
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            } finally {
+                // The mapping stays valid after the file is unlinked
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map a file in " + directory, e);
+        }
+    }
+}
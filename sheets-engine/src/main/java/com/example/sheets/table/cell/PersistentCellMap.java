@@ -0,0 +1,284 @@
+package com.example.sheets.table.cell;
+
+/**
+ * Immutable hash array mapped trie from packed addresses to cells. An update copies only the path to
+ * the changed entry, at most 13 nodes of up to 32 slots, and shares everything else with the previous
+ * version. Any version can be kept for free, and two versions are compared by skipping the shared subtrees.
+ * <p>
+ * Keys are hashed with a bijective mix of all the 64 bits, so distinct keys never collide.
+ */
+public final class PersistentCellMap {
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, Cell cell);
+    }
+
+    @FunctionalInterface
+    public interface DifferenceConsumer {
+        /**
+         * @param before the cell in this version, or null if the key is added
+         * @param after  the cell in the other version, or null if the key is removed
+         */
+        void accept(long key, Cell before, Cell after);
+    }
+
+    public static final PersistentCellMap EMPTY = new PersistentCellMap(Node.EMPTY, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentCellMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    private record Entry(long key, Cell cell) {
+    }
+
+    /**
+     * Slots hold an {@link Entry} or a child {@link Node}, only for the bits set in the bitmap.
+     * A node is only modified in place by the {@link #putAll} call that created it, as told by its {@code edit}.
+     */
+    private static final class Node {
+        private static final Node EMPTY = new Node(0, new Object[0], null);
+
+        private int bitmap;
+        private Object[] slots;
+        private final Object edit;
+
+        private Node(int bitmap, Object[] slots, Object edit) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+            this.edit = edit;
+        }
+
+        private Node(int bitmap, Object[] slots) {
+            this(bitmap, slots, null);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Object slot(int bit) {
+            return (bitmap & bit) == 0 ? null : slots[index(bit)];
+        }
+
+        private Node with(int bit, Object slot) {
+            return with(bit, slot, null);
+        }
+
+        private Node with(int bit, Object slot, Object edit) {
+            int index = index(bit);
+            boolean editable = edit != null && this.edit == edit;
+            if ((bitmap & bit) != 0) {
+                if (editable) {
+                    slots[index] = slot;
+                    return this;
+                }
+                var newSlots = slots.clone();
+                newSlots[index] = slot;
+                return new Node(bitmap, newSlots, edit);
+            }
+            var newSlots = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            newSlots[index] = slot;
+            System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+            if (editable) {
+                bitmap |= bit;
+                slots = newSlots;
+                return this;
+            }
+            return new Node(bitmap | bit, newSlots, edit);
+        }
+
+        private Node without(int bit) {
+            int index = index(bit);
+            var newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new Node(bitmap & ~bit, newSlots);
+        }
+
+        private Node put(Entry entry, long hash, int shift, Object edit) {
+            int bit = bit(hash, shift);
+            var slot = slot(bit);
+            if (slot == null)
+                return with(bit, entry, edit);
+            if (slot instanceof Node child) {
+                var newChild = child.put(entry, hash, shift + BITS, edit);
+                return newChild == child ? this : with(bit, newChild, edit);
+            }
+            var existing = (Entry) slot;
+            if (existing.key() == entry.key())
+                return existing.cell() == entry.cell() ? this : with(bit, entry, edit);
+            return with(bit, merge(existing, entry, hash, shift + BITS, edit), edit);
+        }
+
+        private Node remove(long key, long hash, int shift) {
+            int bit = bit(hash, shift);
+            var slot = slot(bit);
+            if (slot == null)
+                return this;
+            if (slot instanceof Entry entry)
+                return entry.key() == key ? without(bit) : this;
+
+            var child = (Node) slot;
+            var newChild = child.remove(key, hash, shift + BITS);
+            if (newChild == child)
+                return this;
+            if (newChild.slots.length == 0)
+                return without(bit);
+            // A single entry moves up, so every node keeps at least two entries under it
+            if (newChild.slots.length == 1 && newChild.slots[0] instanceof Entry single)
+                return with(bit, single);
+            return with(bit, newChild);
+        }
+
+        private void forEach(EntryConsumer action) {
+            for (var slot : slots) {
+                if (slot instanceof Entry entry)
+                    action.accept(entry.key(), entry.cell());
+                else
+                    ((Node) slot).forEach(action);
+            }
+        }
+    }
+
+    private static Node merge(Entry a, Entry b, long hashB, int shift, Object edit) {
+        long hashA = hash(a.key());
+        int bitA = bit(hashA, shift);
+        int bitB = bit(hashB, shift);
+        if (bitA == bitB)
+            return new Node(bitA, new Object[]{merge(a, b, hashB, shift + BITS, edit)}, edit);
+        var slots = Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[]{a, b} : new Object[]{b, a};
+        return new Node(bitA | bitB, slots, edit);
+    }
+
+    private static long hash(long key) {
+        // Finalizer of MurmurHash3, a bijection of longs
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static int bit(long hash, int shift) {
+        return 1 << ((int) (hash >>> shift) & MASK);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Cell get(long key) {
+        return get(root, key);
+    }
+
+    private static Cell get(Node root, long key) {
+        long hash = hash(key);
+        var node = root;
+        for (int shift = 0; ; shift += BITS) {
+            var slot = node.slot(bit(hash, shift));
+            if (slot == null)
+                return null;
+            if (slot instanceof Entry entry)
+                return entry.key() == key ? entry.cell() : null;
+            node = (Node) slot;
+        }
+    }
+
+    public PersistentCellMap put(long key, Cell cell) {
+        var newRoot = root.put(new Entry(key, cell), hash(key), 0, null);
+        if (newRoot == root)
+            return this;
+        return new PersistentCellMap(newRoot, get(key) == null ? size + 1 : size);
+    }
+
+    /**
+     * Same as {@link #put} for each pair, but the nodes copied by this call are updated in place
+     * by its later puts, so each node on the paths is copied once rather than once per key.
+     */
+    public PersistentCellMap putAll(long[] keys, Cell[] cells) {
+        var edit = new Object();
+        var newRoot = root;
+        int newSize = size;
+        for (int i = 0; i < keys.length; i++) {
+            if (get(newRoot, keys[i]) == null)
+                newSize++;
+            newRoot = newRoot.put(new Entry(keys[i], cells[i]), hash(keys[i]), 0, edit);
+        }
+        return newRoot == root ? this : new PersistentCellMap(newRoot, newSize);
+    }
+
+    public PersistentCellMap remove(long key) {
+        var newRoot = root.remove(key, hash(key), 0);
+        return newRoot == root ? this : new PersistentCellMap(newRoot, size - 1);
+    }
+
+    public void forEach(EntryConsumer action) {
+        root.forEach(action);
+    }
+
+    /**
+     * Calls {@code action} with every key mapped to a different cell in {@code other},
+     * in time proportional to the differences rather than to the sizes.
+     */
+    public void forEachDifference(PersistentCellMap other, DifferenceConsumer action) {
+        difference(root, other.root, 0, action);
+    }
+
+    private static void difference(Node a, Node b, int shift, DifferenceConsumer action) {
+        if (a == b)
+            return;
+        int bits = a.bitmap | b.bitmap;
+        while (bits != 0) {
+            int bit = Integer.lowestOneBit(bits);
+            bits &= ~bit;
+            difference(a.slot(bit), b.slot(bit), shift + BITS, action);
+        }
+    }
+
+    private static void difference(Object a, Object b, int shift, DifferenceConsumer action) {
+        if (a == b)
+            return;
+        if (a == null) {
+            forEach(b, (key, cell) -> action.accept(key, null, cell));
+        } else if (b == null) {
+            forEach(a, (key, cell) -> action.accept(key, cell, null));
+        } else if (a instanceof Entry entryA && b instanceof Entry entryB) {
+            if (entryA.key() == entryB.key()) {
+                if (entryA.cell() != entryB.cell())
+                    action.accept(entryA.key(), entryA.cell(), entryB.cell());
+            } else {
+                action.accept(entryA.key(), entryA.cell(), null);
+                action.accept(entryB.key(), null, entryB.cell());
+            }
+        } else {
+            difference(asNode(a, shift), asNode(b, shift), shift, action);
+        }
+    }
+
+    private static void forEach(Object slot, EntryConsumer action) {
+        if (slot instanceof Entry entry)
+            action.accept(entry.key(), entry.cell());
+        else
+            ((Node) slot).forEach(action);
+    }
+
+    /**
+     * An entry compared to a node is compared as a node of its own at the same level.
+     */
+    private static Node asNode(Object slot, int shift) {
+        if (slot instanceof Node node)
+            return node;
+        var entry = (Entry) slot;
+        return new Node(bit(hash(entry.key()), shift), new Object[]{entry});
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.sheets.table.cell;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the cells in a {@link PersistentCellMap}, every update publishes a new version of it.
+ * Readers and snapshots just read the current version and never see it change.
+ */
+final class PersistentFormulaStore implements FormulaStore {
+
+    private volatile PersistentCellMap cells = PersistentCellMap.EMPTY;
+
+    @Override
+    public Cell get(CellAddress address) {
+        return cells.get(address.pack());
+    }
+
+    @Override
+    public synchronized void put(CellAddress address, Cell cell) {
+        cells = cells.put(address.pack(), cell);
+    }
+
+    @Override
+    public synchronized void putAll(Map<CellAddress, Cell> cells) {
+        var keys = new long[cells.size()];
+        var values = new Cell[cells.size()];
+        int i = 0;
+        for (var entry : cells.entrySet()) {
+            keys[i] = entry.getKey().pack();
+            values[i] = entry.getValue();
+            i++;
+        }
+        this.cells = this.cells.putAll(keys, values);
+    }
+
+    @Override
+    public synchronized void removeIf(Predicate<CellAddress> filter) {
+        var current = cells;
+        var retained = new PersistentCellMap[]{current};
+        current.forEach((key, cell) -> {
+            if (filter.test(CellAddress.unpack(key)))
+                retained[0] = retained[0].remove(key);
+        });
+        cells = retained[0];
+    }
+
+    @Override
+    public void forEach(BiConsumer<CellAddress, String> action) {
+        cells.forEach((key, cell) -> action.accept(CellAddress.unpack(key), cell.getFormula()));
+    }
+
+    /**
+     * Costs a field read, the versions of the map are never modified.
+     */
+    @Override
+    public Snapshot snapshot() {
+        return new MapSnapshot(cells);
+    }
+
+    private record MapSnapshot(PersistentCellMap cells) implements Snapshot {
+        @Override
+        public int size() {
+            return cells.size();
+        }
+
+        @Override
+        public String getFormula(long key) {
+            var cell = cells.get(key);
+            return cell == null ? null : cell.getFormula();
+        }
+
+        @Override
+        public void forEach(BiConsumer<CellAddress, String> action) {
+            cells.forEach((key, cell) -> action.accept(CellAddress.unpack(key), cell.getFormula()));
+        }
+
+        /**
+         * Only walks the parts of the maps which differ, when both are versions of a map.
+         */
+        @Override
+        public void forEachChange(Snapshot target, BiConsumer<CellAddress, String> action) {
+            if (!(target instanceof MapSnapshot other)) {
+                Snapshot.super.forEachChange(target, action);
+                return;
+            }
+            cells.forEachDifference(other.cells, (key, before, after) -> {
+                var formula = after == null ? "" : after.getFormula();
+                if (before == null || !before.getFormula().equals(formula))
+                    action.accept(CellAddress.unpack(key), formula);
+            });
+        }
+    }
+}
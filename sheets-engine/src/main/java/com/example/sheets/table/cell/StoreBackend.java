@@ -0,0 +1,30 @@
+package com.example.sheets.table.cell;
+
+import java.nio.file.Path;
+
+/**
+ * Where a {@link CellStore} keeps its formulas and values. Off-heap stores keep only the {@code cachedCells}
+ * most recently used parsed cells on-heap, and map their memory from files in {@code directory} if it's set.
+ *
+ * @see #fromSystemProperties()
+ */
+public record StoreBackend(boolean offHeap, Path directory, int cachedCells) {
+
+    public static final StoreBackend HEAP = new StoreBackend(false, null, 0);
+    public static final int DEFAULT_CACHED_CELLS = 100_000;
+
+    /**
+     * Off-heap if the JVM is started with {@code -Dsheets.store=offheap}, mapping files from
+     * {@code -Dsheets.store.dir} and caching {@code -Dsheets.store.cache} parsed cells.
+     */
+    public static StoreBackend fromSystemProperties() {
+        if (!"offheap".equals(System.getProperty("sheets.store")))
+            return HEAP;
+        var directory = System.getProperty("sheets.store.dir");
+        return new StoreBackend(
+            true,
+            directory == null ? null : Path.of(directory),
+            Integer.getInteger("sheets.store.cache", DEFAULT_CACHED_CELLS)
+        );
+    }
+}
@@ -0,0 +1,525 @@
+package com.example.sheets.table.cell;
+
+import com.example.sheets.expression.parser.ast.NodeValue;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Memoized values of the cells of a {@link CellStore}, addressed by the same coordinates.
+ * Values live in 64x64 pages of primitive arrays: a type tag and a double per cell, 9 bytes, plus the revisions
+ * the value was verified and changed at, which lazy verification needs. On-heap pages allocate a row of 64 cells
+ * with its first value, and strings and errors go to a per row array allocated with the first of them, so a
+ * sparse sheet pays about 1.6KB per filled row of a page rather than 100KB per page. Readers don't block: a page is read optimistically and only retried under its read lock
+ * if a writer got in between. Pages are kept off-heap when the store is created with an {@link OffHeapMemory}.
+ * <p>
+ * A slot starts {@link #EMPTY}, which reads as an empty string verified at every revision, and becomes
+ * {@link #UNCOMPUTED} when a cell is put at its address. Values can't be published to empty slots,
+ * so a late reader can't resurrect the value of a removed cell.
+ */
+public final class ValueStore {
+
+    public record Entry(NodeValue value, long verifiedAt, long changedAt) {
+    }
+
+    private static final byte EMPTY = 0;
+    private static final byte UNCOMPUTED = 1;
+    private static final byte NUMBER = 2;
+    private static final byte STRING = 3;
+    private static final byte ERROR = 4;
+
+    private static final int PAGE_BITS = 6;
+    /**
+     * Rows and columns of a page.
+     */
+    public static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGES_PER_SIDE = (Math.max(CellStore.MAX_ROW_COUNT, CellStore.MAX_COLUMN_COUNT) + PAGE_MASK) >> PAGE_BITS;
+
+    private static final NodeValue.Str EMPTY_VALUE = new NodeValue.Str("");
+    private static final Entry EMPTY_ENTRY = new Entry(EMPTY_VALUE, Long.MAX_VALUE, 0);
+
+    private abstract static class Page {
+        static final int SLOTS = PAGE_SIZE * PAGE_SIZE;
+
+        final StampedLock lock = new StampedLock();
+        /**
+         * Strings and errors by row of the page, a row allocated with the first of them.
+         */
+        private final NodeValue[][] objects = new NodeValue[PAGE_SIZE][];
+
+        NodeValue object(int slot) {
+            var row = objects[slot >> PAGE_BITS];
+            return row == null ? null : row[slot & PAGE_MASK];
+        }
+
+        void object(int slot, NodeValue value) {
+            var row = objects[slot >> PAGE_BITS];
+            if (row == null) {
+                if (value == null)
+                    return;
+                row = objects[slot >> PAGE_BITS] = new NodeValue[PAGE_SIZE];
+            }
+            row[slot & PAGE_MASK] = value;
+        }
+
+        abstract byte tag(int slot);
+
+        abstract void tag(int slot, byte tag);
+
+        abstract double number(int slot);
+
+        abstract void number(int slot, double number);
+
+        abstract long verifiedAt(int slot);
+
+        abstract void verifiedAt(int slot, long revision);
+
+        abstract long changedAt(int slot);
+
+        abstract void changedAt(int slot, long revision);
+    }
+
+    /**
+     * Allocates a row of the page with the first value put to it, so a sparse sheet doesn't pay for whole pages.
+     */
+    private static final class HeapPage extends Page {
+        private static final class Row {
+            final byte[] tags = new byte[PAGE_SIZE];
+            final double[] numbers = new double[PAGE_SIZE];
+            final long[] verifiedAt = new long[PAGE_SIZE];
+            final long[] changedAt = new long[PAGE_SIZE];
+        }
+
+        private final Row[] rows = new Row[PAGE_SIZE];
+
+        private Row row(int slot) {
+            return rows[slot >> PAGE_BITS];
+        }
+
+        private Row rowForWrite(int slot) {
+            var row = rows[slot >> PAGE_BITS];
+            if (row == null)
+                row = rows[slot >> PAGE_BITS] = new Row();
+            return row;
+        }
+
+        @Override
+        byte tag(int slot) {
+            var row = row(slot);
+            return row == null ? EMPTY : row.tags[slot & PAGE_MASK];
+        }
+
+        @Override
+        void tag(int slot, byte tag) {
+            if (tag == EMPTY && row(slot) == null)
+                return;
+            rowForWrite(slot).tags[slot & PAGE_MASK] = tag;
+        }
+
+        @Override
+        double number(int slot) {
+            var row = row(slot);
+            return row == null ? 0 : row.numbers[slot & PAGE_MASK];
+        }
+
+        @Override
+        void number(int slot, double number) {
+            rowForWrite(slot).numbers[slot & PAGE_MASK] = number;
+        }
+
+        @Override
+        long verifiedAt(int slot) {
+            var row = row(slot);
+            return row == null ? 0 : row.verifiedAt[slot & PAGE_MASK];
+        }
+
+        @Override
+        void verifiedAt(int slot, long revision) {
+            rowForWrite(slot).verifiedAt[slot & PAGE_MASK] = revision;
+        }
+
+        @Override
+        long changedAt(int slot) {
+            var row = row(slot);
+            return row == null ? 0 : row.changedAt[slot & PAGE_MASK];
+        }
+
+        @Override
+        void changedAt(int slot, long revision) {
+            rowForWrite(slot).changedAt[slot & PAGE_MASK] = revision;
+        }
+    }
+
+    /**
+     * The columns of a {@link HeapPage} in a single off-heap buffer: tags, then numbers and both stamps.
+     */
+    private static final class DirectPage extends Page {
+        private static final int NUMBERS = SLOTS;
+        private static final int VERIFIED_AT = NUMBERS + SLOTS * Double.BYTES;
+        private static final int CHANGED_AT = VERIFIED_AT + SLOTS * Long.BYTES;
+        static final int BYTES = CHANGED_AT + SLOTS * Long.BYTES;
+
+        final ByteBuffer buffer;
+
+        DirectPage(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        byte tag(int slot) {
+            return buffer.get(slot);
+        }
+
+        @Override
+        void tag(int slot, byte tag) {
+            buffer.put(slot, tag);
+        }
+
+        @Override
+        double number(int slot) {
+            return buffer.getDouble(NUMBERS + slot * Double.BYTES);
+        }
+
+        @Override
+        void number(int slot, double number) {
+            buffer.putDouble(NUMBERS + slot * Double.BYTES, number);
+        }
+
+        @Override
+        long verifiedAt(int slot) {
+            return buffer.getLong(VERIFIED_AT + slot * Long.BYTES);
+        }
+
+        @Override
+        void verifiedAt(int slot, long revision) {
+            buffer.putLong(VERIFIED_AT + slot * Long.BYTES, revision);
+        }
+
+        @Override
+        long changedAt(int slot) {
+            return buffer.getLong(CHANGED_AT + slot * Long.BYTES);
+        }
+
+        @Override
+        void changedAt(int slot, long revision) {
+            buffer.putLong(CHANGED_AT + slot * Long.BYTES, revision);
+        }
+    }
+
+    private final AtomicReferenceArray<Page> pages = new AtomicReferenceArray<>(PAGES_PER_SIDE * PAGES_PER_SIDE);
+    /**
+     * Where to allocate off-heap pages, {@code null} for on-heap pages.
+     */
+    private final OffHeapMemory memory;
+
+    public ValueStore() {
+        this(null);
+    }
+
+    ValueStore(OffHeapMemory memory) {
+        this.memory = memory;
+    }
+
+    /**
+     * @return the value if it was verified at {@code revision} or later, otherwise {@code null}
+     */
+    public NodeValue getVerified(int row, int column, long revision) {
+        var page = getPage(row, column);
+        if (page == null)
+            return EMPTY_VALUE;
+        int slot = slot(row, column);
+
+        long stamp = page.lock.tryOptimisticRead();
+        var value = readVerified(page, slot, revision);
+        if (page.lock.validate(stamp))
+            return value;
+
+        stamp = page.lock.readLock();
+        try {
+            return readVerified(page, slot, revision);
+        } finally {
+            page.lock.unlockRead(stamp);
+        }
+    }
+
+    private static NodeValue readVerified(Page page, int slot, long revision) {
+        byte tag = page.tag(slot);
+        if (tag == EMPTY)
+            return EMPTY_VALUE;
+        if (tag == UNCOMPUTED || page.verifiedAt(slot) < revision)
+            return null;
+        return toValue(page, slot, tag);
+    }
+
+    /**
+     * @return the revision the value last changed at, or -1 if it was never computed
+     */
+    public long getChangedAt(int row, int column) {
+        var page = getPage(row, column);
+        if (page == null)
+            return 0;
+        int slot = slot(row, column);
+
+        long stamp = page.lock.tryOptimisticRead();
+        byte tag = page.tag(slot);
+        long changedAt = page.changedAt(slot);
+        if (!page.lock.validate(stamp)) {
+            stamp = page.lock.readLock();
+            try {
+                tag = page.tag(slot);
+                changedAt = page.changedAt(slot);
+            } finally {
+                page.lock.unlockRead(stamp);
+            }
+        }
+        return switch (tag) {
+            case EMPTY -> 0;
+            case UNCOMPUTED -> -1;
+            default -> changedAt;
+        };
+    }
+
+    /**
+     * @return the memoized value, or {@code null} if it was never computed
+     */
+    public Entry get(int row, int column) {
+        var page = getPage(row, column);
+        if (page == null)
+            return EMPTY_ENTRY;
+        int slot = slot(row, column);
+
+        long stamp = page.lock.readLock();
+        try {
+            return switch (page.tag(slot)) {
+                case EMPTY -> EMPTY_ENTRY;
+                case UNCOMPUTED -> null;
+                default -> new Entry(toValue(page, slot, page.tag(slot)), page.verifiedAt(slot), page.changedAt(slot));
+            };
+        } finally {
+            page.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Publishes the value unless the slot is empty or holds a value verified at the same or a later revision.
+     */
+    public void publish(int row, int column, NodeValue value, long verifiedAt, long changedAt) {
+        var page = getPage(row, column);
+        if (page == null)
+            return;
+        int slot = slot(row, column);
+
+        long stamp = page.lock.writeLock();
+        try {
+            byte tag = page.tag(slot);
+            if (tag == EMPTY || tag != UNCOMPUTED && page.verifiedAt(slot) >= verifiedAt)
+                return;
+
+            switch (value) {
+                case NodeValue.Number x -> {
+                    page.tag(slot, NUMBER);
+                    page.number(slot, x.value());
+                    page.object(slot, null);
+                }
+                case NodeValue.Str x -> setObject(page, slot, STRING, x);
+                case NodeValue.Error x -> setObject(page, slot, ERROR, x);
+            }
+            page.verifiedAt(slot, verifiedAt);
+            page.changedAt(slot, changedAt);
+        } finally {
+            page.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reads the values of {@code length} cells of a column from {@code fromRow} down, a page at a time.
+     * Rows holding a number verified at {@code revision} or later get it and the revision it changed at,
+     * the others are flagged in {@code missing}.
+     */
+    public void getNumbers(int column, int fromRow, int length, long revision,
+                           double[] numbers, long[] changedAt, boolean[] missing) {
+        int i = 0;
+        while (i < length) {
+            int row = fromRow + i;
+            int count = row < 0 ? Math.min(length - i, -row) : Math.min(length - i, PAGE_SIZE - (row & PAGE_MASK));
+            var page = getPage(row, column);
+            if (page == null) {
+                for (int j = i; j < i + count; j++)
+                    missing[j] = true;
+                i += count;
+                continue;
+            }
+
+            long stamp = page.lock.tryOptimisticRead();
+            readNumbers(page, row, column, revision, numbers, changedAt, missing, i, count);
+            if (!page.lock.validate(stamp)) {
+                stamp = page.lock.readLock();
+                try {
+                    readNumbers(page, row, column, revision, numbers, changedAt, missing, i, count);
+                } finally {
+                    page.lock.unlockRead(stamp);
+                }
+            }
+            i += count;
+        }
+    }
+
+    private static void readNumbers(Page page, int row, int column, long revision,
+                                    double[] numbers, long[] changedAt, boolean[] missing, int offset, int count) {
+        for (int j = 0; j < count; j++) {
+            int slot = slot(row + j, column);
+            boolean verified = page.tag(slot) == NUMBER && page.verifiedAt(slot) >= revision;
+            missing[offset + j] = !verified;
+            if (verified) {
+                numbers[offset + j] = page.number(slot);
+                changedAt[offset + j] = page.changedAt(slot);
+            }
+        }
+    }
+
+    /**
+     * Publishes numbers computed for {@code length} cells of a column from {@code fromRow} down, a page at
+     * a time, the way a single cell is verified: a slot verified at {@code revision} is left alone, one whose
+     * inputs didn't change since it was verified keeps its value, and otherwise the number is put, keeping
+     * the revision it changed at if it's equal to the old one. Rows flagged in {@code skip} are left alone.
+     *
+     * @param inputsChangedAt the latest revision the formula or an input of each row changed at
+     * @return the count of numbers put
+     */
+    public int publishNumbers(int column, int fromRow, int length,
+                              double[] numbers, long[] inputsChangedAt, boolean[] skip, long revision) {
+        int published = 0;
+        int i = 0;
+        while (i < length) {
+            int row = fromRow + i;
+            int count = Math.min(length - i, PAGE_SIZE - (row & PAGE_MASK));
+            var page = getPage(row, column);
+            if (page == null) {
+                i += count;
+                continue;
+            }
+
+            long stamp = page.lock.writeLock();
+            try {
+                for (int j = i; j < i + count; j++) {
+                    int slot = slot(fromRow + j, column);
+                    byte tag = page.tag(slot);
+                    if (skip[j] || tag == EMPTY)
+                        continue;
+                    if (tag != UNCOMPUTED) {
+                        long verifiedAt = page.verifiedAt(slot);
+                        if (verifiedAt >= revision)
+                            continue;
+                        if (inputsChangedAt[j] <= verifiedAt) {
+                            page.verifiedAt(slot, revision);
+                            continue;
+                        }
+                    }
+                    if (tag != NUMBER || Double.compare(page.number(slot), numbers[j]) != 0)
+                        page.changedAt(slot, inputsChangedAt[j]);
+                    page.tag(slot, NUMBER);
+                    page.number(slot, numbers[j]);
+                    page.object(slot, null);
+                    page.verifiedAt(slot, revision);
+                    published++;
+                }
+            } finally {
+                page.lock.unlockWrite(stamp);
+            }
+            i += count;
+        }
+        return published;
+    }
+
+    /**
+     * Makes an empty slot accept values. Must be called before the cell is put at the address.
+     */
+    public void reserve(int row, int column) {
+        var page = getOrCreatePage(row, column);
+        if (page == null)
+            return;
+        int slot = slot(row, column);
+
+        long stamp = page.lock.writeLock();
+        try {
+            if (page.tag(slot) == EMPTY)
+                page.tag(slot, UNCOMPUTED);
+        } finally {
+            page.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Empties all the slots outside of {@code rowCount x columnCount}.
+     */
+    public void retain(int rowCount, int columnCount) {
+        for (int i = 0; i < pages.length(); i++) {
+            var page = pages.get(i);
+            if (page == null)
+                continue;
+            int firstRow = (i / PAGES_PER_SIDE) << PAGE_BITS;
+            int firstColumn = (i % PAGES_PER_SIDE) << PAGE_BITS;
+            if (firstRow >= rowCount || firstColumn >= columnCount) {
+                pages.set(i, null);
+                continue;
+            }
+            if (firstRow + PAGE_SIZE <= rowCount && firstColumn + PAGE_SIZE <= columnCount)
+                continue;
+
+            long stamp = page.lock.writeLock();
+            try {
+                for (int slot = 0; slot < Page.SLOTS; slot++) {
+                    if (firstRow + (slot >> PAGE_BITS) < rowCount && firstColumn + (slot & PAGE_MASK) < columnCount)
+                        continue;
+                    page.tag(slot, EMPTY);
+                    page.object(slot, null);
+                }
+            } finally {
+                page.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private static void setObject(Page page, int slot, byte tag, NodeValue value) {
+        page.tag(slot, tag);
+        page.object(slot, value);
+    }
+
+    private static NodeValue toValue(Page page, int slot, byte tag) {
+        if (tag == NUMBER)
+            return new NodeValue.Number(page.number(slot));
+        return page.object(slot);
+    }
+
+    private Page getPage(int row, int column) {
+        int index = pageIndex(row, column);
+        return index < 0 ? null : pages.get(index);
+    }
+
+    private Page getOrCreatePage(int row, int column) {
+        int index = pageIndex(row, column);
+        if (index < 0)
+            return null;
+        var page = pages.get(index);
+        if (page != null)
+            return page;
+        pages.compareAndSet(index, null, memory == null ? new HeapPage() : new DirectPage(memory.allocate(DirectPage.BYTES)));
+        return pages.get(index);
+    }
+
+    private static int pageIndex(int row, int column) {
+        if (row < 0 || column < 0)
+            return -1;
+        int pageRow = row >> PAGE_BITS;
+        int pageColumn = column >> PAGE_BITS;
+        if (pageRow >= PAGES_PER_SIDE || pageColumn >= PAGES_PER_SIDE)
+            return -1;
+        return pageRow * PAGES_PER_SIDE + pageColumn;
+    }
+
+    private static int slot(int row, int column) {
+        return (row & PAGE_MASK) << PAGE_BITS | column & PAGE_MASK;
+    }
+}
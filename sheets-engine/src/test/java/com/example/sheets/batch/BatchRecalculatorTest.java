@@ -0,0 +1,54 @@
+package com.example.sheets.batch;
+
+import com.example.sheets.table.CellManager;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.StoreBackend;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRecalculatorTest {
+
+    private static Path workbook(Path directory, String name, Map<CellAddress, String> formulas) throws Exception {
+        var manager = new CellManager(3, 3, StoreBackend.HEAP);
+        manager.setValues(formulas);
+        return Files.writeString(directory.resolve(name), manager.save());
+    }
+
+    @Test
+    void workbooksAreRecalculated(@TempDir Path directory) throws Exception {
+        var input = Files.createDirectory(directory.resolve("in"));
+        var output = Files.createDirectory(directory.resolve("out"));
+        var first = workbook(input, "first.json", Map.of(new CellAddress(0, 0), "2", new CellAddress(1, 1), "=A1 * 3"));
+        var broken = Files.writeString(input.resolve("broken.json"), "{");
+
+        var reports = new BatchRecalculator(output, OutputFormat.CSV, 2).run(List.of(first, broken));
+
+        assertTrue(reports.get(0).isSuccessful());
+        assertEquals(2, reports.get(0).cellCount());
+        assertEquals("2,\n,6\n", Files.readString(output.resolve("first.csv")));
+        assertFalse(reports.get(1).isSuccessful());
+        assertTrue(reports.get(1).failure().orElseThrow().startsWith("Unable to parse"));
+    }
+
+    @Test
+    void inputsWithTheSameStemDontOverwriteEachOther(@TempDir Path directory) throws Exception {
+        var a = workbook(directory, "a.json", Map.of(new CellAddress(0, 0), "1"));
+        var b = workbook(directory, "a.txt", Map.of(new CellAddress(0, 0), "2"));
+        var c = workbook(directory, "c.json", Map.of(new CellAddress(0, 0), "3"));
+        var output = Files.createDirectory(directory.resolve("out"));
+
+        var reports = new BatchRecalculator(output, OutputFormat.CSV, 1).run(List.of(a, b, c));
+
+        assertTrue(reports.stream().allMatch(FileReport::isSuccessful));
+        assertEquals("1\n", Files.readString(output.resolve("a.json.csv")));
+        assertEquals("2\n", Files.readString(output.resolve("a.txt.csv")));
+        assertEquals("3\n", Files.readString(output.resolve("c.csv")));
+    }
+}
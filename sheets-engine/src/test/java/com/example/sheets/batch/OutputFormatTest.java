@@ -0,0 +1,50 @@
+package com.example.sheets.batch;
+
+import com.example.sheets.table.CellManager;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.StoreBackend;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputFormatTest {
+
+    private static CellManager manager() {
+        var manager = new CellManager(4, 4, StoreBackend.HEAP);
+        manager.setValues(Map.of(
+            new CellAddress(0, 1), "a, \"b\"",
+            new CellAddress(1, 0), "=1 / 4",
+            new CellAddress(1, 1), "=A3"
+        ));
+        return manager;
+    }
+
+    @Test
+    void csvCoversTheFilledRectangle() throws Exception {
+        var manager = manager();
+        var out = new StringWriter();
+        OutputFormat.CSV.write(manager, manager.getFilledAddresses(), out);
+        assertEquals(",\"a, \"\"b\"\"\"\n0.25,\n", out.toString());
+    }
+
+    @Test
+    void jsonListsTheFilledCells() throws Exception {
+        var manager = manager();
+        var addresses = List.of(new CellAddress(1, 0), new CellAddress(0, 1));
+        var out = new StringWriter();
+        OutputFormat.JSON.write(manager, addresses, out);
+
+        OutputFormat.ValuesInfo values = new ObjectMapper().readValue(out.toString(), OutputFormat.ValuesInfo.class);
+        assertEquals(4, values.rowCount());
+        assertEquals(4, values.columnCount());
+        assertEquals(List.of(
+            new OutputFormat.ValueInfo(1, 0, "0.25"),
+            new OutputFormat.ValueInfo(0, 1, "a, \"b\"")
+        ), values.cells());
+    }
+}
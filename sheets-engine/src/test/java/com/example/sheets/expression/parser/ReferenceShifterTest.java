@@ -0,0 +1,26 @@
+package com.example.sheets.expression.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceShifterTest {
+
+    @Test
+    void shiftsReferencesAndKeepsTheRest() {
+        assertEquals("=sin(B3) +  Data!C2*\"A1\"", ReferenceShifter.shift("=sin(A1) +  Data!B0*\"A1\"", 2, 1));
+        assertEquals("=AA10", ReferenceShifter.shift("=Z1", 9, 1));
+    }
+
+    @Test
+    void referencesMovedOutOfTableAreInvalid() {
+        assertEquals("=A0 + A1", ReferenceShifter.shift("=B2 + C3", -2, -2));
+    }
+
+    @Test
+    void keepsNonFormulas() {
+        assertEquals("A1", ReferenceShifter.shift("A1", 1, 1));
+        assertEquals("=\"broken", ReferenceShifter.shift("=\"broken", 1, 1));
+        assertEquals("=1 + 2", ReferenceShifter.shift("=1 + 2", 1, 1));
+    }
+}
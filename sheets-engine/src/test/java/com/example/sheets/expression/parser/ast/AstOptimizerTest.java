@@ -0,0 +1,74 @@
+package com.example.sheets.expression.parser.ast;
+
+import com.example.sheets.expression.parser.lexer.CharArrayLexer;
+import com.example.sheets.expression.parser.lexer.LexerException;
+import net.jqwik.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.example.sheets.expression.parser.ast.Bodies.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AstOptimizerTest {
+
+    private static final AstNode.Reference.Address A1 = new AstNode.Reference.Address(0, 0);
+    private static final AstNode.Reference.Address B1 = new AstNode.Reference.Address(0, 1);
+
+    @Test
+    void foldsConstantSubtrees() throws Exception {
+        var ast = AstOptimizer.optimize(parse("=pow(2, 10) * pi * A1"));
+        assertEquals(
+            new AstNode.BinaryOp(new AstNode.NumberLiteral(1024 * Math.PI), new AstNode.Reference(A1), ASTERISK_BODY),
+            ast);
+    }
+
+    @Test
+    void foldsErrors() throws Exception {
+        var ast = AstOptimizer.optimize(parse("=\"a\" * 2 + A1"));
+        assertInstanceOf(AstNode.Error.class, ((AstNode.BinaryOp) ast).leftOperand());
+    }
+
+    @Test
+    void sharesEqualSubtrees() throws Exception {
+        var ast = (AstNode.BinaryOp) AstOptimizer.optimize(parse("=sin(A1 + B1) + sin(A1 + B1)"));
+        assertSame(ast.leftOperand(), ast.rightOperand());
+
+        var reads = new AtomicInteger();
+        var formula = AstOptimizer.compile(parse("=sin(A1 + B1) + sin(A1 + B1) * A1"));
+        var value = formula.getValue(address -> {
+            reads.incrementAndGet();
+            return new NodeValue.Number(1);
+        });
+        assertEquals(new NodeValue.Number(Math.sin(2) * 2), value);
+        assertEquals(2, reads.get());
+        assertEquals(List.of(A1, B1), formula.getReferences());
+    }
+
+    @Property
+    void sameValueAsUnoptimized(@ForAll("formulas") String formula) throws LexerException {
+        AstNode ast;
+        try {
+            ast = parse(formula);
+        } catch (ParseException e) {
+            return;
+        }
+        Function<AstNode.Reference.Address, NodeValue> memory = address ->
+            address.equals(A1) ? new NodeValue.Number(3) : new NodeValue.Str("b");
+        assertEquals(ast.getValue(memory), AstOptimizer.compile(ast).getValue(memory), formula);
+    }
+
+    @Provide
+    Arbitrary<String> formulas() {
+        return Arbitraries.of("1", "2.5", "A1", "B1", "\"s\"", "sin", "max", "pi", "pow", "substr",
+                "+", "-", "*", "/", "(", ")", ",")
+            .list().ofMaxSize(12)
+            .map(tokens -> "=" + String.join(" ", tokens));
+    }
+
+    private static AstNode parse(String formula) throws LexerException, ParseException {
+        return new OperatorPrecedenceParser().parse(new CharArrayLexer().tokenize(formula));
+    }
+}
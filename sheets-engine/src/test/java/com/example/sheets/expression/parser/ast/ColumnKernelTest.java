@@ -0,0 +1,79 @@
+package com.example.sheets.expression.parser.ast;
+
+import com.example.sheets.expression.parser.lexer.CharArrayLexer;
+import com.example.sheets.expression.parser.lexer.LexerException;
+import net.jqwik.api.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnKernelTest {
+
+    /**
+     * Several vectors of any species and a partial one.
+     */
+    private static final int ROWS = 37;
+
+    @Test
+    void shiftedFormulasShareTheShape() throws Exception {
+        var first = ColumnKernel.of(compile("=A1 * B1 + C2"));
+        var third = ColumnKernel.of(compile("=A3 * B3 + C4"));
+        assertNotNull(first);
+        assertTrue(first.isShiftedBy(third, 2));
+        assertFalse(first.isShiftedBy(third, 1));
+        assertFalse(first.isShiftedBy(ColumnKernel.of(compile("=A3 * B3 - C4")), 2));
+        assertTrue(first.readsColumn(2));
+        assertFalse(first.readsColumn(3));
+    }
+
+    @Test
+    void onlyArithmeticOverLocalReferences() throws Exception {
+        assertNull(ColumnKernel.of(compile("=substr(\"abc\", 0, A1)")));
+        assertNull(ColumnKernel.of(compile("=Other!A1 + 1")));
+        assertNull(ColumnKernel.of(compile("=A1 + \"s\"")));
+        assertNotNull(ColumnKernel.of(compile("=-sin(A1) / max(B1, 2) + pow(A1, pi)")));
+    }
+
+    @Property
+    void sameValuesAsCompiledFormula(@ForAll("formulas") String formula) throws LexerException {
+        CompiledFormula compiled;
+        try {
+            compiled = compile(formula);
+        } catch (ParseException e) {
+            return;
+        }
+        var kernel = ColumnKernel.of(compiled);
+        if (kernel == null)
+            return;
+
+        var inputs = new double[kernel.getReferenceCount()][ROWS];
+        for (int k = 0; k < inputs.length; k++) {
+            for (int i = 0; i < ROWS; i++)
+                inputs[k][i] = input(kernel.getRow(k) + i, kernel.getColumn(k));
+        }
+        var results = new double[ROWS];
+        kernel.evaluate(inputs, ROWS, results);
+        for (int i = 0; i < ROWS; i++) {
+            int shift = i;
+            var expected = compiled.getValue(address ->
+                new NodeValue.Number(input(address.rowIndex() + shift, address.columnIndex())));
+            assertEquals(expected, new NodeValue.Number(results[i]), formula);
+        }
+    }
+
+    @Provide
+    Arbitrary<String> formulas() {
+        return Arbitraries.of("1", "2.5", "0", "A1", "B1", "A2", "sin", "max", "pi", "pow",
+                "+", "-", "*", "/", "(", ")", ",")
+            .list().ofMaxSize(12)
+            .map(tokens -> "=" + String.join(" ", tokens));
+    }
+
+    private static double input(int row, int column) {
+        return row * 1.5 - column * 2;
+    }
+
+    private static CompiledFormula compile(String formula) throws LexerException, ParseException {
+        return AstOptimizer.compile(new OperatorPrecedenceParser().parse(new CharArrayLexer().tokenize(formula)));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.sheets.expression.parser.ast;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.sheets.expression.parser.ast.Bodies.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorCodeTest {
+
+    @Test
+    void propagationSharesInstances() {
+        var broken = new NodeValue.Error("Unmatched left bracket");
+        var sum = PLUS_BODY.apply(broken, new NodeValue.Number(1));
+        assertSame(ErrorCode.EXPECTED_NUMBER.error(), sum);
+        assertSame(sum, SIN_BODY.apply(List.of(sum)));
+        assertSame(ErrorCode.EXPECTED_STRING.error(),
+            SUBSTR_BODY.apply(List.of(sum, new NodeValue.Number(0), new NodeValue.Number(1))));
+    }
+
+    @Test
+    void messagesAreRenderedOnDemand() {
+        assertEquals("Expected number, but got Error", ErrorCode.EXPECTED_NUMBER.error().message());
+        assertEquals("Expected number, but got Str[value=hello]",
+            MINUS_BODY.apply(new NodeValue.Str("hello"), new NodeValue.Number(1)).toString()
+                .replaceFirst("^Error\\[message=(.*)]$", "$1"));
+        assertEquals("Invalid address Address[rowIndex=1, columnIndex=2]",
+            ErrorCode.INVALID_ADDRESS.error(new AstNode.Reference.Address(1, 2)).message());
+        assertEquals("Part of reference cycle", ErrorCode.REFERENCE_CYCLE.error().message());
+        assertEquals("#REF!", ErrorCode.INVALID_ADDRESS.getLabel());
+    }
+
+    @Test
+    void messageErrors() {
+        assertEquals(new NodeValue.Error("boom"), new NodeValue.Error(ErrorCode.MESSAGE, "boom"));
+        assertEquals("Error[message=boom]", new NodeValue.Error("boom").toString());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.sheets.expression.parser.ast;
+
+import com.example.sheets.expression.parser.lexer.CharArrayLexer;
+import com.example.sheets.expression.parser.lexer.Lexer;
+import com.example.sheets.expression.parser.lexer.LexerException;
+import net.jqwik.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.sheets.expression.parser.ast.Bodies.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperatorPrecedenceParserTest {
+
+    @Test
+    void functionWithoutBrackets() throws Exception {
+        var ast = parse("=sin pi + 5");
+        assertEquals(
+            new AstNode.BinaryOp(
+                new AstNode.FunctionCall("sin", List.of(new AstNode.FunctionCall("pi", List.of(), PI_BODY)), SIN_BODY),
+                new AstNode.NumberLiteral(5),
+                PLUS_BODY),
+            ast);
+    }
+
+    @Test
+    void bracketErrorsWinOverReductionErrors() {
+        var e = assertThrows(ParseException.class, () -> parse("=foo(1"));
+        assertEquals("Unmatched left bracket", e.getMessage());
+        e = assertThrows(ParseException.class, () -> parse("=foo + )"));
+        assertEquals("Unmatched right bracket", e.getMessage());
+    }
+
+    @Test
+    void sameAsAstParser() {
+        for (var formula : List.of(
+            "=", "42", "=-A1", "=5--4", "=--5", "=sin -1", "=sin(-1)", "=max 1 2", "=max(1, 2)",
+            "=max(1 2)", "=sin(1, 2)", "=pi(1)", "=(1)(2)", "=4(3+2)", "=substr(\"hello\", 1, 3)",
+            "=4*2.5 + 8.5+1.5 / 3.0 * (5.0005 + 0.0095)", "=sin cos 1", "=pow(A1, -B2) / -3")) {
+            assertSameAst(formula);
+        }
+    }
+
+    @Property
+    void sameAsAstParserOnRandomFormulas(@ForAll("formulas") String formula) {
+        assertSameAst(formula);
+    }
+
+    @Provide
+    Arbitrary<String> formulas() {
+        return Arbitraries.of("1", "2.5", "A1", "B2", "\"s\"", "sin", "max", "pi", "substr", "foo",
+                "+", "-", "*", "/", "(", ")", ",")
+            .list().ofMaxSize(12)
+            .map(tokens -> "=" + String.join(" ", tokens));
+    }
+
+    private static AstNode parse(String formula) throws LexerException, ParseException {
+        return new OperatorPrecedenceParser().parse(new CharArrayLexer().tokenize(formula));
+    }
+
+    private static void assertSameAst(String formula) {
+        AstNode expected = null;
+        String expectedError = null;
+        try {
+            expected = AstParser.parse(new Lexer(formula).toTokens());
+        } catch (LexerException | ParseException e) {
+            expectedError = e.getMessage();
+        }
+
+        try {
+            var actual = parse(formula);
+            assertNull(expectedError, formula);
+            assertEquals(expected, actual, formula);
+        } catch (LexerException | ParseException e) {
+            assertEquals(expectedError, e.getMessage(), formula);
+        }
+    }
+}
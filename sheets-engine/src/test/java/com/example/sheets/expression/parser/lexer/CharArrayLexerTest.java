@@ -0,0 +1,90 @@
+package com.example.sheets.expression.parser.lexer;
+
+import net.jqwik.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CharArrayLexerTest {
+
+    @Test
+    void tokenSpans() throws LexerException {
+        var tokens = new CharArrayLexer().tokenize("=sin(A12) + \"a\\\"b\"");
+        assertEquals(6, tokens.size());
+        assertEquals(TokenBuffer.IDENT, tokens.getType(0));
+        assertTrue(tokens.textEquals(0, "sin"));
+        assertEquals(TokenBuffer.CELL_REF, tokens.getType(2));
+        assertEquals(11, tokens.getRow(2));
+        assertEquals(0, tokens.getColumn(2));
+        assertEquals("A12", tokens.getText(2));
+        assertEquals(TokenBuffer.STRING, tokens.getType(5));
+        assertEquals("a\"b", tokens.getString(5));
+    }
+
+    @Test
+    void sheetQualifiedReference() throws LexerException {
+        var tokens = new CharArrayLexer().tokenize("=Sheet_2!B3 + B3");
+        assertEquals(TokenBuffer.CELL_REF, tokens.getType(0));
+        assertEquals("Sheet_2", tokens.getSheet(0));
+        assertEquals(2, tokens.getRow(0));
+        assertEquals(1, tokens.getColumn(0));
+        assertEquals("Sheet_2!B3", tokens.getCellRefText(0));
+        assertNull(tokens.getSheet(2));
+    }
+
+    @Test
+    void plainValues() throws LexerException {
+        var lexer = new CharArrayLexer();
+        var tokens = lexer.tokenize("12.5");
+        assertEquals(TokenBuffer.NUMBER, tokens.getType(0));
+        assertEquals(12.5, tokens.getNumber(0));
+
+        tokens = lexer.tokenize("twelve");
+        assertEquals(TokenBuffer.STRING, tokens.getType(0));
+        assertEquals("twelve", tokens.getString(0));
+    }
+
+    @Test
+    void sameAsLexer() {
+        for (var formula : List.of(
+            "", "=", "42", "hello", "=\"hello\" + \"world\"", "=\"hel\\\"lo\"", "=\"hel\"lo\"",
+            "=length(\"hello\")", "=getRawAddr(A4)", "=ZZZZZZ99999999", "=AAAAAAAAAAAAAAAAA45",
+            "=1111111111111111111111234.1234", "=-1234sin(*7.7+)", "=A3sin", "=10% from 10",
+            "=4*2.5 + 8.5+1.5 / 3.0 * (5.0005 + 0.0095)", "=max(A1, B2)\t\n", "=\"unterminated",
+            "=Sheet_2!B3 + 1", "=Data!", "=Data!sin", "=sin!A1")) {
+            assertSameTokens(formula);
+        }
+    }
+
+    @Property
+    void sameAsLexerOnRandomFormulas(@ForAll("formulas") String formula) {
+        assertSameTokens(formula);
+    }
+
+    @Provide
+    Arbitrary<String> formulas() {
+        return Arbitraries.strings().withChars("=AZaz019.+-*/(),\" \\%!_").ofMaxLength(16);
+    }
+
+    private static void assertSameTokens(String formula) {
+        List<Lexer.Token> expected = null;
+        LexerException expectedError = null;
+        try {
+            expected = new Lexer(formula).toTokens();
+        } catch (LexerException e) {
+            expectedError = e;
+        }
+
+        try {
+            var actual = new CharArrayLexer().tokenize(formula).toTokens();
+            assertNull(expectedError, formula);
+            assertEquals(expected, actual, formula);
+        } catch (LexerException e) {
+            assertNotNull(expectedError, formula);
+            assertEquals(expectedError.getClass(), e.getClass(), formula);
+            assertEquals(expectedError.getMessage(), e.getMessage(), formula);
+        }
+    }
+}
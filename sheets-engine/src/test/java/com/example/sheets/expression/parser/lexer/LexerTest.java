@@ -74,6 +74,17 @@ class LexerTest {
         ), tokens);
     }
 
+    @Test
+    void sheetQualifiedCellRef() throws LexerException {
+        var tokens = new Lexer("=data!A1+Sheet2!B2").toTokens();
+        assertEquals(List.of(
+            new CellRef("data", 0, 0),
+            new Fixed(TokenType.Plus),
+            new CellRef("Sheet2", 1, 1)
+        ), tokens);
+        assertThrowsExactly(InvalidCellReference.class, () -> new Lexer("=Sheet2!sin").toTokens());
+    }
+
     @Test
     void tooLongCellRef() {
         assertThrowsExactly(InvalidCellReference.class, () -> new Lexer("=AAAAAAAAAAAAAAAAA45").toTokens());
@@ -0,0 +1,61 @@
+package com.example.sheets.expression.parser.lexer;
+
+import net.jqwik.api.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumberScannerTest {
+
+    @Test
+    void plainDecimals() {
+        assertTrue(NumberScanner.isNumber("12"));
+        assertTrue(NumberScanner.isNumber("-.5"));
+        assertTrue(NumberScanner.isNumber("5."));
+        assertTrue(NumberScanner.isNumber(" 12 "));
+        assertEquals(0.1, parse("0.1"));
+        assertEquals(-1234.5678, parse("-1234.5678"));
+    }
+
+    @Test
+    void javaSpecialForms() {
+        assertTrue(NumberScanner.isNumber("-NaN"));
+        assertTrue(NumberScanner.isNumber("+Infinity"));
+        assertTrue(NumberScanner.isNumber("1e5f"));
+        assertTrue(NumberScanner.isNumber("0x.8p1"));
+        assertEquals(8.0, parse("0x1p3"));
+    }
+
+    @Test
+    void text() {
+        assertFalse(NumberScanner.isNumber(""));
+        assertFalse(NumberScanner.isNumber("hello"));
+        assertFalse(NumberScanner.isNumber("1,5"));
+        assertFalse(NumberScanner.isNumber("Infinityd"));
+        assertFalse(NumberScanner.isNumber("0x1"));
+        assertFalse(NumberScanner.isNumber("1e+"));
+        assertFalse(NumberScanner.isNumber(".e5"));
+    }
+
+    @Property
+    void agreesWithParseDouble(@ForAll("numberLike") String s) {
+        Double expected;
+        try {
+            expected = Double.parseDouble(s);
+        } catch (java.lang.NumberFormatException e) {
+            expected = null;
+        }
+        assertEquals(expected != null, NumberScanner.isNumber(s), s);
+        if (expected != null)
+            assertEquals(expected, parse(s), s);
+    }
+
+    @Provide
+    Arbitrary<String> numberLike() {
+        return Arbitraries.strings().withChars("0123456789.+-eExXpPfFdDaN ").ofMaxLength(12);
+    }
+
+    private static double parse(String s) {
+        return NumberScanner.parse(s.toCharArray(), 0, s.length());
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.sheets.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    void empty() {
+        var histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    void percentilesAreBucketUpperBounds() {
+        var histogram = new Histogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(3);
+        }
+        histogram.record(1000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(3, histogram.getPercentile(50));
+        assertEquals(3, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getPercentile(100));
+        assertEquals(1000, histogram.getMax());
+        assertEquals(12.97, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    void reset() {
+        var histogram = new Histogram();
+        histogram.record(5);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.sheets.save;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    private static CsvReader reader(String csv, int bufferSize) {
+        var bytes = csv.getBytes(StandardCharsets.UTF_8);
+        return new CsvReader(Channels.newChannel(new ByteArrayInputStream(bytes)), bufferSize);
+    }
+
+    @Test
+    void recordsSpanBuffers() throws IOException {
+        var csv = "\uFEFF\u044F,\"multi\r\nline, \"\"quoted\"\"\"\r\n\u20AC3,\n\nlast";
+        var reader = reader(csv, 4);
+        var rows = reader.readRows(10);
+
+        assertEquals(4, rows.size());
+        assertArrayEquals(new String[]{"\u044F", "multi\r\nline, \"quoted\""}, rows.get(0));
+        assertArrayEquals(new String[]{"\u20AC3", ""}, rows.get(1));
+        assertArrayEquals(new String[]{""}, rows.get(2));
+        assertArrayEquals(new String[]{"last"}, rows.get(3));
+        assertNull(reader.readRow());
+        assertEquals(csv.getBytes(StandardCharsets.UTF_8).length, reader.getByteCount());
+    }
+
+    @Test
+    void rowsAreReadInChunks() throws IOException {
+        var reader = reader("1\n2\n3\n", CsvReader.DEFAULT_BUFFER_SIZE);
+        assertEquals(2, reader.readRows(2).size());
+        assertEquals(List.of("3"), reader.readRows(2).stream().map(row -> row[0]).toList());
+        assertTrue(reader.readRows(2).isEmpty());
+    }
+}
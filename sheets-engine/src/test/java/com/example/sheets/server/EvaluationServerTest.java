@@ -0,0 +1,91 @@
+package com.example.sheets.server;
+
+import com.example.sheets.table.CellManager;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.StoreBackend;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private EvaluationServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new EvaluationServer(0, 2);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:%d/workbooks/%s".formatted(server.getPort(), path)))
+            .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void createBook() throws Exception {
+        var manager = new CellManager(3, 3, StoreBackend.HEAP);
+        manager.setValues(Map.of(new CellAddress(0, 0), "2", new CellAddress(0, 1), "=A1 * 10"));
+        var response = send("PUT", "book", manager.save());
+        assertEquals(200, response.statusCode());
+        assertEquals(new EvaluationServer.UpdateResponse(2, 0, true),
+            mapper.readValue(response.body(), EvaluationServer.UpdateResponse.class));
+    }
+
+    @Test
+    void workbookIsCreatedUpdatedAndRead() throws Exception {
+        createBook();
+
+        var update = send("POST", "book/cells",
+            "{\"cells\": [{\"row\": 0, \"column\": 0, \"formula\": \"3\"}, {\"row\": 1, \"column\": 1, \"formula\": \"\"}]}");
+        assertEquals(200, update.statusCode());
+        var result = mapper.readValue(update.body(), EvaluationServer.UpdateResponse.class);
+        assertEquals(1, result.updated());
+        assertTrue(result.complete());
+
+        var cell = mapper.readValue(send("GET", "book/cells?row=0&column=1", null).body(),
+            EvaluationServer.ValueResponse.class);
+        assertEquals(new EvaluationServer.ValueResponse(0, 1, "=A1 * 10", "30", null), cell);
+
+        var range = mapper.readValue(send("GET", "book/range?fromRow=0&fromColumn=0&toRow=1&toColumn=1", null).body(),
+            EvaluationServer.RangeResponse.class);
+        assertEquals(List.of(List.of("3", "30"), List.of("", "")), range.values());
+
+        var saved = send("GET", "book", null);
+        assertEquals(200, saved.statusCode());
+        assertTrue(saved.body().contains("=A1 * 10"));
+    }
+
+    @Test
+    void badRequestsAreRejected() throws Exception {
+        createBook();
+
+        assertEquals(404, send("GET", "missing", null).statusCode());
+        assertEquals(404, send("GET", "book/unknown", null).statusCode());
+        assertEquals(405, send("DELETE", "book", null).statusCode());
+        assertEquals(400, send("POST", "book/cells", "{").statusCode());
+        assertEquals(400, send("POST", "book/cells", "{}").statusCode());
+        assertEquals(400, send("POST", "book/cells", "{\"cells\": [null]}").statusCode());
+        assertEquals(400, send("POST", "book/cells", "{\"cells\": [{\"row\": 0, \"column\": 0}]}").statusCode());
+        assertEquals(400, send("POST", "book/cells", "{\"cells\": [{\"row\": 9, \"column\": 0, \"formula\": \"1\"}]}").statusCode());
+        assertEquals(400, send("GET", "book/cells?row=0", null).statusCode());
+        assertEquals(400, send("GET", "book/range?fromRow=1&fromColumn=0&toRow=0&toColumn=0", null).statusCode());
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.sheets.table;
+
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.metrics.EngineMetrics;
+import com.example.sheets.metrics.Metrics;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.StoreBackend;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellManagerTest {
+
+    private static final CellAddress A1 = new CellAddress(0, 0);
+    private static final CellAddress B1 = new CellAddress(0, 1);
+    private static final CellAddress C1 = new CellAddress(0, 2);
+
+    @Test
+    void dependantIsRecalculated() {
+        var manager = new CellManager(5, 5);
+        manager.setValue(A1, "2");
+        manager.setValue(B1, "=A1 * 10");
+        assertEquals(new NodeValue.Number(20), manager.getValue(B1));
+
+        var result = manager.setValue(A1, "3");
+        assertTrue(result.dirty().contains(B1));
+        assertEquals(new NodeValue.Number(30), manager.getValue(B1));
+    }
+
+    @Test
+    void batchUpdateInvalidatesOnce() {
+        var manager = new CellManager(5, 5);
+        manager.setValue(C1, "=A1 + B1");
+        assertInstanceOf(NodeValue.Error.class, manager.getValue(C1));
+
+        var result = manager.setValues(Map.of(A1, "2", B1, "3"));
+        assertEquals(Set.of(A1, B1, C1), result.dirty());
+        assertTrue(result.complete());
+        assertEquals(new NodeValue.Number(5), manager.getValue(C1));
+    }
+
+    @Test
+    void unchangedValueStopsRecalculation() {
+        var manager = new CellManager(5, 5);
+        manager.setValue(A1, "2");
+        manager.setValue(B1, "=max(A1, 10)");
+        manager.setValue(C1, "=B1 + 1");
+        assertEquals(new NodeValue.Number(11), manager.getValue(C1));
+
+        var evaluated = new AtomicInteger();
+        Metrics.set(new EngineMetrics() {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public void onEvaluation(int cellsEvaluated, int depth, long nanos) {
+                evaluated.addAndGet(cellsEvaluated);
+            }
+        });
+        try {
+            manager.setValue(A1, "3");
+            assertEquals(new NodeValue.Number(11), manager.getValue(C1));
+            // A1 and B1 only, C1 keeps its value as B1 hasn't changed
+            assertEquals(2, evaluated.get());
+        } finally {
+            Metrics.set(EngineMetrics.DISABLED);
+        }
+        manager.setValue(A1, "30");
+        assertEquals(new NodeValue.Number(31), manager.getValue(C1));
+    }
+
+    @Test
+    void dirtyCellsAreBounded() {
+        var manager = new CellManager(CellManager.DIRTY_LIMIT + 10, 2);
+        var formulas = new HashMap<CellAddress, String>();
+        for (int i = 1; i < CellManager.DIRTY_LIMIT + 10; i++)
+            formulas.put(new CellAddress(i, 0), "=A%d + 1".formatted(i));
+        manager.setValues(formulas);
+
+        var result = manager.setValue(A1, "1");
+        assertFalse(result.complete());
+        assertEquals(CellManager.DIRTY_LIMIT, result.dirty().size());
+        assertEquals(new NodeValue.Number(CellManager.DIRTY_LIMIT + 10),
+            manager.getValue(new CellAddress(CellManager.DIRTY_LIMIT + 9, 0)));
+    }
+
+    @Test
+    void extendRecalculatesReferencesToNewArea() {
+        var manager = new CellManager(2, 2);
+        manager.setValue(A1, "=C1");
+        assertInstanceOf(NodeValue.Error.class, manager.getValue(A1));
+
+        manager.extend(0, 1);
+        assertEquals(new NodeValue.Str(""), manager.getValue(A1));
+        manager.setValue(C1, "7");
+        assertEquals(new NodeValue.Number(7), manager.getValue(A1));
+
+        manager.shrink(0, 1);
+        assertInstanceOf(NodeValue.Error.class, manager.getValue(A1));
+    }
+
+    @Test
+    void offHeapStore(@TempDir Path directory) throws Exception {
+        for (var backend : List.of(new StoreBackend(true, null, 2), new StoreBackend(true, directory, 2))) {
+            var manager = new CellManager(5, 5, backend);
+            manager.setValue(A1, "2");
+            manager.setValue(B1, "=A1 * 10");
+            manager.setValue(C1, "=\"h\u00e9llo\"");
+            assertEquals(new NodeValue.Number(20), manager.getValue(B1));
+
+            manager.setValue(A1, "3");
+            assertEquals(new NodeValue.Number(30), manager.getValue(B1));
+            assertEquals(new NodeValue.Str("h\u00e9llo"), manager.getValue(C1));
+            assertEquals("=A1 * 10", manager.getFormula(B1));
+
+            var copy = new CellManager(0, 0, backend);
+            copy.load(manager.save());
+            assertEquals(new NodeValue.Number(30), copy.getValue(B1));
+            assertEquals(Set.of(A1, B1, C1), Set.copyOf(copy.getFilledAddresses()));
+
+            manager.shrink(0, 4);
+            assertEquals(Set.of(A1, B1), Set.copyOf(manager.getFilledAddresses()));
+        }
+    }
+
+    @Test
+    void referenceCycle() {
+        var manager = new CellManager(5, 5);
+        manager.setValue(A1, "=B1");
+        manager.setValue(B1, "=A1");
+        assertInstanceOf(NodeValue.Error.class, manager.getValue(A1));
+    }
+
+    @Test
+    void invalidAddress() {
+        var manager = new CellManager(5, 5);
+        manager.setValue(A1, "=Z100 + 1");
+        assertInstanceOf(NodeValue.Error.class, manager.getValue(A1));
+    }
+
+    @Test
+    void readersNeverKeepStaleValues() throws Exception {
+        var manager = new CellManager(5, 5);
+        manager.setValue(A1, "0");
+        manager.setValue(B1, "=A1 * 2");
+        manager.setValue(C1, "=B1 + A1");
+
+        var done = new AtomicBoolean();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        var futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(readers.submit(() -> {
+                while (!done.get()) {
+                    manager.getValue(C1);
+                    manager.getValue(B1);
+                }
+            }));
+        }
+
+        for (int i = 1; i <= 2000; i++) {
+            manager.setValue(A1, String.valueOf(i));
+        }
+        done.set(true);
+        for (var future : futures) {
+            future.get();
+        }
+        readers.shutdown();
+        assertTrue(readers.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(new NodeValue.Number(4000), manager.getValue(B1));
+        assertEquals(new NodeValue.Number(6000), manager.getValue(C1));
+    }
+
+    @Test
+    void snapshotIsUnaffectedByEdits() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        manager.setValue(A1, "2");
+        manager.setValue(B1, "=A1 * 10");
+        var snapshot = manager.snapshot();
+
+        manager.setValue(A1, "3");
+        manager.setValue(C1, "=B1");
+        manager.extend(2, 0);
+        assertEquals("2", snapshot.getFormula(A1));
+        assertEquals("", snapshot.getFormula(C1));
+        assertEquals(5, snapshot.getRowCount());
+
+        var result = manager.restore(snapshot);
+        assertTrue(result.dirty().containsAll(Set.of(A1, B1, C1)));
+        assertEquals(5, manager.getRowCount());
+        assertEquals("", manager.getFormula(C1));
+        assertEquals(new NodeValue.Number(20), manager.getValue(B1));
+    }
+
+    @Test
+    void savedSheetIsStreamed() throws IOException {
+        for (var backend : List.of(StoreBackend.HEAP, new StoreBackend(true, null, 16))) {
+            // Spans many load chunks, each cell referencing one of an earlier chunk
+            int rows = 10_000;
+            var manager = new CellManager(rows, 2, backend);
+            var formulas = new HashMap<CellAddress, String>();
+            formulas.put(A1, "1");
+            for (int i = 1; i < rows; i++)
+                formulas.put(new CellAddress(i, 0), "=A%d + 1".formatted(i));
+            manager.setValues(formulas);
+
+            var out = new ByteArrayOutputStream();
+            manager.save(out);
+            assertEquals(manager.save(), out.toString(StandardCharsets.UTF_8));
+
+            var copy = new CellManager(0, 0, backend);
+            copy.load(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(rows, copy.getRowCount());
+            assertEquals(2, copy.getColumnCount());
+            var last = new CellAddress(rows - 1, 0);
+            assertEquals(new NodeValue.Number(rows), copy.getValue(last));
+
+            copy.setValue(A1, "2");
+            assertEquals(new NodeValue.Number(rows + 1), copy.getValue(last));
+        }
+    }
+
+    @Test
+    void malformedSaveIsRejected() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        manager.setValue(A1, "1");
+        assertThrows(JsonProcessingException.class, () -> manager.load("{\"rowCount\": 5, \"cells\": [null]}"));
+        assertThrows(JsonProcessingException.class, () -> manager.load("{\"rowCount\": 5, \"cells\": [{\"row\": 0"));
+        assertEquals("1", manager.getFormula(A1));
+    }
+
+    @Test
+    void batchIsPutOnCommit() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        manager.setValue(C1, "=A1 + B1");
+        var batch = manager.beginBatch()
+            .setValue(A1, "1")
+            .setValue(B1, "2")
+            .setValue(A1, "3");
+        assertEquals("", manager.getFormula(A1));
+
+        var result = batch.commit();
+        assertEquals(Set.of(A1, B1, C1), result.dirty());
+        assertEquals(new NodeValue.Number(5), manager.getValue(C1));
+        assertThrows(IllegalStateException.class, batch::commit);
+    }
+
+    @Test
+    void csvIsImportedAndExported() throws IOException {
+        var csv = "1,text,=A1 + 1\n\"a, \"\"quoted\"\"\",,,2.5\r\n";
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        manager.setValue(A1, "=B1");
+        manager.importCsv(Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(2, manager.getRowCount());
+        assertEquals(4, manager.getColumnCount());
+        assertEquals(new NodeValue.Number(1), manager.getValue(A1));
+        assertEquals(new NodeValue.Str("text"), manager.getValue(B1));
+        assertEquals(new NodeValue.Number(2), manager.getValue(C1));
+        assertEquals("a, \"quoted\"", manager.getFormula(new CellAddress(1, 0)));
+        assertEquals("", manager.getFormula(new CellAddress(1, 1)));
+
+        var out = new ByteArrayOutputStream();
+        manager.exportCsv(Channels.newChannel(out));
+        assertEquals("1,text,2,\n\"a, \"\"quoted\"\"\",,,2.5\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void uniformColumnIsEvaluatedAtOnce() {
+        int rows = 100;
+        var manager = new CellManager(rows, 3, StoreBackend.HEAP);
+        var formulas = new HashMap<CellAddress, String>();
+        for (int i = 0; i < rows; i++) {
+            formulas.put(new CellAddress(i, 0), String.valueOf(i));
+            formulas.put(new CellAddress(i, 1), "2");
+            formulas.put(new CellAddress(i, 2), "=A%d * B%d + 1".formatted(i + 1, i + 1));
+        }
+        formulas.put(new CellAddress(50, 1), "text");
+        manager.setValues(formulas);
+
+        manager.evaluateRange(0, 0, rows - 1, 2);
+        assertEquals(new NodeValue.Number(199), manager.getValue(new CellAddress(99, 2)));
+        assertInstanceOf(NodeValue.Error.class, manager.getValue(new CellAddress(50, 2)));
+
+        manager.setValue(new CellAddress(10, 0), "0.5");
+        manager.evaluateRange(0, 2, rows - 1, 2);
+        assertEquals(new NodeValue.Number(2), manager.getValue(new CellAddress(10, 2)));
+        assertEquals(new NodeValue.Number(23), manager.getValue(new CellAddress(11, 2)));
+    }
+
+    @Test
+    void onlyFilledCellsAreEvaluated() {
+        var manager = new CellManager(10_000, 10_000, StoreBackend.HEAP);
+        var far = new CellAddress(9_999, 9_999);
+        var formulas = new HashMap<CellAddress, String>();
+        for (int i = 0; i < 20; i++)
+            formulas.put(new CellAddress(100 + i, 5), "=%d * 2".formatted(i));
+        formulas.put(far, "=F101 + 1");
+        formulas.put(A1, "x");
+        manager.setValues(formulas);
+
+        manager.evaluate(manager.getFilledAddresses());
+        for (var address : formulas.keySet())
+            assertTrue(manager.getChangedAt(address) >= 0, address.toString());
+        assertEquals(new NodeValue.Number(1), manager.getValue(far));
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.sheets.table;
+
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.StoreBackend;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditJournalTest {
+
+    private static final CellAddress A1 = new CellAddress(0, 0);
+    private static final CellAddress B1 = new CellAddress(0, 1);
+    private static final CellAddress C3 = new CellAddress(2, 2);
+
+    @Test
+    void undoAndRedoEdits() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        var journal = new EditJournal(manager);
+        journal.setValue(A1, "2");
+        journal.setValue(B1, "=A1 * 10");
+        journal.setValue(A1, "3");
+        assertEquals(new NodeValue.Number(30), manager.getValue(B1));
+
+        var result = journal.undo();
+        assertEquals(Set.of(A1, B1), result.dirty());
+        assertEquals(new NodeValue.Number(20), manager.getValue(B1));
+
+        journal.redo();
+        assertEquals(new NodeValue.Number(30), manager.getValue(B1));
+        assertFalse(journal.canRedo());
+    }
+
+    @Test
+    void typingInOneCellIsCoalesced() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        var journal = new EditJournal(manager);
+        journal.setValue(A1, "1");
+        journal.setValue(B1, "x");
+        journal.setValue(B1, "xy");
+        journal.setValue(B1, "xyz");
+
+        journal.undo();
+        assertEquals("", manager.getFormula(B1));
+        assertEquals("1", manager.getFormula(A1));
+        journal.undo();
+        assertFalse(journal.canUndo());
+    }
+
+    @Test
+    void everyOperationIsCounted() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        var journal = new EditJournal(manager);
+        long count = journal.getChangeCount();
+        journal.setValue(A1, "x");
+        journal.setValue(A1, "xy");
+        journal.extend(1, 0);
+        journal.undo();
+        journal.clear();
+        assertEquals(count + 5, journal.getChangeCount());
+    }
+
+    @Test
+    void coalescingIsBrokenByOtherEdits() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        var journal = new EditJournal(manager);
+        journal.setValue(A1, "1");
+        journal.setValue(B1, "x");
+        journal.setValue(A1, "2");
+        journal.breakCoalescing();
+        journal.setValue(A1, "3");
+        // Unchanged, so neither an operation nor a reason to merge the next edit into the previous one
+        journal.setValue(A1, "3");
+        journal.breakCoalescing();
+        journal.setValue(A1, "3");
+        journal.setValue(A1, "4");
+
+        journal.undo();
+        assertEquals("3", manager.getFormula(A1));
+        journal.undo();
+        assertEquals("2", manager.getFormula(A1));
+        journal.undo();
+        assertEquals("1", manager.getFormula(A1));
+        assertEquals("x", manager.getFormula(B1));
+    }
+
+    @Test
+    void batchIsUndoneAsOneOperation() {
+        var manager = new CellManager(100, 5, StoreBackend.HEAP);
+        var journal = new EditJournal(manager);
+        journal.setValue(A1, "=sum");
+        var pasted = new HashMap<CellAddress, String>();
+        for (int i = 1; i < 100; i++)
+            pasted.put(new CellAddress(i, 0), String.valueOf(i));
+        journal.setValues(pasted);
+
+        var result = journal.undo();
+        assertEquals(pasted.keySet(), result.dirty());
+        assertEquals("", manager.getFormula(new CellAddress(50, 0)));
+        assertEquals("=sum", manager.getFormula(A1));
+    }
+
+    @Test
+    void shrinkIsUndoneWithTheCellsCutOff() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        var journal = new EditJournal(manager);
+        journal.setValues(Map.of(A1, "=C3 + 1", C3, "4"));
+        journal.shrink(3, 3);
+        assertEquals(2, manager.getRowCount());
+        assertInstanceOf(NodeValue.Error.class, manager.getValue(A1));
+
+        assertFalse(journal.undo().complete());
+        assertEquals(5, manager.getRowCount());
+        assertEquals(5, manager.getColumnCount());
+        assertEquals(new NodeValue.Number(5), manager.getValue(A1));
+
+        journal.redo();
+        assertEquals(2, manager.getRowCount());
+        journal.undo();
+        assertEquals("4", manager.getFormula(C3));
+    }
+
+    @Test
+    void extensionAndFormulasAreUndoneAtOnce() {
+        var manager = new CellManager(2, 2, StoreBackend.HEAP);
+        var journal = new EditJournal(manager);
+        journal.setValue(A1, "1");
+        var result = journal.extendAndSetValues(1, 1, Map.of(A1, "=C3", C3, "7", new CellAddress(3, 0), "out"));
+        assertFalse(result.complete());
+        assertEquals(3, manager.getRowCount());
+        assertEquals(new NodeValue.Number(7), manager.getValue(A1));
+        assertEquals("", manager.getFormula(new CellAddress(3, 0)));
+
+        journal.undo();
+        assertEquals(2, manager.getRowCount());
+        assertEquals(2, manager.getColumnCount());
+        assertEquals("1", manager.getFormula(A1));
+        journal.undo();
+        assertFalse(journal.canUndo());
+
+        journal.redo();
+        journal.redo();
+        assertEquals(3, manager.getColumnCount());
+        assertEquals(new NodeValue.Number(7), manager.getValue(A1));
+    }
+
+    @Test
+    void historyIsCappedByBytes() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        var journal = new EditJournal(manager, 1000);
+        for (int i = 0; i < 100; i++)
+            journal.setValue(new CellAddress(i % 5, i / 20), "x".repeat(20) + i);
+
+        assertTrue(journal.getBytes() <= 1000);
+        int undone = 0;
+        while (journal.undo() != null)
+            undone++;
+        assertTrue(undone > 0 && undone < 100);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.sheets.table;
+
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.StoreBackend;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeSortTest {
+
+    @Test
+    void rowsAreSortedByComputedValues() {
+        var manager = new CellManager(6, 3, StoreBackend.HEAP);
+        manager.setValues(Map.of(
+            new CellAddress(0, 0), "b",
+            new CellAddress(1, 0), "=2 + 1",
+            new CellAddress(2, 0), "=1 / \"x\"",
+            new CellAddress(3, 0), "A",
+            new CellAddress(5, 0), "-1",
+            new CellAddress(0, 1), "=A1",
+            new CellAddress(5, 1), "=A6 * 10",
+            new CellAddress(4, 2), "outside"
+        ));
+
+        var formulas = RangeSort.sort(manager, 0, 0, 5, 1, List.of(new RangeSort.Key(0, true)));
+        manager.setValues(formulas);
+
+        assertEquals(List.of("-1", "=2 + 1", "A", "b", "=1 / \"x\"", ""), column(manager, 0));
+        assertEquals(List.of("=A1 * 10", "", "", "=A4", "", ""), column(manager, 1));
+        assertEquals(new NodeValue.Number(-10), manager.getValue(new CellAddress(0, 1)));
+        assertEquals("outside", manager.getFormula(new CellAddress(4, 2)));
+    }
+
+    @Test
+    void laterKeysBreakTiesAndEqualRowsKeepTheirOrder() {
+        var manager = new CellManager(5, 3, StoreBackend.HEAP);
+        var formulas = new HashMap<CellAddress, String>();
+        String[][] rows = {{"1", "x", "a"}, {"2", "y", "b"}, {"1", "y", "c"}, {"2", "y", "d"}, {"1", "x", "e"}};
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < 3; j++)
+                formulas.put(new CellAddress(i, j), rows[i][j]);
+        }
+        manager.setValues(formulas);
+
+        var order = RangeSort.order(manager, 0, 4, List.of(new RangeSort.Key(0, false), new RangeSort.Key(1, true)));
+        assertArrayEquals(new int[]{1, 3, 0, 4, 2}, order);
+    }
+
+    @Test
+    void emptyCellsStayLastWhenDescending() {
+        var manager = new CellManager(4, 2, StoreBackend.HEAP);
+        manager.setValues(Map.of(new CellAddress(1, 0), "1", new CellAddress(2, 0), "3", new CellAddress(3, 0), "z"));
+
+        var order = RangeSort.order(manager, 0, 3, List.of(new RangeSort.Key(0, false)));
+        assertArrayEquals(new int[]{3, 2, 1, 0}, order);
+    }
+
+    @Test
+    void keysOutsideOfTheRangeAreRejected() {
+        var manager = new CellManager(4, 3, StoreBackend.HEAP);
+        var keys = List.of(new RangeSort.Key(2, true));
+        assertThrows(IllegalArgumentException.class, () -> RangeSort.sort(manager, 0, 0, 3, 1, keys));
+    }
+
+    private static List<String> column(CellManager manager, int column) {
+        return IntStream.range(0, manager.getRowCount())
+            .mapToObj(row -> manager.getFormula(new CellAddress(row, column)))
+            .toList();
+    }
+}
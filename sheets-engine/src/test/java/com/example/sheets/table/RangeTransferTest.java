@@ -0,0 +1,73 @@
+package com.example.sheets.table;
+
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.StoreBackend;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeTransferTest {
+
+    @Test
+    void copyAndParseRoundTrip() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        manager.setValues(Map.of(
+            new CellAddress(0, 0), "1",
+            new CellAddress(0, 1), "=\"a\tb\"",
+            new CellAddress(1, 1), "=A1 * 2"
+        ));
+        var text = RangeTransfer.copy(manager, 0, 0, 1, 1);
+        assertEquals("1\t\"=\"\"a\tb\"\"\"\n\t=A1 * 2\n", text);
+
+        var rows = RangeTransfer.parse(text);
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[]{"1", "=\"a\tb\""}, rows.get(0));
+        assertArrayEquals(new String[]{"", "=A1 * 2"}, rows.get(1));
+    }
+
+    @Test
+    void onlyTheGivenRowsAreCopied() {
+        var manager = new CellManager(5, 5, StoreBackend.HEAP);
+        manager.setValues(Map.of(
+            new CellAddress(0, 0), "1",
+            new CellAddress(1, 0), "hidden",
+            new CellAddress(3, 0), "4",
+            new CellAddress(3, 1), "=A4"
+        ));
+        assertEquals("1\t\n4\t=A4\n", RangeTransfer.copy(manager, new int[]{0, 3}, 0, 1));
+    }
+
+    @Test
+    void parseAcceptsWindowsLineBreaks() {
+        var rows = RangeTransfer.parse("a\tb\r\nc");
+        assertArrayEquals(new String[]{"a", "b"}, rows.get(0));
+        assertArrayEquals(new String[]{"c"}, rows.get(1));
+    }
+
+    @Test
+    void pasteShiftsReferences() {
+        var manager = new CellManager(10, 10, StoreBackend.HEAP);
+        manager.setValues(Map.of(new CellAddress(0, 0), "2", new CellAddress(3, 2), "5"));
+        var formulas = RangeTransfer.paste(RangeTransfer.parse("=A1 + 1\t7\n"), 3, 3, 3, 2);
+        assertEquals(Map.of(new CellAddress(3, 3), "=C4 + 1", new CellAddress(3, 4), "7"), formulas);
+
+        manager.setValues(formulas);
+        assertEquals(new NodeValue.Number(6), manager.getValue(new CellAddress(3, 3)));
+    }
+
+    @Test
+    void largePasteIsOneBatch() {
+        int rows = 300;
+        var text = new StringBuilder();
+        for (int i = 0; i < rows; i++)
+            text.append("=B").append(i + 1).append(" + 1\t").append(i).append('\n');
+        var manager = new CellManager(rows, 3, StoreBackend.HEAP);
+        var formulas = RangeTransfer.paste(RangeTransfer.parse(text.toString()), 0, 1, 0, 1);
+        manager.setValues(formulas);
+        assertEquals("=C300 + 1", manager.getFormula(new CellAddress(rows - 1, 1)));
+        assertEquals(new NodeValue.Number(rows), manager.getValue(new CellAddress(rows - 1, 1)));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.sheets.table;
+
+import com.example.sheets.expression.parser.ast.ErrorCode;
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.table.cell.CellAddress;
+import com.example.sheets.table.cell.StoreBackend;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkbookTest {
+
+    private static final CellAddress A1 = new CellAddress(0, 0);
+    private static final CellAddress B1 = new CellAddress(0, 1);
+
+    @Test
+    void crossSheetReferenceIsRecalculated() {
+        var workbook = new Workbook(StoreBackend.HEAP);
+        var inputs = workbook.addSheet("Inputs", 5, 5);
+        var report = workbook.addSheet("Report", 5, 5);
+        workbook.setValue("Inputs", A1, "2");
+        workbook.setValue("Report", A1, "=Inputs!A1 * 10");
+        workbook.setValue("Report", B1, "=A1 + 1");
+        assertEquals(new NodeValue.Number(21), report.getValue(B1));
+
+        var results = workbook.setValue("Inputs", A1, "3");
+        assertEquals(List.of("Inputs", "Report"), List.copyOf(results.keySet()));
+        assertEquals(Set.of(A1, B1), results.get("Report").dirty());
+        assertEquals(new NodeValue.Number(31), report.getValue(B1));
+        assertEquals(new NodeValue.Number(3), inputs.getValue(A1));
+    }
+
+    @Test
+    void editOutsideOfReferencedCellsDoesNotReachOtherSheets() {
+        var workbook = new Workbook(StoreBackend.HEAP);
+        workbook.addSheet("Inputs", 5, 5);
+        workbook.addSheet("Report", 5, 5);
+        workbook.setValue("Report", A1, "=Inputs!A1");
+
+        var results = workbook.setValue("Inputs", B1, "1");
+        assertEquals(Set.of("Inputs"), results.keySet());
+    }
+
+    @Test
+    void missingSheetIsReferenceError() {
+        var workbook = new Workbook(StoreBackend.HEAP);
+        var report = workbook.addSheet("Report", 5, 5);
+        workbook.setValue("Report", A1, "=Inputs!A1 + 1");
+        assertInstanceOf(NodeValue.Error.class, report.getValue(A1));
+
+        workbook.addSheet("Inputs", 5, 5).setValue(A1, "1");
+        assertEquals(new NodeValue.Number(2), report.getValue(A1));
+
+        workbook.removeSheet("Inputs");
+        assertInstanceOf(NodeValue.Error.class, report.getValue(A1));
+    }
+
+    @Test
+    void cycleAcrossSheets() {
+        var workbook = new Workbook(StoreBackend.HEAP);
+        var first = workbook.addSheet("First", 5, 5);
+        workbook.addSheet("Second", 5, 5);
+        workbook.setValue("First", A1, "=Second!A1");
+        workbook.setValue("Second", A1, "=First!B1");
+        workbook.setValue("First", B1, "=A1");
+
+        var value = first.getValue(A1);
+        assertInstanceOf(NodeValue.Error.class, value);
+        assertEquals(ErrorCode.REFERENCE_CYCLE, ((NodeValue.Error) value).code());
+    }
+
+    @Test
+    void sheetsAreLoadedOnFirstUse() throws JsonProcessingException {
+        var workbook = new Workbook(StoreBackend.HEAP);
+        workbook.addSheet("Inputs", 5, 5).setValue(A1, "4");
+        workbook.addSheet("Report", 5, 5).setValue(A1, "=Inputs!A1 * 2");
+        workbook.addSheet("Unused", 5, 5).setValue(A1, "=1 + 1");
+        var json = workbook.save();
+
+        var loaded = new Workbook(StoreBackend.HEAP);
+        loaded.load(json);
+        assertEquals(List.of("Inputs", "Report", "Unused"), loaded.getSheetNames());
+        assertFalse(loaded.isLoaded("Inputs"));
+
+        assertEquals(new NodeValue.Number(8), loaded.getSheet("Report").getValue(A1));
+        assertTrue(loaded.isLoaded("Inputs"));
+        assertFalse(loaded.isLoaded("Unused"));
+        assertEquals(json, loaded.save());
+    }
+
+    @Test
+    void singleSheetFileIsLoadedAsDefaultSheet() throws JsonProcessingException {
+        var manager = new CellManager(3, 3, StoreBackend.HEAP);
+        manager.setValue(A1, "=1 + 2");
+
+        var workbook = new Workbook(StoreBackend.HEAP);
+        workbook.load(manager.save());
+        assertEquals(List.of(Workbook.DEFAULT_SHEET), workbook.getSheetNames());
+        assertEquals(new NodeValue.Number(3), workbook.getSheet(Workbook.DEFAULT_SHEET).getValue(A1));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.sheets.table.cell;
+
+import com.example.sheets.expression.parser.ast.ErrorCode;
+import com.example.sheets.expression.parser.ast.NodeValue;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellTest {
+
+    @Test
+    void referencesArePackedOnce() {
+        var cell = Cell.of("=A1 + B3 * A1 + ZZ100");
+        assertEquals(3, cell.getReferenceCount());
+        assertEquals(new CellAddress(0, 0), CellAddress.unpack(cell.getReference(0)));
+        assertEquals(new CellAddress(2, 1), CellAddress.unpack(cell.getReference(1)));
+        assertEquals(new CellAddress(99, 701), CellAddress.unpack(cell.getReference(2)));
+    }
+
+    @Test
+    void noReferences() {
+        assertEquals(0, Cell.of("=pow(2, 10)").getReferenceCount());
+        assertEquals(0, Cell.of("=(").getReferenceCount());
+        assertEquals(0, Cell.of("plain").getReferenceCount());
+    }
+
+    @Test
+    void literalsKeepTheirFormula() {
+        for (var formula : new String[]{"12", "-3", "2.5", "1.50", "1e3", "-0", " 7", "NaN", "text", "", "=1 + 1"})
+            assertEquals(formula, Cell.of(formula).getFormula());
+        assertEquals(new NodeValue.Number(1000), Cell.of("1e3").getNodeValue(ErrorCode.INCORRECT_REFERENCE::error));
+        assertEquals(new NodeValue.Str("1,5"), Cell.of("1,5").getNodeValue(ErrorCode.INCORRECT_REFERENCE::error));
+        assertEquals(new NodeValue.Number(2), Cell.of("=1 + 1").getNodeValue(ErrorCode.INCORRECT_REFERENCE::error));
+    }
+
+    @Test
+    void packRoundTrip() {
+        for (var address : new CellAddress[]{new CellAddress(0, 0), new CellAddress(9999, 1),
+            new CellAddress(Integer.MAX_VALUE, Integer.MAX_VALUE), new CellAddress(-1, -2)}) {
+            assertEquals(address, CellAddress.unpack(address.pack()));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.sheets.table.cell;
+
+import net.jqwik.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGraphTest {
+
+    @Test
+    void addRemoveAndCompact() {
+        var graph = new DependencyGraph();
+        long a1 = CellAddress.pack(0, 0);
+        for (int i = 1; i <= 5000; i++)
+            graph.add(CellAddress.pack(i, 0), a1);
+        for (int i = 1; i <= 5000; i += 2)
+            graph.remove(CellAddress.pack(i, 0), a1);
+
+        var seen = new HashSet<Long>();
+        graph.forEachDependant(a1, seen::add);
+        assertEquals(2500, seen.size());
+        assertEquals(2500, graph.getEdgeCount());
+        assertTrue(seen.contains(CellAddress.pack(5000, 0)));
+        assertFalse(seen.contains(CellAddress.pack(4999, 0)));
+    }
+
+    @Test
+    void retainDependants() {
+        var graph = new DependencyGraph();
+        graph.add(CellAddress.pack(1, 0), CellAddress.pack(0, 0));
+        graph.add(CellAddress.pack(9, 0), CellAddress.pack(0, 0));
+        graph.retainDependants(dependant -> CellAddress.rowOf(dependant) < 5);
+
+        var seen = new ArrayList<Long>();
+        graph.forEachDependant(CellAddress.pack(0, 0), seen::add);
+        assertEquals(List.of(CellAddress.pack(1, 0)), seen);
+    }
+
+    @Property(tries = 200)
+    void sameAsSets(@ForAll("operations") List<int[]> operations) {
+        var graph = new DependencyGraph();
+        var expected = new HashMap<Long, Set<Long>>();
+        for (var operation : operations) {
+            long dependant = CellAddress.pack(operation[1], 0);
+            long dependee = CellAddress.pack(operation[2], 1);
+            var edges = expected.computeIfAbsent(dependee, x -> new HashSet<>());
+            if (operation[0] == 0 && edges.add(dependant))
+                graph.add(dependant, dependee);
+            else if (operation[0] == 1 && edges.remove(dependant))
+                graph.remove(dependant, dependee);
+        }
+
+        for (var entry : expected.entrySet()) {
+            var actual = new ArrayList<Long>();
+            graph.forEachDependant(entry.getKey(), actual::add);
+            assertEquals(entry.getValue(), new HashSet<>(actual));
+            assertEquals(entry.getValue().size(), actual.size());
+        }
+    }
+
+    @Provide
+    Arbitrary<List<int[]>> operations() {
+        var operation = Combinators.combine(
+            Arbitraries.integers().between(0, 1),
+            Arbitraries.integers().between(0, 60),
+            Arbitraries.integers().between(0, 30)
+        ).as((kind, dependant, dependee) -> new int[]{kind, dependant, dependee});
+        return operation.list().ofMaxSize(3000);
+    }
+}
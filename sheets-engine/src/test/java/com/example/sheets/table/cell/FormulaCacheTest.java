@@ -0,0 +1,39 @@
+package com.example.sheets.table.cell;
+
+import com.example.sheets.metrics.EngineMetrics;
+import com.example.sheets.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormulaCacheTest {
+
+    @Test
+    void repeatedFormulaIsParsedOnce() {
+        var lookups = new ArrayList<Boolean>();
+        Metrics.set(new EngineMetrics() {
+            @Override
+            public void onParseCacheLookup(boolean hit) {
+                lookups.add(hit);
+            }
+        });
+        try {
+            var formula = "=A1 * 2 + FormulaCacheTest!B2";
+            var first = FormulaCache.get(formula);
+            var second = FormulaCache.get(new String(formula.toCharArray()));
+            assertSame(first, second);
+            assertEquals(1, first.references().length);
+            assertEquals(1, first.externalReferences().size());
+            assertEquals(List.of(false, true), lookups);
+        } finally {
+            Metrics.set(EngineMetrics.DISABLED);
+        }
+
+        var cell = Cell.of("=A1 * 2 + FormulaCacheTest!B2");
+        assertEquals(1, cell.getReferenceCount());
+        assertEquals("=A1 * 2 + FormulaCacheTest!B2", cell.getFormula());
+    }
+}
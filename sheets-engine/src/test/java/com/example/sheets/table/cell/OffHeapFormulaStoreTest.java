@@ -0,0 +1,77 @@
+package com.example.sheets.table.cell;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapFormulaStoreTest {
+
+    @Test
+    void slotsOfALargeSegmentAreSpread() {
+        // 50M cells, the keys of one segment in the table they grow to
+        int capacity = 1 << 21;
+        var slots = new BitSet(capacity);
+        var eighths = new int[8];
+        int keys = 0;
+        for (int row = 0; row < 10_000; row++) {
+            for (int column = 0; column < 5_000; column++) {
+                long key = CellAddress.pack(row, column);
+                if (OffHeapFormulaStore.segmentIndex(key) != 0)
+                    continue;
+                int slot = OffHeapFormulaStore.Segment.homeSlot(key + 1, capacity - 1);
+                slots.set(slot);
+                eighths[slot / (capacity / 8)]++;
+                keys++;
+            }
+        }
+
+        assertTrue(keys > 700_000, "keys " + keys);
+        // Random slots would give 1 - e^-(keys / capacity) of the table, about 0.79 of the keys
+        assertTrue(slots.cardinality() > 0.75 * keys, "distinct slots " + slots.cardinality());
+        for (int count : eighths)
+            assertEquals(keys / 8.0, count, keys / 80.0);
+    }
+
+    @Test
+    void cellsArePutAndFound() {
+        var store = new OffHeapFormulaStore(new OffHeapMemory(null), 16);
+        for (int i = 0; i < 100_000; i++)
+            store.put(new CellAddress(i % 1000, i / 1000), Cell.of(Integer.toString(i)));
+        store.put(new CellAddress(5, 0), Cell.of("=A1"));
+        store.removeIf(address -> address.row() == 7);
+
+        assertEquals("=A1", store.get(new CellAddress(5, 0)).getFormula());
+        assertEquals("99999", store.get(new CellAddress(999, 99)).getFormula());
+        assertNull(store.get(new CellAddress(7, 3)));
+        assertNull(store.get(new CellAddress(1000, 0)));
+    }
+
+    @Test
+    void snapshotKeepsTheFormulasOfItsTime() {
+        var store = new OffHeapFormulaStore(new OffHeapMemory(null), 16);
+        for (int i = 0; i < 1000; i++)
+            store.put(new CellAddress(i, 0), Cell.of(Integer.toString(i)));
+        var snapshot = store.snapshot();
+
+        store.put(new CellAddress(0, 0), Cell.of("=B1"));
+        store.put(new CellAddress(0, 1), Cell.of("new"));
+        store.removeIf(address -> address.row() == 7);
+        for (int i = 1000; i < 100_000; i++)
+            store.put(new CellAddress(i % 1000, i / 1000), Cell.of(Integer.toString(i)));
+
+        assertEquals(1000, snapshot.size());
+        assertEquals("0", snapshot.getFormula(CellAddress.pack(0, 0)));
+        assertEquals("7", snapshot.getFormula(CellAddress.pack(7, 0)));
+        assertNull(snapshot.getFormula(CellAddress.pack(0, 1)));
+        int[] count = {0};
+        snapshot.forEach((address, formula) -> {
+            assertEquals(0, address.column());
+            assertEquals(Integer.toString(address.row()), formula);
+            count[0]++;
+        });
+        assertEquals(1000, count[0]);
+        assertEquals(99_999, store.snapshot().size());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.sheets.table.cell;
+
+import net.jqwik.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentCellMapTest {
+
+    @Test
+    void versionsAreIndependent() {
+        var a1 = CellAddress.pack(0, 0);
+        var cell = Cell.of("1");
+        var first = PersistentCellMap.EMPTY.put(a1, cell);
+        var second = first.put(CellAddress.pack(5, 7), Cell.of("2")).remove(a1);
+
+        assertSame(cell, first.get(a1));
+        assertEquals(1, first.size());
+        assertNull(second.get(a1));
+        assertEquals("2", second.get(CellAddress.pack(5, 7)).getFormula());
+        assertEquals(1, second.size());
+        assertSame(first, first.put(a1, cell));
+    }
+
+    @Test
+    void differenceSkipsSharedCells() {
+        var map = PersistentCellMap.EMPTY;
+        for (int i = 0; i < 10_000; i++)
+            map = map.put(CellAddress.pack(i, i % 7), Cell.of(String.valueOf(i)));
+        var changed = map.put(CellAddress.pack(42, 0), Cell.of("x"))
+            .remove(CellAddress.pack(43, 1))
+            .put(CellAddress.pack(20_000, 0), Cell.of("y"));
+
+        var differences = new HashMap<Long, String>();
+        map.forEachDifference(changed, (key, before, after) ->
+            differences.put(key, (before == null ? "-" : before.getFormula()) + ">" + (after == null ? "-" : after.getFormula())));
+        assertEquals(Map.of(
+            CellAddress.pack(42, 0), "42>x",
+            CellAddress.pack(43, 1), "43>-",
+            CellAddress.pack(20_000, 0), "->y"
+        ), differences);
+    }
+
+    @Test
+    void putAllLeavesOriginalUnchanged() {
+        var original = PersistentCellMap.EMPTY.put(CellAddress.pack(0, 0), Cell.of("1"));
+        var keys = new long[1000];
+        var cells = new Cell[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = CellAddress.pack(i, 0);
+            cells[i] = Cell.of(String.valueOf(i));
+        }
+        var updated = original.putAll(keys, cells);
+
+        assertEquals(1, original.size());
+        assertEquals("1", original.get(CellAddress.pack(0, 0)).getFormula());
+        assertEquals(1000, updated.size());
+        assertSame(cells[999], updated.get(CellAddress.pack(999, 0)));
+
+        var differences = new HashSet<Long>();
+        original.forEachDifference(updated, (key, before, after) -> differences.add(key));
+        assertEquals(1000, differences.size());
+    }
+
+    @Property
+    void behavesAsMap(@ForAll("operations") List<Long> operations) {
+        var expected = new HashMap<Long, Cell>();
+        var map = PersistentCellMap.EMPTY;
+        var cell = Cell.of("");
+        for (long operation : operations) {
+            long key = CellAddress.pack((int) (operation >> 8), (int) (operation & 0x7F));
+            if ((operation & 0x80) == 0) {
+                expected.put(key, cell);
+                map = map.put(key, cell);
+            } else {
+                expected.remove(key);
+                map = map.remove(key);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        var actual = new HashMap<Long, Cell>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+        for (var key : expected.keySet())
+            assertSame(cell, map.get(key));
+
+        var differences = new HashSet<Long>();
+        PersistentCellMap.EMPTY.forEachDifference(map, (key, before, after) -> differences.add(key));
+        assertEquals(expected.keySet(), differences);
+    }
+
+    @Provide
+    Arbitrary<List<Long>> operations() {
+        return Arbitraries.longs().between(0, 1 << 14).list().ofMaxSize(300);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.sheets.table.cell;
+
+import com.example.sheets.expression.parser.ast.NodeValue;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueStoreTest {
+
+    @Test
+    void emptySlotsReadAsEmptyStrings() {
+        var values = new ValueStore();
+        assertEquals(new NodeValue.Str(""), values.getVerified(3, 4, Long.MAX_VALUE));
+        assertEquals(0, values.getChangedAt(3, 4));
+
+        values.publish(3, 4, new NodeValue.Number(1), 5, 5);
+        assertEquals(new NodeValue.Str(""), values.getVerified(3, 4, 5));
+    }
+
+    @Test
+    void publishAfterReserve() {
+        var values = new ValueStore();
+        values.reserve(70, 130);
+        assertNull(values.get(70, 130));
+        assertEquals(-1, values.getChangedAt(70, 130));
+
+        values.publish(70, 130, new NodeValue.Number(2.5), 3, 2);
+        assertEquals(new ValueStore.Entry(new NodeValue.Number(2.5), 3, 2), values.get(70, 130));
+        assertEquals(new NodeValue.Number(2.5), values.getVerified(70, 130, 3));
+        assertNull(values.getVerified(70, 130, 4));
+
+        values.publish(70, 130, new NodeValue.Str("late"), 2, 2);
+        assertEquals(new NodeValue.Number(2.5), values.getVerified(70, 130, 3));
+
+        values.publish(70, 130, new NodeValue.Error("boom"), 4, 4);
+        assertEquals(new NodeValue.Error("boom"), values.getVerified(70, 130, 4));
+        values.publish(70, 130, new NodeValue.Str("text"), 5, 5);
+        assertEquals(new NodeValue.Str("text"), values.getVerified(70, 130, 5));
+    }
+
+    @Test
+    void sparseRowsOfAPageAreIndependent() {
+        var values = new ValueStore();
+        for (int i = 0; i < 64; i += 7) {
+            values.reserve(i, i);
+            values.publish(i, i, i % 2 == 0 ? new NodeValue.Number(i) : new NodeValue.Str("s" + i), 2, 2);
+        }
+        for (int i = 0; i < 64; i++) {
+            NodeValue expected = i % 7 != 0 ? new NodeValue.Str("")
+                : i % 2 == 0 ? new NodeValue.Number(i) : new NodeValue.Str("s" + i);
+            assertEquals(expected, values.getVerified(i, i, 2));
+            assertEquals(new NodeValue.Str(""), values.getVerified(i, (i + 1) % 64, 2));
+        }
+
+        values.retain(10, 10);
+        assertEquals(new NodeValue.Number(0), values.getVerified(0, 0, 2));
+        assertEquals(new NodeValue.Str(""), values.getVerified(14, 14, 2));
+        assertEquals(0, values.getChangedAt(21, 21));
+    }
+
+    @Test
+    void retainEmptiesSlotsOutside() {
+        var values = new ValueStore();
+        for (var address : new int[][]{{1, 1}, {1, 100}, {100, 1}, {70, 10}}) {
+            values.reserve(address[0], address[1]);
+            values.publish(address[0], address[1], new NodeValue.Number(1), 1, 1);
+        }
+        values.retain(70, 70);
+
+        assertEquals(new NodeValue.Number(1), values.getVerified(1, 1, 1));
+        assertEquals(new NodeValue.Str(""), values.getVerified(1, 100, 1));
+        assertEquals(new NodeValue.Str(""), values.getVerified(100, 1, 1));
+        assertEquals(new NodeValue.Str(""), values.getVerified(70, 10, 1));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.sheets.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.example.sheets.TableModel")
+@Label("Fire table model events")
+@Description("EditorTableModel notifying the Swing listeners about changed cells")
+@Category({"My Sheets", "UI"})
+@StackTrace(false)
+public final class TableModelEvent extends Event {
+    @Label("Operation")
+    @Description("Table model operation that triggered the notification")
+    public String operation;
+
+    @Label("Cell Count")
+    @Description("Number of cells reported as updated, -1 if the whole table was")
+    public int cellCount;
+}
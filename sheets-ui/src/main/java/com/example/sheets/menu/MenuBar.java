@@ -0,0 +1,302 @@
+package com.example.sheets.menu;
+
+import com.example.sheets.expression.parser.LetterIndexUtil;
+import com.example.sheets.table.RangeSort;
+import com.example.sheets.table.TablePanel;
+import com.example.sheets.table.cell.CellStore;
+
+import javax.swing.*;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+public final class MenuBar extends JMenuBar {
+
+    public MenuBar(TablePanel table) {
+        var fileMenu = new JMenu("File");
+
+        var saveItem = new JMenuItem("Save");
+        saveItem.addActionListener(e -> saveFileHandler(e, table));
+        fileMenu.add(saveItem);
+
+        var loadItem = new JMenuItem("Load");
+        loadItem.addActionListener(e -> loadFileHandler(e, table));
+        fileMenu.add(loadItem);
+
+        fileMenu.addSeparator();
+
+        var importItem = new JMenuItem("Import CSV");
+        importItem.addActionListener(e -> importCsvHandler(e, table));
+        fileMenu.add(importItem);
+
+        var exportItem = new JMenuItem("Export CSV");
+        exportItem.addActionListener(e -> exportCsvHandler(e, table));
+        fileMenu.add(exportItem);
+
+        var editMenu = new JMenu("Edit");
+        int shortcutMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+
+        var undoItem = new JMenuItem("Undo");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcutMask));
+        undoItem.addActionListener(e -> table.undo());
+        editMenu.add(undoItem);
+
+        var redoItem = new JMenuItem("Redo");
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, shortcutMask));
+        redoItem.addActionListener(e -> table.redo());
+        editMenu.add(redoItem);
+
+        editMenu.addSeparator();
+
+        var copyItem = new JMenuItem("Copy");
+        copyItem.addActionListener(e -> table.copy());
+        editMenu.add(copyItem);
+
+        var pasteItem = new JMenuItem("Paste");
+        pasteItem.addActionListener(e -> table.paste());
+        editMenu.add(pasteItem);
+
+        editMenu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                undoItem.setEnabled(table.canUndo());
+                redoItem.setEnabled(table.canRedo());
+            }
+
+            @Override
+            public void menuDeselected(MenuEvent e) {
+                undoItem.setEnabled(true);
+                redoItem.setEnabled(true);
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+                menuDeselected(e);
+            }
+        });
+
+        var tableMenu = new JMenu("Table");
+
+        var extendItem = new JMenuItem("Extend");
+        extendItem.addActionListener(e -> extendTableHandler(e, table));
+        tableMenu.add(extendItem);
+
+        var shrinkItem = new JMenuItem("Shrink");
+        shrinkItem.addActionListener(e -> shrinkTableHandler(e, table));
+        tableMenu.add(shrinkItem);
+
+        var dataMenu = new JMenu("Data");
+
+        var sortItem = new JMenuItem("Sort");
+        sortItem.addActionListener(e -> sortHandler(e, table));
+        dataMenu.add(sortItem);
+
+        var filterItem = new JMenuItem("Filter");
+        filterItem.addActionListener(e -> filterHandler(e, table));
+        dataMenu.add(filterItem);
+
+        var clearFilterItem = new JMenuItem("Clear filter");
+        clearFilterItem.addActionListener(e -> table.clearFilter());
+        dataMenu.add(clearFilterItem);
+
+        dataMenu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                clearFilterItem.setEnabled(table.isFiltered());
+            }
+
+            @Override
+            public void menuDeselected(MenuEvent e) {
+                clearFilterItem.setEnabled(true);
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+                menuDeselected(e);
+            }
+        });
+
+        add(fileMenu);
+        add(editMenu);
+        add(tableMenu);
+        add(dataMenu);
+
+        // Disabled menus don't take their accelerators either
+        table.addPropertyChangeListener(TablePanel.BUSY_PROPERTY, e -> {
+            for (int i = 0; i < getMenuCount(); i++)
+                getMenu(i).setEnabled(!table.isBusy());
+        });
+    }
+
+    private void saveFileHandler(ActionEvent e, TablePanel table) {
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showSaveDialog(table) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            try {
+                table.save(file);
+                JOptionPane.showMessageDialog(
+                    table,
+                    "File %s saved successfully".formatted(file.toPath().getFileName()),
+                    "File saved",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(
+                    table,
+                    ex.getMessage(),
+                    "Unable to save",
+                    JOptionPane.ERROR_MESSAGE
+                );
+            }
+        }
+    }
+
+    private void loadFileHandler(ActionEvent e, TablePanel table) {
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showOpenDialog(table) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            try {
+                table.load(file);
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(
+                    table,
+                    ex.getMessage(),
+                    "Unable to load the file",
+                    JOptionPane.ERROR_MESSAGE
+                );
+            }
+        }
+    }
+
+    private void importCsvHandler(ActionEvent e, TablePanel table) {
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showOpenDialog(table) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            try {
+                table.importCsv(file);
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(
+                    table,
+                    ex.getMessage(),
+                    "Unable to import the file",
+                    JOptionPane.ERROR_MESSAGE
+                );
+            }
+        }
+    }
+
+    private void exportCsvHandler(ActionEvent e, TablePanel table) {
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showSaveDialog(table) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            try {
+                table.exportCsv(file);
+                JOptionPane.showMessageDialog(
+                    table,
+                    "File %s exported successfully".formatted(file.toPath().getFileName()),
+                    "File exported",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(
+                    table,
+                    ex.getMessage(),
+                    "Unable to export",
+                    JOptionPane.ERROR_MESSAGE
+                );
+            }
+        }
+    }
+
+    private static String[] columnNames(int fromColumn, int toColumn) {
+        return IntStream.rangeClosed(fromColumn, toColumn)
+            .mapToObj(column -> LetterIndexUtil.toLetterIndex(column + 1))
+            .toArray(String[]::new);
+    }
+
+    private void sortHandler(ActionEvent e, TablePanel table) {
+        // Only the columns moved by the sort can order it
+        var range = table.getSortRange();
+        var columns = columnNames(range.fromColumn(), range.toColumn());
+        var none = "(none)";
+        var keyColumns = new ArrayList<JComboBox<String>>();
+        var keyOrders = new ArrayList<JComboBox<String>>();
+        var message = new ArrayList<>();
+        for (var label : new String[]{"Sort by:", "Then by:", "Then by:"}) {
+            var column = new JComboBox<>(columns);
+            if (!keyColumns.isEmpty()) {
+                column.insertItemAt(none, 0);
+                column.setSelectedIndex(0);
+            }
+            var order = new JComboBox<>(new String[]{"Ascending", "Descending"});
+            keyColumns.add(column);
+            keyOrders.add(order);
+            message.add(label);
+            message.add(column);
+            message.add(order);
+        }
+        message.add("Sorts the selected range, or the whole table if a single cell is selected, by its columns.");
+
+        int option = JOptionPane.showConfirmDialog(null, message.toArray(), "Sort", JOptionPane.OK_CANCEL_OPTION);
+        if (option != JOptionPane.OK_OPTION)
+            return;
+        var keys = new ArrayList<RangeSort.Key>();
+        for (int i = 0; i < keyColumns.size(); i++) {
+            var column = keyColumns.get(i);
+            if (none.equals(column.getSelectedItem()))
+                continue;
+            int index = range.fromColumn() + column.getSelectedIndex() - (i == 0 ? 0 : 1);
+            keys.add(new RangeSort.Key(index, keyOrders.get(i).getSelectedIndex() == 0));
+        }
+        table.sort(range, keys);
+    }
+
+    private void filterHandler(ActionEvent e, TablePanel table) {
+        var column = new JComboBox<>(columnNames(0, table.getColumnCount() - 1));
+        var text = new JTextField();
+        Object[] message = {
+            "Column:", column,
+            "Shows the rows whose value contains:", text
+        };
+
+        int option = JOptionPane.showConfirmDialog(null, message, "Filter rows", JOptionPane.OK_CANCEL_OPTION);
+        if (option == JOptionPane.OK_OPTION)
+            table.filter(column.getSelectedIndex(), text.getText());
+    }
+
+    private void extendTableHandler(ActionEvent e, TablePanel table) {
+        var rowNumber = new SpinnerNumberModel(0, 0, CellStore.MAX_ROW_COUNT, 1);
+        var columnNumber = new SpinnerNumberModel(0, 0, CellStore.MAX_COLUMN_COUNT, 1);
+        Object[] message = {
+            "Add rows (%d max total):".formatted(CellStore.MAX_ROW_COUNT), new JSpinner(rowNumber),
+            "Add columns (%d max total):".formatted(CellStore.MAX_COLUMN_COUNT), new JSpinner(columnNumber)
+        };
+
+        int option = JOptionPane.showConfirmDialog(null, message, "Extend table", JOptionPane.OK_CANCEL_OPTION);
+        if (option == JOptionPane.OK_OPTION) {
+            System.out.printf("Extending the table %d %d\n", rowNumber.getNumber().intValue(), columnNumber.getNumber().intValue());
+            table.extend(rowNumber.getNumber().intValue(), columnNumber.getNumber().intValue());
+        }
+    }
+
+    private void shrinkTableHandler(ActionEvent e, TablePanel table) {
+        var rowNumber = new SpinnerNumberModel(0, 0, CellStore.MAX_ROW_COUNT, 1);
+        var columnNumber = new SpinnerNumberModel(0, 0, CellStore.MIN_COLUMN_COUNT, 1);
+        Object[] message = {
+            "Remove rows (%d min total):".formatted(CellStore.MIN_ROW_COUNT), new JSpinner(rowNumber),
+            "Remove columns (%d min total):".formatted(CellStore.MIN_COLUMN_COUNT), new JSpinner(columnNumber)
+        };
+
+        int option = JOptionPane.showConfirmDialog(null, message, "Shrink table", JOptionPane.OK_CANCEL_OPTION);
+        if (option == JOptionPane.OK_OPTION) {
+            System.out.printf("Shrinking the table %d %d\n", rowNumber.getNumber().intValue(), columnNumber.getNumber().intValue());
+            table.shrink(rowNumber.getNumber().intValue(), columnNumber.getNumber().intValue());
+        }
+    }
+}
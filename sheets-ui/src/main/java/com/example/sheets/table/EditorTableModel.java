@@ -0,0 +1,280 @@
+package com.example.sheets.table;
+
+import com.example.sheets.expression.parser.LetterIndexUtil;
+import com.example.sheets.expression.parser.ast.NodeValue;
+import com.example.sheets.jfr.TableModelEvent;
+import com.example.sheets.table.cell.CellAddress;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+public final class EditorTableModel extends AbstractTableModel {
+
+    /**
+     * Above this many dirty cells a single event for the rows they span is fired instead of one per cell.
+     */
+    private static final int COALESCED_UPDATE_THRESHOLD = 64;
+
+    private int selectedRow = -1;
+    private int selectedColumn = -1;
+    private final CellManager cellManager;
+    private final EditJournal journal;
+
+    public EditorTableModel(int rowCount, int columnCount) {
+        cellManager = new CellManager(rowCount, columnCount);
+        journal = new EditJournal(cellManager);
+    }
+
+    @Override
+    public int getRowCount() {
+        return cellManager.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return cellManager.getColumnCount() + 1;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (columnIndex == 0)
+            return String.valueOf(rowIndex + 1);
+
+        if (selectedRow == rowIndex && selectedColumn == columnIndex)
+            return cellManager.getFormula(new CellAddress(rowIndex, columnIndex - 1));
+        return cellManager.getVisibleValue(new CellAddress(rowIndex, columnIndex - 1));
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column == 0)
+            return "\\";
+        return LetterIndexUtil.toLetterIndex(column);
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return columnIndex != 0;
+    }
+
+    @Override
+    public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
+        if (!(aValue instanceof String formula))
+            return;
+        if (rowIndex < 0 || rowIndex >= getRowCount() || columnIndex < 1 || columnIndex >= getColumnCount())
+            return;
+
+        var updateResult = journal.setValue(
+            new CellAddress(rowIndex, columnIndex - 1),
+            formula
+        );
+        fireUpdated(updateResult, "setValueAt");
+    }
+
+    /**
+     * Applies all the edits as a single undoable operation, notifying the table once.
+     */
+    public void setValues(Map<CellAddress, String> formulas) {
+        fireUpdated(journal.setValues(formulas), "setValues");
+    }
+
+    public String copy(int[] rows, int fromColumn, int toColumn) {
+        return RangeTransfer.copy(cellManager, rows, fromColumn, toColumn);
+    }
+
+    /**
+     * Pastes the tab separated formulas as a single edit, extending the table to fit them first.
+     * The extension and the formulas are undone at once.
+     */
+    public void paste(String text, int anchorRow, int anchorColumn, int rowDelta, int columnDelta) {
+        var rows = RangeTransfer.parse(text);
+        int width = rows.stream().mapToInt(fields -> fields.length).max().orElse(0);
+        int missingRows = Math.max(anchorRow + rows.size() - cellManager.getRowCount(), 0);
+        int missingColumns = Math.max(anchorColumn + width - cellManager.getColumnCount(), 0);
+        var formulas = RangeTransfer.paste(rows, anchorRow, anchorColumn, rowDelta, columnDelta);
+        replay(() -> journal.extendAndSetValues(missingRows, missingColumns, formulas), "paste");
+    }
+
+    /**
+     * Formulas which sort the range by the keys, see {@link RangeSort}. Only reads the table, so it can be
+     * called off the event dispatch thread and then applied with {@link #applySort}.
+     */
+    public Map<CellAddress, String> sortedFormulas(int fromRow, int fromColumn, int toRow, int toColumn,
+                                                   List<RangeSort.Key> keys) {
+        return RangeSort.sort(cellManager, fromRow, fromColumn, toRow, toColumn, keys);
+    }
+
+    /**
+     * Grows with every change made to the table through the model, see {@link EditJournal#getChangeCount}.
+     */
+    public long getChangeCount() {
+        return journal.getChangeCount();
+    }
+
+    /**
+     * Puts the sorted formulas as a single undoable edit.
+     */
+    public void applySort(Map<CellAddress, String> formulas) {
+        fireUpdated(journal.setValues(formulas), "sort");
+    }
+
+    /**
+     * Rows whose visible value in the column contains {@code text}, ignoring case. Only reads the table,
+     * so it can be called off the event dispatch thread.
+     */
+    public BitSet matchingRows(int column, String text) {
+        int rowCount = cellManager.getRowCount();
+        cellManager.evaluateRange(0, column, rowCount - 1, column);
+        var needle = text.toLowerCase(Locale.ROOT);
+        var matching = new boolean[rowCount];
+        IntStream.range(0, rowCount).parallel().forEach(row -> matching[row] =
+            cellManager.getVisibleValue(new CellAddress(row, column)).toLowerCase(Locale.ROOT).contains(needle));
+        var rows = new BitSet(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            if (matching[row])
+                rows.set(row);
+        }
+        return rows;
+    }
+
+    public boolean canUndo() {
+        return journal.canUndo();
+    }
+
+    public boolean canRedo() {
+        return journal.canRedo();
+    }
+
+    public void undo() {
+        replay(journal::undo, "undo");
+    }
+
+    public void redo() {
+        replay(journal::redo, "redo");
+    }
+
+    private void replay(Supplier<CellManager.UpdateResult> operation, String name) {
+        int rowCount = getRowCount();
+        int columnCount = getColumnCount();
+        var updateResult = operation.get();
+        if (updateResult == null)
+            return;
+        if (rowCount != getRowCount() || columnCount != getColumnCount())
+            fireWholeTableChanged(name);
+        else
+            fireUpdated(updateResult, name);
+    }
+
+    private void fireUpdated(CellManager.UpdateResult updateResult, String operation) {
+        if (!updateResult.complete()) {
+            var event = new TableModelEvent();
+            event.begin();
+            fireTableDataChanged();
+            commit(event, operation, -1);
+            return;
+        }
+
+        var event = new TableModelEvent();
+        event.begin();
+        if (updateResult.dirty().size() > COALESCED_UPDATE_THRESHOLD) {
+            int firstRow = Integer.MAX_VALUE;
+            int lastRow = -1;
+            for (var address : updateResult.dirty()) {
+                firstRow = Math.min(firstRow, address.row());
+                lastRow = Math.max(lastRow, address.row());
+            }
+            fireTableRowsUpdated(firstRow, lastRow);
+        } else {
+            for (var address : updateResult.dirty()) {
+                fireTableCellUpdated(address.row(), address.column() + 1);
+            }
+        }
+        commit(event, operation, updateResult.dirty().size());
+    }
+
+    public void selectionChanged(int rowIndex, int columnIndex) {
+        if (rowIndex == selectedRow && columnIndex == selectedColumn)
+            return;
+        // Coming back to a cell starts a new undo step
+        journal.breakCoalescing();
+        // Row -1 would be taken for a change of the header, which clears the selection
+        if (rowIndex >= 0)
+            fireTableCellUpdated(rowIndex, columnIndex);
+        if (selectedRow >= 0)
+            fireTableCellUpdated(selectedRow, selectedColumn);
+        selectedRow = rowIndex;
+        selectedColumn = columnIndex;
+    }
+
+    public void onRightClick(int rowIndex, int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= getRowCount() || columnIndex < 1 || columnIndex >= getColumnCount())
+            return;
+
+        if (cellManager.getValue(new CellAddress(rowIndex, columnIndex - 1)) instanceof NodeValue.Error e) {
+            JOptionPane.showMessageDialog(null, e.message(), "Cell's erroneous", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Replaces the table by a saved sheet. Not undoable.
+     */
+    public void load(InputStream in) throws IOException {
+        cellManager.load(in);
+        journal.clear();
+        fireWholeTableChanged("load");
+    }
+
+    public void save(OutputStream out) throws IOException {
+        cellManager.save(out);
+    }
+
+    /**
+     * Replaces the table by comma separated rows. Not undoable, like {@link #load}.
+     */
+    public void importCsv(ReadableByteChannel channel) throws IOException {
+        cellManager.importCsv(channel);
+        journal.clear();
+        fireWholeTableChanged("importCsv");
+    }
+
+    public void exportCsv(WritableByteChannel channel) throws IOException {
+        cellManager.exportCsv(channel);
+    }
+
+    public void extend(int rowNumber, int columnNumber) {
+        journal.extend(rowNumber, columnNumber);
+        fireWholeTableChanged("extend");
+    }
+
+    public void shrink(int rowNumber, int columnNumber) {
+        journal.shrink(rowNumber, columnNumber);
+        fireWholeTableChanged("shrink");
+    }
+
+    private void fireWholeTableChanged(String operation) {
+        var event = new TableModelEvent();
+        event.begin();
+        fireTableStructureChanged();
+        fireTableDataChanged();
+        commit(event, operation, -1);
+    }
+
+    private static void commit(TableModelEvent event, String operation, int cellCount) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.cellCount = cellCount;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.sheets.table;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.MouseInputAdapter;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import static java.awt.event.MouseEvent.BUTTON3;
+import static java.nio.file.StandardOpenOption.*;
+
+public final class TablePanel extends JPanel {
+    /**
+     * Bound property, true while a task runs in the background and the table must not be changed.
+     */
+    public static final String BUSY_PROPERTY = "busy";
+
+    private final EditorTableModel tableModel;
+    private final JTable bodyTable;
+    private final JTable headTable;
+    /**
+     * The latest range copied from this table, to tell its text on the clipboard from text copied elsewhere.
+     */
+    private CopiedRange copied;
+    private boolean busy;
+
+    private record CopiedRange(String text, int row, int column) {
+    }
+
+    /**
+     * Rows of the model and columns of the cells, both ends included.
+     */
+    public record SortRange(int fromRow, int fromColumn, int toRow, int toColumn) {
+    }
+    private final int MINIMUM_WIDTH = 150;
+    private final int MINIMUM_HEIGHT = 150;
+
+    public TablePanel(int rowCount, int columnCount) {
+
+        setMinimumSize(new Dimension(MINIMUM_WIDTH, MINIMUM_HEIGHT));
+
+        tableModel = new EditorTableModel(rowCount, columnCount);
+        var columnModel = new SkipFirstColumnModel();
+        var columnModelHead = new SkipAfterFirstColumnModel();
+
+        var bodyTable = new JTable(tableModel, columnModel) {
+            @Override
+            public void changeSelection(int rowIndex, int columnIndex, boolean toggle, boolean extend) {
+                super.changeSelection(rowIndex, columnIndex, toggle, extend);
+                tableModel.selectionChanged(toModelRow(this, rowIndex), columnIndex + 1);
+            }
+
+            @Override
+            public void editingStopped(ChangeEvent e) {
+                super.editingStopped(e);
+                var rowIndex = getSelectedRow() + 1;
+                if (rowIndex == getRowCount())
+                    rowIndex -= 2;
+                var columnIndex = getSelectedColumn();
+                changeSelection(rowIndex, columnIndex, false, false);
+            }
+        };
+        bodyTable.addMouseListener(new MouseInputAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getButton() != BUTTON3)
+                    return;
+                int rowIndex = toModelRow(bodyTable, bodyTable.rowAtPoint(e.getPoint()));
+                int columnIndex = bodyTable.columnAtPoint(e.getPoint());
+                tableModel.onRightClick(rowIndex, columnIndex + 1);
+            }
+        });
+        this.bodyTable = bodyTable;
+        var headTable = new JTable(tableModel, columnModelHead);
+        this.headTable = headTable;
+
+        bodyTable.setAutoCreateColumnsFromModel(true);
+        headTable.createDefaultColumnsFromModel();
+
+        bodyTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        bodyTable.setSelectionModel(bodyTable.getSelectionModel());
+
+
+        bodyTable.getTableHeader().setBackground(Color.lightGray);
+        bodyTable.getTableHeader().setReorderingAllowed(false);
+        bodyTable.setCellSelectionEnabled(true);
+        // The headless toolkit has no menu shortcut key
+        int shortcutMask = GraphicsEnvironment.isHeadless()
+            ? InputEvent.CTRL_DOWN_MASK
+            : Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        bodyTable.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT)
+            .put(KeyStroke.getKeyStroke(KeyEvent.VK_C, shortcutMask), "copy");
+        bodyTable.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT)
+            .put(KeyStroke.getKeyStroke(KeyEvent.VK_V, shortcutMask), "paste");
+        bodyTable.getActionMap().put("copy", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                copy();
+            }
+        });
+        bodyTable.getActionMap().put("paste", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                paste();
+            }
+        });
+        headTable.setBackground(Color.lightGray);
+        headTable.getTableHeader().setReorderingAllowed(false);
+        headTable.setColumnSelectionAllowed(false);
+        headTable.setRowSelectionAllowed(false);
+        headTable.setCellSelectionEnabled(false);
+        headTable.setFocusable(false);
+
+        var viewPort = new JViewport();
+        viewPort.setView(headTable);
+        viewPort.setPreferredSize(headTable.getMaximumSize());
+
+        var pane = new JScrollPane(bodyTable);
+        pane.setRowHeader(viewPort);
+        pane.setCorner(ScrollPaneConstants.UPPER_LEFT_CORNER, headTable.getTableHeader());
+
+        setLayout(new BorderLayout());
+        add(pane, BorderLayout.CENTER);
+    }
+
+    public void load(File file) throws IOException {
+        clearFilter();
+        try (var in = Files.newInputStream(file.toPath())) {
+            tableModel.load(in);
+        }
+    }
+
+    public void save(File file) throws IOException {
+        try (var out = Files.newOutputStream(file.toPath(), WRITE, TRUNCATE_EXISTING, CREATE)) {
+            tableModel.save(out);
+        }
+    }
+
+    public void importCsv(File file) throws IOException {
+        clearFilter();
+        try (var channel = FileChannel.open(file.toPath(), READ)) {
+            tableModel.importCsv(channel);
+        }
+    }
+
+    public void exportCsv(File file) throws IOException {
+        stopEditing();
+        try (var channel = FileChannel.open(file.toPath(), WRITE, TRUNCATE_EXISTING, CREATE)) {
+            tableModel.exportCsv(channel);
+        }
+    }
+
+    /**
+     * Puts the formulas of the selected range to the system clipboard as tab separated text.
+     * Only the rows shown are copied while the rows are filtered.
+     */
+    public void copy() {
+        int[] rows = bodyTable.getSelectedRows();
+        int[] columns = bodyTable.getSelectedColumns();
+        if (rows.length == 0 || columns.length == 0)
+            return;
+        stopEditing();
+        var modelRows = new int[rows.length];
+        for (int i = 0; i < rows.length; i++)
+            modelRows[i] = toModelRow(bodyTable, rows[i]);
+        var text = tableModel.copy(modelRows, columns[0], columns[columns.length - 1]);
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text), null);
+        copied = new CopiedRange(text, modelRows[0], columns[0]);
+    }
+
+    /**
+     * Pastes tab separated text from the system clipboard at the selected cell. Formulas copied
+     * from this table have their references moved by the distance between the ranges.
+     * The filter is cleared first, as the text goes to consecutive rows, hidden or not.
+     */
+    public void paste() {
+        int row = toModelRow(bodyTable, bodyTable.getSelectedRow());
+        int column = bodyTable.getSelectedColumn();
+        if (row < 0 || column < 0)
+            return;
+        String text;
+        try {
+            text = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+        } catch (UnsupportedFlavorException | IOException | IllegalStateException e) {
+            return;
+        }
+        stopEditing();
+        if (isFiltered()) {
+            clearFilter();
+            bodyTable.changeSelection(row, column, false, false);
+        }
+        var source = copied;
+        if (source != null && source.text().equals(text))
+            tableModel.paste(text, row, column, row - source.row(), column - source.column());
+        else
+            tableModel.paste(text, row, column, 0, 0);
+    }
+
+    public void undo() {
+        stopEditing();
+        tableModel.undo();
+    }
+
+    public void redo() {
+        stopEditing();
+        tableModel.redo();
+    }
+
+    public boolean canUndo() {
+        return tableModel.canUndo();
+    }
+
+    public boolean canRedo() {
+        return tableModel.canRedo();
+    }
+
+    /**
+     * Commits the edit in progress, so it's part of the history before undoing.
+     */
+    private void stopEditing() {
+        var editor = bodyTable.getCellEditor();
+        if (editor != null)
+            editor.stopCellEditing();
+    }
+
+    public int getColumnCount() {
+        return tableModel.getColumnCount() - 1;
+    }
+
+    /**
+     * The selected range, or the whole table if a single cell is selected. Rows hidden by the filter between
+     * the selected ones are part of it.
+     */
+    public SortRange getSortRange() {
+        int[] rows = bodyTable.getSelectedRows();
+        int[] columns = bodyTable.getSelectedColumns();
+        if (rows.length <= 1 && columns.length <= 1)
+            return new SortRange(0, 0, tableModel.getRowCount() - 1, getColumnCount() - 1);
+        return new SortRange(toModelRow(bodyTable, rows[0]), columns[0],
+            toModelRow(bodyTable, rows[rows.length - 1]), columns[columns.length - 1]);
+    }
+
+    /**
+     * Sorts the range by the keys, which must be columns of the range. The order is computed on background threads
+     * while the table is busy, and then applied as a single undoable edit, unless the table was changed
+     * in the meantime. The filter is cleared first, so hidden rows are sorted along.
+     */
+    public void sort(SortRange range, List<RangeSort.Key> keys) {
+        stopEditing();
+        clearFilter();
+        int fromRow = range.fromRow();
+        int fromColumn = range.fromColumn();
+        int toRow = range.toRow();
+        int toColumn = range.toColumn();
+        long changeCount = tableModel.getChangeCount();
+        runInBackground(
+            () -> tableModel.sortedFormulas(fromRow, fromColumn, toRow, toColumn, keys),
+            formulas -> {
+                if (tableModel.getChangeCount() == changeCount) {
+                    tableModel.applySort(formulas);
+                    return;
+                }
+                JOptionPane.showMessageDialog(
+                    this,
+                    "The table was changed while sorting, please sort again",
+                    "Unable to sort",
+                    JOptionPane.WARNING_MESSAGE
+                );
+            },
+            "Unable to sort"
+        );
+    }
+
+    /**
+     * Shows only the rows whose visible value in the column contains {@code text}, ignoring case, without changing
+     * the table. The matching rows are found on background threads and are kept until the filter is cleared,
+     * so rows edited afterwards don't disappear.
+     */
+    public void filter(int column, String text) {
+        stopEditing();
+        runInBackground(() -> tableModel.matchingRows(column, text), this::showRows, "Unable to filter");
+    }
+
+    private void showRows(BitSet rows) {
+        var filter = new RowFilter<TableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+                return rows.get(entry.getIdentifier());
+            }
+        };
+        for (var table : List.of(bodyTable, headTable)) {
+            var sorter = new TableRowSorter<TableModel>(tableModel) {
+                @Override
+                public boolean isSortable(int column) {
+                    return false;
+                }
+            };
+            sorter.setRowFilter(filter);
+            table.setRowSorter(sorter);
+        }
+    }
+
+    /**
+     * Shows all the rows again. Does nothing without a filter, as removing the sorter also clears the selection.
+     */
+    public void clearFilter() {
+        if (!isFiltered())
+            return;
+        bodyTable.setRowSorter(null);
+        headTable.setRowSorter(null);
+    }
+
+    public boolean isFiltered() {
+        return bodyTable.getRowSorter() != null;
+    }
+
+    /**
+     * Whether a task runs in the background, see {@link #BUSY_PROPERTY}.
+     */
+    public boolean isBusy() {
+        return busy;
+    }
+
+    private void setBusy(boolean busy) {
+        this.busy = busy;
+        bodyTable.setEnabled(!busy);
+        for (var action : List.of("copy", "paste"))
+            bodyTable.getActionMap().get(action).setEnabled(!busy);
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+        firePropertyChange(BUSY_PROPERTY, !busy, busy);
+    }
+
+    /**
+     * Runs the task on a worker thread with the table busy, and hands its result to the event dispatch thread.
+     */
+    private <T> void runInBackground(Callable<T> task, Consumer<T> onResult, String errorTitle) {
+        if (busy)
+            return;
+        setBusy(true);
+        new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                setBusy(false);
+                try {
+                    onResult.accept(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(
+                        TablePanel.this,
+                        String.valueOf(e.getCause().getMessage()),
+                        errorTitle,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * @return the index of the row in the model, which differs from the one in the view while rows are filtered
+     */
+    private static int toModelRow(JTable table, int viewRow) {
+        return viewRow < 0 ? viewRow : table.convertRowIndexToModel(viewRow);
+    }
+
+    public void extend(int rowNumber, int columnNumber) {
+        clearFilter();
+        tableModel.extend(rowNumber, columnNumber);
+    }
+
+    public void shrink(int rowNumber, int columnNumber) {
+        clearFilter();
+        tableModel.shrink(rowNumber, columnNumber);
+    }
+}
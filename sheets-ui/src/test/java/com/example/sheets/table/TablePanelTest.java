@@ -0,0 +1,74 @@
+package com.example.sheets.table;
+
+import com.example.sheets.table.cell.CellAddress;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablePanelTest {
+
+    @Test
+    void selectedRangeIsSortedAlone() throws Exception {
+        var panel = onEdt(() -> new TablePanel(6, 3));
+        var body = (JTable) ((JScrollPane) panel.getComponent(0)).getViewport().getView();
+        var model = (EditorTableModel) body.getModel();
+        onEdt(() -> {
+            var formulas = new HashMap<CellAddress, String>();
+            for (int i = 0; i < 6; i++) {
+                formulas.put(new CellAddress(i, 0), String.valueOf(6 - i));
+                formulas.put(new CellAddress(i, 1), String.valueOf(60 - 10 * i));
+                formulas.put(new CellAddress(i, 2), String.valueOf(i));
+            }
+            model.setValues(formulas);
+            body.changeSelection(1, 0, false, false);
+            body.changeSelection(3, 1, false, true);
+            var range = panel.getSortRange();
+            assertEquals(new TablePanel.SortRange(1, 0, 3, 1), range);
+            panel.sort(range, List.of(new RangeSort.Key(0, true)));
+            return null;
+        });
+        awaitIdle(panel);
+
+        assertEquals(List.of("6", "3", "4", "5", "2", "1"), column(model, 0));
+        assertEquals(List.of("60", "30", "40", "50", "20", "10"), column(model, 1));
+        assertEquals(List.of("0", "1", "2", "3", "4", "5"), column(model, 2));
+    }
+
+    private static void awaitIdle(TablePanel panel) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (onEdt(panel::isBusy)) {
+            assertTrue(System.nanoTime() < deadline, "still busy");
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<String> column(EditorTableModel model, int column) throws Exception {
+        return onEdt(() -> IntStream.range(0, model.getRowCount())
+            .mapToObj(row -> String.valueOf(model.getValueAt(row, column + 1)))
+            .toList());
+    }
+
+    private static <T> T onEdt(Callable<T> task) throws Exception {
+        var result = new Object[1];
+        var failure = new Exception[1];
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result[0] = task.call();
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null)
+            throw failure[0];
+        @SuppressWarnings("unchecked")
+        var value = (T) result[0];
+        return value;
+    }
+}